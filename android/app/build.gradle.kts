@@ -43,6 +43,8 @@ android {
 dependencies {
     implementation("ai.picovoice:porcupine-android:3.0.0")
     implementation("ai.picovoice:eagle-android:1.0.0")
+    // اختبارات JVM لخط المعالجة؛ تعمل أيضًا بدون Android SDK عبر :benchmarks:test
+    testImplementation("junit:junit:4.13.2")
 
 }
 
@@ -0,0 +1,121 @@
+package com.example.nabd;
+
+import java.util.Set;
+
+// حد يتكيف مع الضوضاء ومع درجات المستخدم نفسه:
+// - بعد عدد كافٍ من الجلسات المقبولة يُرفع الحد حتى (المتوسط - marginSigmas * الانحراف)،
+//   فمن يحصل دائمًا على 0.9 لا يُقبل منتحل بـ 0.65
+// - عندما تنخفض نسبة الإشارة للضوضاء عن المرجع يُخفض الحد تدريجيًا بسقف maxSnrRelax،
+//   لأن درجات المستخدم الحقيقي تنخفض في الضجيج
+// المعايرة تتعلم فقط من الجلسات المقبولة في ظروف هادئة نسبيًا حتى لا ينحرف الحد مع الضوضاء.
+public class AdaptiveScoringPolicy implements ScoringPolicy {
+    private final DecisionRule rule;
+    private final CalibrationStore calibrations;
+
+    private float referenceSnrDb = 20f;
+    private float minSnrDb = 5f;
+    private float relaxPerDb = 0.006f;
+    private float maxSnrRelax = 0.1f;
+    private float maxCalibrationRaise = 0.15f;
+    private float marginSigmas = 3f;
+    private int minSessions = 5;
+    private float calibrationAlpha = 0.1f;
+    private float minThreshold = 0.4f;
+    private float minConfidenceScale = 0.02f;
+
+    public AdaptiveScoringPolicy(DecisionRule rule, CalibrationStore calibrations) {
+        this.rule = rule;
+        this.calibrations = calibrations;
+    }
+
+    // SNR المعتبر "هادئًا"؛ أدناه يبدأ التخفيف، وأدنى من minSnrDb لا يزيد التخفيف
+    public AdaptiveScoringPolicy setSnrRange(float referenceSnrDb, float minSnrDb) {
+        this.referenceSnrDb = referenceSnrDb;
+        this.minSnrDb = minSnrDb;
+        return this;
+    }
+
+    public AdaptiveScoringPolicy setSnrRelaxation(float relaxPerDb, float maxSnrRelax) {
+        this.relaxPerDb = relaxPerDb;
+        this.maxSnrRelax = maxSnrRelax;
+        return this;
+    }
+
+    public AdaptiveScoringPolicy setCalibration(int minSessions, float marginSigmas, float maxRaise, float alpha) {
+        this.minSessions = Math.max(1, minSessions);
+        this.marginSigmas = marginSigmas;
+        this.maxCalibrationRaise = maxRaise;
+        this.calibrationAlpha = alpha;
+        return this;
+    }
+
+    public AdaptiveScoringPolicy setMinThreshold(float minThreshold) {
+        this.minThreshold = minThreshold;
+        return this;
+    }
+
+    public CalibrationStore getCalibrations() {
+        return calibrations;
+    }
+
+    @Override
+    public DecisionRule getRule() {
+        return rule;
+    }
+
+    @Override
+    public float thresholdFor(String speaker, float enrolledThreshold, float snrDb, Set<Reason> reasons) {
+        float threshold = enrolledThreshold;
+
+        SpeakerCalibration calibration = calibrations.load(speaker);
+        if (calibration != null && calibration.getSessions() >= minSessions) {
+            float calibrated = calibration.getMean() - marginSigmas * calibration.getStdDev();
+            if (calibrated > threshold) {
+                threshold = Math.min(calibrated, enrolledThreshold + maxCalibrationRaise);
+                add(reasons, Reason.CALIBRATION_RAISED);
+            }
+        } else {
+            add(reasons, Reason.NOT_CALIBRATED);
+        }
+
+        if (!Float.isNaN(snrDb) && snrDb < referenceSnrDb) {
+            float effectiveSnr = Math.max(snrDb, minSnrDb);
+            float relax = Math.min(maxSnrRelax, (referenceSnrDb - effectiveSnr) * relaxPerDb);
+            threshold -= relax;
+            add(reasons, Reason.LOW_SNR_RELAXED);
+            if (snrDb < minSnrDb) {
+                add(reasons, Reason.TOO_NOISY);
+            }
+        }
+        return Math.max(minThreshold, threshold);
+    }
+
+    @Override
+    public float confidence(String speaker, float decisionScore, float threshold) {
+        float scale = FixedScoringPolicy.DEFAULT_CONFIDENCE_SCALE;
+        SpeakerCalibration calibration = calibrations.load(speaker);
+        if (calibration != null && calibration.getSessions() >= minSessions) {
+            scale = Math.max(minConfidenceScale, calibration.getStdDev());
+        }
+        return FixedScoringPolicy.logistic(decisionScore - threshold, scale);
+    }
+
+    @Override
+    public void onAccepted(String speaker, float decisionScore, float snrDb) {
+        // الجلسات الصاخبة تُقبل بحد مخفف؛ لا نتعلم منها
+        if (speaker == null || Float.isNaN(snrDb) || snrDb < referenceSnrDb - 5f) {
+            return;
+        }
+        SpeakerCalibration calibration = calibrations.load(speaker);
+        if (calibration == null) {
+            calibration = new SpeakerCalibration(0f, 0f, 0);
+        }
+        calibrations.save(speaker, calibration.add(decisionScore, calibrationAlpha));
+    }
+
+    private static void add(Set<Reason> reasons, Reason reason) {
+        if (reasons != null) {
+            reasons.add(reason);
+        }
+    }
+}
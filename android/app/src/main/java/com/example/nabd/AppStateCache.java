@@ -0,0 +1,171 @@
+package com.example.nabd;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.database.ContentObserver;
+import android.os.FileObserver;
+import android.os.PowerManager;
+import android.provider.Settings;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.core.app.ActivityCompat;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// نسخة في الذاكرة من حالة الأذونات والخدمات التي تسألها واجهة Flutter عند البدء.
+// كل قيمة تُحسب عند أول طلب بعدما تُبطل: الوصول بـ ContentObserver، البصمات بأحداث الملفات،
+// والأذونات والـ overlay (بلا إشعار تغيير) عند رجوع النشاط للواجهة.
+// الحساب قد يلمس القرص أو binder: يُستدعى من خيط خلفي (قناة nabd/state).
+public final class AppStateCache {
+    private static final String TAG = "AppStateCache";
+    private static AppStateCache instance;
+
+    public static final String MICROPHONE = "microphone";
+    public static final String OVERLAY = "overlay";
+    public static final String ACCESSIBILITY = "accessibility";
+    public static final String BATTERY_OPTIMIZATION_IGNORED = "ignoringBatteryOptimizations";
+    public static final String PROFILE_ENROLLED = "profileEnrolled";
+    private static final String[] KEYS = {
+            MICROPHONE, OVERLAY, ACCESSIBILITY, BATTERY_OPTIMIZATION_IGNORED, PROFILE_ENROLLED
+    };
+
+    private final Context context;
+    private final Map<String, Boolean> values = new ConcurrentHashMap<>();
+    // يزيد مع كل إبطال: قيمة حُسبت قبل الإبطال لا تُخزن بعده
+    private final AtomicInteger generation = new AtomicInteger();
+    private ContentObserver accessibilityObserver;
+    private FileObserver profileObserver;
+
+    private AppStateCache(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    public static synchronized AppStateCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new AppStateCache(context);
+        }
+        return instance;
+    }
+
+    // المراقبون يعيشون مع العملية؛ الاستدعاء المتكرر لا يسجلهم مرتين
+    public synchronized void start() {
+        if (accessibilityObserver != null) {
+            return;
+        }
+        // بدون Handler: onChange على خيط binder، والإبطال لا يحتاج أكثر
+        accessibilityObserver = new ContentObserver(null) {
+            @Override
+            public void onChange(boolean selfChange) {
+                invalidate(ACCESSIBILITY);
+            }
+        };
+        context.getContentResolver().registerContentObserver(
+                Settings.Secure.getUriFor(Settings.Secure.ENABLED_ACCESSIBILITY_SERVICES), false, accessibilityObserver);
+
+        // الفهرس يُستبدل بإعادة تسمية عند كل حفظ أو حذف
+        File directory = EagleEngineRegistry.getInstance(context).getStore().getDirectory();
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.e(TAG, "Cannot create " + directory + ", enrollment state will not be watched");
+            return;
+        }
+        profileObserver = new FileObserver(directory.getPath(),
+                FileObserver.CLOSE_WRITE | FileObserver.MOVED_TO | FileObserver.DELETE | FileObserver.DELETE_SELF) {
+            @Override
+            public void onEvent(int event, String path) {
+                invalidate(PROFILE_ENROLLED);
+            }
+        };
+        profileObserver.startWatching();
+    }
+
+    public boolean get(String key) {
+        Boolean value = values.get(key);
+        if (value != null) {
+            return value;
+        }
+        int before = generation.get();
+        value = compute(key);
+        synchronized (values) {
+            if (generation.get() == before) {
+                values.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    // كل القيم في Map واحدة لـ getState
+    public Map<String, Object> snapshot() {
+        Map<String, Object> state = new HashMap<>();
+        for (String key : KEYS) {
+            state.put(key, get(key));
+        }
+        return state;
+    }
+
+    public void invalidate(String key) {
+        synchronized (values) {
+            generation.incrementAndGet();
+            values.remove(key);
+        }
+    }
+
+    // ما لا يرسل النظام إشعارًا بتغيره؛ يُستدعى عند رجوع النشاط من الإعدادات أو حوار الإذن
+    public void invalidateOnResume() {
+        synchronized (values) {
+            generation.incrementAndGet();
+            values.remove(MICROPHONE);
+            values.remove(OVERLAY);
+            values.remove(BATTERY_OPTIMIZATION_IGNORED);
+        }
+    }
+
+    private boolean compute(String key) {
+        switch (key) {
+            case MICROPHONE:
+                return isGranted(Manifest.permission.RECORD_AUDIO);
+            case OVERLAY:
+                return Settings.canDrawOverlays(context);
+            case ACCESSIBILITY:
+                return isAccessibilityServiceEnabled();
+            case BATTERY_OPTIMIZATION_IGNORED:
+                PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+                return pm != null && pm.isIgnoringBatteryOptimizations(context.getPackageName());
+            case PROFILE_ENROLLED:
+                return !EagleEngineRegistry.getInstance(context).getStore().isEmpty();
+            default:
+                throw new IllegalArgumentException("Unknown state " + key);
+        }
+    }
+
+    private boolean isGranted(String permission) {
+        return ActivityCompat.checkSelfPermission(context, permission) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    private boolean isAccessibilityServiceEnabled() {
+        String expectedComponentName = context.getPackageName() + "/" + AutoOpenAccessibilityService.class.getName();
+        String enabledServices = Settings.Secure.getString(
+                context.getContentResolver(),
+                Settings.Secure.ENABLED_ACCESSIBILITY_SERVICES
+        );
+
+        if (enabledServices == null) return false;
+
+        TextUtils.SimpleStringSplitter colonSplitter = new TextUtils.SimpleStringSplitter(':');
+        colonSplitter.setString(enabledServices);
+
+        while (colonSplitter.hasNext()) {
+            String componentName = colonSplitter.next();
+            if (componentName.equalsIgnoreCase(expectedComponentName)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.nabd;
+
+// سلسلة المعالجة المشتركة بين التقاط خدمة الاستماع وتسجيل البصمة، حتى يرى Eagle نفس الصوت
+// عند التسجيل والتحقق. كل التقاط يأخذ نسخته (الحالة تخص تيارًا واحدًا).
+public class AudioFrontEnd implements FrameProcessor {
+    // إعداد السلسلة كما يُحفظ في رأس البصمة: البصمة تُقارن فقط بصوت مرّ بالسلسلة التي سُجلت بها
+    public static final int CONFIG_RAW = 0;
+    public static final int CONFIG_STANDARD = 1;
+    public static final int CONFIG_PRE_EMPHASIS = 2;
+
+    private final FrameProcessor[] stages;
+
+    public AudioFrontEnd(FrameProcessor... stages) {
+        this.stages = stages.clone();
+    }
+
+    // DC ← تمرير عالٍ 80 Hz ← (تشديد اختياري) ← AGC مع محدد
+    public static AudioFrontEnd standard(int sampleRate, boolean preEmphasis) {
+        return preEmphasis
+                ? new AudioFrontEnd(new DcBlocker(), new BiquadHighPass(sampleRate), new PreEmphasis(),
+                        new AutomaticGainControl())
+                : new AudioFrontEnd(new DcBlocker(), new BiquadHighPass(sampleRate), new AutomaticGainControl());
+    }
+
+    // null لـ CONFIG_RAW (أو قيمة غير معروفة): الصوت يمر كما هو
+    public static AudioFrontEnd forConfig(int config, int sampleRate) {
+        switch (config) {
+            case CONFIG_STANDARD:
+                return standard(sampleRate, false);
+            case CONFIG_PRE_EMPHASIS:
+                return standard(sampleRate, true);
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public void process(short[] frame, int length) {
+        for (FrameProcessor stage : stages) {
+            stage.process(frame, length);
+        }
+    }
+
+    @Override
+    public void reset() {
+        for (FrameProcessor stage : stages) {
+            stage.reset();
+        }
+    }
+
+    public int getStageCount() {
+        return stages.length;
+    }
+
+    public FrameProcessor getStage(int index) {
+        return stages[index];
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.nabd;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Buffer دائري مخصص مسبقًا لآخر ثوانٍ من الصوت: منتج واحد (خيط الالتقاط) ومستهلك واحد.
+// المنتج لا ينتظر أبدًا؛ المستهلك ينسخ ثم يتحقق من عدّاد التسلسل ويعيد المحاولة إذا تم الكتابة فوق ما نسخه.
+public class AudioRingBuffer {
+    private static final int MAX_SNAPSHOT_ATTEMPTS = 4;
+
+    private final short[] samples;
+    private final int capacity;
+    private final int sampleRate;
+    private final int maxWriteLength;
+    // عدد العينات المنشورة منذ البداية؛ يكتبه المنتج فقط
+    private final AtomicLong writeSequence = new AtomicLong();
+    // يكتبه المستهلك فقط، راجع loadFence
+    private final AtomicLong consumerFence = new AtomicLong();
+
+    public AudioRingBuffer(int sampleRate, int durationMillis, int maxWriteLength) {
+        this.sampleRate = sampleRate;
+        this.maxWriteLength = maxWriteLength;
+        // هامش إضافي بحجم كتابتين حتى لا تلمس الكتابة الجارية أي عينة ضمن اللقطة
+        this.capacity = samplesFor(durationMillis) + 2 * maxWriteLength;
+        this.samples = new short[capacity];
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getMaxSnapshotSamples() {
+        return capacity - 2 * maxWriteLength;
+    }
+
+    public long getWriteSequence() {
+        return writeSequence.get();
+    }
+
+    public int samplesFor(int millis) {
+        return (int) ((long) sampleRate * millis / 1000);
+    }
+
+    // يُستدعى من خيط المنتج فقط
+    public void write(short[] source, int offset, int length) {
+        while (length > 0) {
+            int chunk = Math.min(length, maxWriteLength);
+            long sequence = writeSequence.get();
+            int position = (int) (sequence % capacity);
+            int first = Math.min(chunk, capacity - position);
+            System.arraycopy(source, offset, samples, position, first);
+            if (first < chunk) {
+                System.arraycopy(source, offset + first, samples, 0, chunk - first);
+            }
+            writeSequence.lazySet(sequence + chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    // ينسخ آخر lastNMillis من الصوت إلى dest بالترتيب الزمني ويرجع عدد العينات المنسوخة
+    public int snapshot(int lastNMillis, short[] dest) {
+        int wanted = Math.min(Math.min(samplesFor(lastNMillis), dest.length), getMaxSnapshotSamples());
+        for (int attempt = 0; attempt < MAX_SNAPSHOT_ATTEMPTS; attempt++) {
+            long end = writeSequence.get();
+            int count = (int) Math.min(wanted, end);
+            long start = end - count;
+            copyRange(start, count, dest);
+            loadFence();
+            long published = writeSequence.get();
+            // الكتابة الجارية قد تكون تجاوزت published بمقدار maxWriteLength على الأكثر
+            if (published + maxWriteLength - capacity <= start) {
+                return count;
+            }
+        }
+        return 0;
+    }
+
+    // ينسخ length عينة بدءًا من التسلسل fromSequence؛ يرجع -1 إذا كتب المنتج فوقها قبل قراءتها
+    // أو 0 إذا لم تُكتب بعد بالكامل
+    public int read(long fromSequence, short[] dest, int length) {
+        long end = writeSequence.get();
+        if (fromSequence + length > end) {
+            return 0;
+        }
+        if (end + maxWriteLength - capacity > fromSequence) {
+            return -1;
+        }
+        copyRange(fromSequence, length, dest);
+        loadFence();
+        if (writeSequence.get() + maxWriteLength - capacity > fromSequence) {
+            return -1;
+        }
+        return length;
+    }
+
+    // قراءات النسخ العادية يجب أن تسبق إعادة قراءة writeSequence، وإلا قد تُنقل بعدها فلا يُكتشف
+    // ما كتبه المنتج فوقها. كتابة volatile لا تُقدَّم عليها قراءة سابقة ولا تُؤخَّر بعدها قراءة volatile
+    // تالية، فتعمل كـ VarHandle.acquireFence غير المتاح قبل API 33 (minSdk هنا 23)
+    private void loadFence() {
+        consumerFence.set(0);
+    }
+
+    private void copyRange(long start, int count, short[] dest) {
+        int position = (int) (start % capacity);
+        int first = Math.min(count, capacity - position);
+        System.arraycopy(samples, position, dest, 0, first);
+        if (first < count) {
+            System.arraycopy(samples, 0, dest, first, count - first);
+        }
+    }
+}
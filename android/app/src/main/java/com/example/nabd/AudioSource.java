@@ -0,0 +1,17 @@
+package com.example.nabd;
+
+public interface AudioSource {
+    // نهاية ملف أو مصفوفة: توقف طبيعي وليس خطأ قراءة (أخطاء AudioRecord أرقام سالبة صغيرة)
+    int END_OF_STREAM = Integer.MIN_VALUE;
+
+    int getSampleRate();
+
+    boolean start();
+
+    // يرجع عدد العينات المقروءة، أو END_OF_STREAM عند انتهاء المصدر، أو قيمة سالبة أخرى عند الخطأ
+    int read(short[] buffer, int offset, int length);
+
+    void stop();
+
+    void release();
+}
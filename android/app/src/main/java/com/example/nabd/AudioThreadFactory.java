@@ -0,0 +1,29 @@
+package com.example.nabd;
+
+import android.os.Process;
+
+import java.util.concurrent.ThreadFactory;
+
+// خيوط الالتقاط بأولوية الصوت العاجلة حتى لا يتأخر read() خلف خيوط الواجهة والتحقق
+public class AudioThreadFactory implements ThreadFactory {
+    private final String name;
+    private final int priority;
+
+    public AudioThreadFactory(String name) {
+        this(name, Process.THREAD_PRIORITY_URGENT_AUDIO);
+    }
+
+    // أولوية من Process.THREAD_PRIORITY_*؛ العمل الاختياري بجانب الالتقاط يأخذ BACKGROUND
+    public AudioThreadFactory(String name, int priority) {
+        this.name = name;
+        this.priority = priority;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+        return new Thread(() -> {
+            Process.setThreadPriority(priority);
+            runnable.run();
+        }, name);
+    }
+}
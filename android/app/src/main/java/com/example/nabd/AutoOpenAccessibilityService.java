@@ -27,9 +27,17 @@ public class AutoOpenAccessibilityService extends AccessibilityService {
     }
 
     public static void launchApp(AutoOpenAccessibilityService service) {
+        launchApp(service, 0);
+    }
+
+    // detectionNanos != 0 يعني أن الفتح جاء من كلمة التنبيه بعد التحقق من الصوت
+    public static void launchApp(AutoOpenAccessibilityService service, long detectionNanos) {
         if (service != null) {
             Intent intent = new Intent(service, MainActivity.class);
             intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+            if (detectionNanos != 0) {
+                intent.putExtra(MainActivity.EXTRA_WAKE_NANOS, detectionNanos);
+            }
             service.startActivity(intent);
         }
     }
@@ -0,0 +1,98 @@
+package com.example.nabd;
+
+// تحكم بطيء في الكسب للميكروفونات منخفضة الحساسية: الكسب يتجه نحو targetRms ببطء عند الصعود
+// وأسرع عند النزول، ويُثبت أثناء الصمت حتى لا يُضخم الضجيج. المحدد يخفض كسب الإطار فورًا
+// إذا كانت ذروته ستتجاوز limit. الكسب بـ Q12 ويتدرج خطيًا عبر الإطار بدل القفز بين إطارين.
+public class AutomaticGainControl implements FrameProcessor {
+    private static final int GAIN_BITS = 12;
+    public static final int UNITY_GAIN_Q12 = 1 << GAIN_BITS;
+
+    // ~-21 dBFS: مستوى كلام مريح لـ Porcupine و Eagle
+    public static final int DEFAULT_TARGET_RMS = 3000;
+    public static final int DEFAULT_MAX_GAIN_Q12 = 8 * UNITY_GAIN_Q12;
+    public static final int DEFAULT_LIMIT = 29000;
+    // تحت هذا RMS يُعد الإطار صمتًا (مثل VoiceActivityGate.DEFAULT_MIN_ENERGY)
+    public static final int DEFAULT_SILENCE_RMS = 100;
+    // كسر الفرق المطبق كل إطار (إزاحة): ~2 ثانية للصعود، ~0.25 ثانية للنزول عند 32 إطارًا/ثانية
+    private static final int RISE_SHIFT = 6;
+    private static final int FALL_SHIFT = 3;
+
+    private final int targetRms;
+    private final int maxGainQ12;
+    private final int limit;
+    private final int silenceRms;
+    private int gainQ12 = UNITY_GAIN_Q12;
+    private long limitedFrames = 0;
+
+    public AutomaticGainControl() {
+        this(DEFAULT_TARGET_RMS, DEFAULT_MAX_GAIN_Q12, DEFAULT_LIMIT, DEFAULT_SILENCE_RMS);
+    }
+
+    public AutomaticGainControl(int targetRms, int maxGainQ12, int limit, int silenceRms) {
+        this.targetRms = targetRms;
+        this.maxGainQ12 = Math.max(UNITY_GAIN_Q12, maxGainQ12);
+        this.limit = Math.min(Short.MAX_VALUE, limit);
+        this.silenceRms = silenceRms;
+    }
+
+    @Override
+    public void process(short[] frame, int length) {
+        if (length <= 0) {
+            return;
+        }
+        long energy = 0;
+        int peak = 0;
+        for (int i = 0; i < length; i++) {
+            int x = frame[i];
+            energy += x * x;
+            peak = Math.max(peak, Math.abs(x));
+        }
+        // جذر واحد لكل إطار؛ الحلقات على العينات بالأعداد الصحيحة
+        int rms = (int) Math.sqrt((double) (energy / length));
+
+        int start = gainQ12;
+        int next = start;
+        if (rms > silenceRms) {
+            int wanted = (int) Math.min(maxGainQ12, Math.max(UNITY_GAIN_Q12 / 2,
+                    ((long) targetRms << GAIN_BITS) / rms));
+            next = wanted > start
+                    ? start + ((wanted - start) >> RISE_SHIFT)
+                    : start - ((start - wanted + (1 << FALL_SHIFT) - 1) >> FALL_SHIFT);
+        }
+        if ((long) peak * next > ((long) limit << GAIN_BITS)) {
+            // المحدد: كسب ثابت للإطار كله من أول عينة، والصعود يعود ببطء من هنا
+            next = (int) (((long) limit << GAIN_BITS) / peak);
+            start = next;
+            limitedFrames++;
+        }
+        gainQ12 = next;
+
+        if (start == UNITY_GAIN_Q12 && next == UNITY_GAIN_Q12) {
+            return;
+        }
+        // الكسب بـ Q20 أثناء التدرج حتى لا تضيع خطوة أصغر من 1/length
+        long gain = (long) start << 8;
+        long step = ((long) (next - start) << 8) / length;
+        for (int i = 0; i < length; i++) {
+            gain += step;
+            frame[i] = DcBlocker.saturate((frame[i] * (gain >> 8)) >> GAIN_BITS);
+        }
+    }
+
+    @Override
+    public void reset() {
+        // الكسب يبقى: يخص الميكروفون لا المقطع
+    }
+
+    public int getGainQ12() {
+        return gainQ12;
+    }
+
+    public float getGain() {
+        return gainQ12 / (float) UNITY_GAIN_Q12;
+    }
+
+    public long getLimitedFrames() {
+        return limitedFrames;
+    }
+}
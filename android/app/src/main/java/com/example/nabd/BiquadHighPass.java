@@ -0,0 +1,70 @@
+package com.example.nabd;
+
+// مرشح تمرير عالٍ من الدرجة الثانية (RBJ، Direct Form I) لإزالة الهمهمة وضجيج الاهتزاز تحت الكلام.
+// المعاملات بـ Q28 والمخرجات السابقة بـ Q8 حتى يبقى المرشح مستقرًا عند قطع منخفض؛ المجمّع long.
+public class BiquadHighPass implements FrameProcessor {
+    public static final int DEFAULT_CUTOFF_HZ = 80;
+    private static final int COEFFICIENT_BITS = 28;
+    private static final int STATE_BITS = 8;
+    private static final double BUTTERWORTH_Q = Math.sqrt(0.5);
+
+    private final long b0;
+    private final long b1;
+    private final long b2;
+    private final long a1;
+    private final long a2;
+    private int x1 = 0;
+    private int x2 = 0;
+    private long y1 = 0;
+    private long y2 = 0;
+
+    public BiquadHighPass(int sampleRate) {
+        this(sampleRate, DEFAULT_CUTOFF_HZ);
+    }
+
+    public BiquadHighPass(int sampleRate, int cutoffHz) {
+        double w0 = 2 * Math.PI * cutoffHz / sampleRate;
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2 * BUTTERWORTH_Q);
+        double a0 = 1 + alpha;
+        b0 = toFixed((1 + cos) / 2 / a0);
+        b1 = toFixed(-(1 + cos) / a0);
+        b2 = b0;
+        a1 = toFixed(-2 * cos / a0);
+        a2 = toFixed((1 - alpha) / a0);
+    }
+
+    private static long toFixed(double coefficient) {
+        return Math.round(coefficient * (1L << COEFFICIENT_BITS));
+    }
+
+    @Override
+    public void process(short[] frame, int length) {
+        int x1 = this.x1;
+        int x2 = this.x2;
+        long y1 = this.y1;
+        long y2 = this.y2;
+        for (int i = 0; i < length; i++) {
+            int x = frame[i];
+            long acc = ((b0 * x + b1 * x1 + b2 * x2) << STATE_BITS) - a1 * y1 - a2 * y2;
+            long y = acc >> COEFFICIENT_BITS;
+            x2 = x1;
+            x1 = x;
+            y2 = y1;
+            y1 = y;
+            frame[i] = DcBlocker.saturate((y + (1 << (STATE_BITS - 1))) >> STATE_BITS);
+        }
+        this.x1 = x1;
+        this.x2 = x2;
+        this.y1 = y1;
+        this.y2 = y2;
+    }
+
+    @Override
+    public void reset() {
+        x1 = 0;
+        x2 = 0;
+        y1 = 0;
+        y2 = 0;
+    }
+}
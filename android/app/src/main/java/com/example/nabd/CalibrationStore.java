@@ -0,0 +1,41 @@
+package com.example.nabd;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// تخزين معايرة المتحدثين؛ نسخة في الذاكرة للتقييم غير المتصل وأخرى دائمة في التطبيق
+public interface CalibrationStore {
+    SpeakerCalibration load(String speaker);
+
+    void save(String speaker, SpeakerCalibration calibration);
+
+    void remove(String speaker);
+
+    void clear();
+
+    static CalibrationStore inMemory() {
+        return new CalibrationStore() {
+            private final Map<String, SpeakerCalibration> calibrations = new HashMap<>();
+
+            @Override
+            public synchronized SpeakerCalibration load(String speaker) {
+                return calibrations.get(speaker);
+            }
+
+            @Override
+            public synchronized void save(String speaker, SpeakerCalibration calibration) {
+                calibrations.put(speaker, calibration);
+            }
+
+            @Override
+            public synchronized void remove(String speaker) {
+                calibrations.remove(speaker);
+            }
+
+            @Override
+            public synchronized void clear() {
+                calibrations.clear();
+            }
+        };
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.nabd;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+
+// يقرأ كل إطار من مصدر الصوت مرة واحدة ويوزعه على جميع المستمعين (Porcupine، الـ pre-roll، ...)
+// يملك خيط الالتقاط الوحيد: stop() ينتظر خروجه، فتحرير المصدر بعدها لا يصادف read() جاريًا.
+public class CaptureEngine {
+    private static final long STOP_JOIN_MILLIS = 1000;
+    // الميكروفون قد يكون مشغولًا لحظة الاستئناف (مكالمة، تطبيق آخر يحرره للتو)
+    private static final long[] RESUME_RETRY_MILLIS = {100, 250, 500, 1000, 2000};
+
+    // من خيط الالتقاط بعد خروجه من الحلقة بسبب المصدر، وليس بعد stop()
+    public interface FailureListener {
+        void onCaptureFailed(String reason);
+    }
+
+    private final AudioSource audioSource;
+    private final ThreadFactory threadFactory;
+    // مدة الإطار بالزمن الحقيقي؛ توزيع أبطأ منها يستهلك من هامش buffer الـ AudioRecord
+    private final long frameBudgetNanos;
+    private final short[] frame;
+    private final List<FrameListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean running = false;
+    // الإيقاف المؤقت يوقف الميكروفون فقط؛ الخيط والمستمعون والـ buffers تبقى جاهزة
+    private final Object pauseLock = new Object();
+    private volatile boolean paused = false;
+    // يزيد مع كل pause() حتى يلاحظ خيط الالتقاط إيقافًا واستئنافًا سريعين بين قراءتين
+    private volatile int pauseEpoch = 0;
+    private int captureEpoch = 0;
+    private Thread captureThread;
+    private ListeningMetrics metrics;
+    private volatile FrameProcessor processor;
+    private FailureListener failureListener;
+    private long[] resumeRetryMillis = RESUME_RETRY_MILLIS;
+
+    public CaptureEngine(AudioSource audioSource, int frameLength) {
+        this(audioSource, frameLength, runnable -> new Thread(runnable, "CaptureEngine"));
+    }
+
+    public CaptureEngine(AudioSource audioSource, int frameLength, ThreadFactory threadFactory) {
+        this.audioSource = audioSource;
+        this.threadFactory = threadFactory;
+        this.frame = new short[frameLength];
+        int sampleRate = audioSource.getSampleRate();
+        this.frameBudgetNanos = sampleRate > 0 ? frameLength * 1_000_000_000L / sampleRate : Long.MAX_VALUE;
+    }
+
+    public void addListener(FrameListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(FrameListener listener) {
+        listeners.remove(listener);
+    }
+
+    // يُضبط قبل start()
+    public void setMetrics(ListeningMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // معالجة في المكان قبل المستمعين (AudioFrontEnd)؛ تغييره أثناء الالتقاط يسري من الإطار التالي
+    public void setProcessor(FrameProcessor processor) {
+        this.processor = processor;
+    }
+
+    // يُضبط قبل start()
+    public void setFailureListener(FailureListener failureListener) {
+        this.failureListener = failureListener;
+    }
+
+    // للاختبارات
+    void setResumeRetryMillis(long... resumeRetryMillis) {
+        this.resumeRetryMillis = resumeRetryMillis;
+    }
+
+    public int getFrameLength() {
+        return frame.length;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public synchronized boolean start() {
+        if (running) {
+            return true;
+        }
+        // إذا كان موقوفًا مؤقتًا يبدأ خيط الالتقاط المصدر عند resume()
+        synchronized (pauseLock) {
+            captureEpoch = pauseEpoch;
+            if (!paused && !audioSource.start()) {
+                return false;
+            }
+        }
+        running = true;
+        captureThread = threadFactory.newThread(this::runCapture);
+        captureThread.start();
+        return true;
+    }
+
+    // audioSource.stop() يفك read() الجاري، ثم ننتظر خروج الخيط قبل أن يحرر المستدعي المصدر
+    public synchronized void stop() {
+        running = false;
+        audioSource.stop();
+        synchronized (pauseLock) {
+            pauseLock.notifyAll();
+        }
+        Thread thread = captureThread;
+        captureThread = null;
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join(STOP_JOIN_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // يحرر الميكروفون لتطبيق آخر (أو لواجهة Flutter) مع إبقاء كل شيء آخر مُهيأ
+    public void pause() {
+        synchronized (pauseLock) {
+            if (paused) {
+                return;
+            }
+            paused = true;
+            pauseEpoch++;
+            // يفك انتظار read() الجاري على خيط الالتقاط
+            audioSource.stop();
+        }
+    }
+
+    // خيط الالتقاط ينتظر على pauseLock فيستأنف مباشرة بدون إنشاء خيط أو مصدر جديد
+    public void resume() {
+        synchronized (pauseLock) {
+            paused = false;
+            pauseLock.notifyAll();
+        }
+    }
+
+    // يرجع false إذا أُوقف المحرك أثناء الانتظار أو فشل تشغيل المصدر من جديد بعد كل المحاولات.
+    // الانتظار بين المحاولات على pauseLock: pause() أو stop() يقطعانه
+    private boolean awaitResume() {
+        synchronized (pauseLock) {
+            int attempt = 0;
+            while (running) {
+                if (paused) {
+                    attempt = 0;
+                    if (!waitOnPauseLock(0)) {
+                        return false;
+                    }
+                    continue;
+                }
+                captureEpoch = pauseEpoch;
+                if (audioSource.start()) {
+                    return true;
+                }
+                if (metrics != null) {
+                    metrics.resumeFailures.increment();
+                }
+                if (attempt == resumeRetryMillis.length) {
+                    return false;
+                }
+                if (!waitOnPauseLock(resumeRetryMillis[attempt++])) {
+                    return false;
+                }
+            }
+            return false;
+        }
+    }
+
+    private boolean waitOnPauseLock(long millis) {
+        try {
+            pauseLock.wait(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // يشغّل الحلقة على الخيط الحالي حتى ينتهي المصدر (للملفات والاختبارات على JVM)
+    public void runToEnd() {
+        if (!audioSource.start()) {
+            return;
+        }
+        captureEpoch = pauseEpoch;
+        running = true;
+        captureLoop();
+        running = false;
+        audioSource.stop();
+    }
+
+    private void runCapture() {
+        String failure = captureLoop();
+        FailureListener listener = failureListener;
+        if (failure != null && listener != null) {
+            listener.onCaptureFailed(failure);
+        }
+    }
+
+    // يرجع سبب التوقف إذا توقف الالتقاط بسبب المصدر، أو null بعد stop() (أو نهاية ملف في runToEnd)
+    private String captureLoop() {
+        ListeningMetrics metrics = this.metrics;
+        int filled = 0;
+        while (running) {
+            if (paused || captureEpoch != pauseEpoch) {
+                // الإطار الجزئي من قبل الإيقاف لا يتصل بما بعده
+                filled = 0;
+                if (!awaitResume()) {
+                    if (running) {
+                        running = false;
+                        return "Audio source failed to restart after " + (resumeRetryMillis.length + 1) + " attempts";
+                    }
+                    break;
+                }
+                FrameProcessor processor = this.processor;
+                if (processor != null) {
+                    processor.reset();
+                }
+                continue;
+            }
+            int requested = frame.length - filled;
+            int numRead = audioSource.read(frame, filled, requested);
+            if (captureEpoch != pauseEpoch) {
+                continue;
+            }
+            if (numRead == AudioSource.END_OF_STREAM) {
+                running = false;
+                break;
+            }
+            if (numRead < 0) {
+                if (!running) {
+                    break;
+                }
+                if (metrics != null) {
+                    metrics.readErrors.increment();
+                }
+                running = false;
+                return "Audio source read failed: " + numRead;
+            }
+            if (metrics != null && numRead < requested) {
+                metrics.shortReads.increment();
+                if (numRead == 0) {
+                    metrics.underruns.increment();
+                }
+            }
+            filled += numRead;
+            if (filled < frame.length) {
+                continue;
+            }
+            filled = 0;
+            long dispatchStart = 0;
+            if (metrics != null) {
+                metrics.framesCaptured.increment();
+                dispatchStart = System.nanoTime();
+            }
+            FrameProcessor processor = this.processor;
+            if (processor != null) {
+                processor.process(frame, frame.length);
+            }
+            for (FrameListener listener : listeners) {
+                listener.onFrame(frame, frame.length);
+            }
+            if (metrics != null && System.nanoTime() - dispatchStart > frameBudgetNanos) {
+                metrics.slowDispatches.increment();
+            }
+        }
+        running = false;
+        return null;
+    }
+}
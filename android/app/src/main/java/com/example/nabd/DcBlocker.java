@@ -0,0 +1,44 @@
+package com.example.nabd;
+
+// يزيل إزاحة DC للميكروفون: y[n] = x[n] - x[n-1] + R * y[n-1] بقطب R قريب من 1.
+// الحالة بـ Q15 حتى لا يتراكم خطأ التقريب عند القطب.
+public class DcBlocker implements FrameProcessor {
+    // R = 0.995: قطع ~13 Hz عند 16 kHz
+    public static final int DEFAULT_POLE_Q15 = 32604;
+
+    private final long poleQ15;
+    private int previousInput = 0;
+    private long outputQ15 = 0;
+
+    public DcBlocker() {
+        this(DEFAULT_POLE_Q15);
+    }
+
+    public DcBlocker(int poleQ15) {
+        this.poleQ15 = poleQ15;
+    }
+
+    @Override
+    public void process(short[] frame, int length) {
+        int previous = previousInput;
+        long y = outputQ15;
+        for (int i = 0; i < length; i++) {
+            int x = frame[i];
+            y = ((long) (x - previous) << 15) + ((poleQ15 * y) >> 15);
+            previous = x;
+            frame[i] = saturate((y + (1 << 14)) >> 15);
+        }
+        previousInput = previous;
+        outputQ15 = y;
+    }
+
+    @Override
+    public void reset() {
+        previousInput = 0;
+        outputQ15 = 0;
+    }
+
+    static short saturate(long value) {
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+    }
+}
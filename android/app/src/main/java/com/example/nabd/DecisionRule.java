@@ -0,0 +1,56 @@
+package com.example.nabd;
+
+// قاعدة قبول المتحدث في StreamingVerifier
+public class DecisionRule {
+    public enum Kind { THRESHOLD, CONSECUTIVE, SMOOTHED, TOP_K_MEAN }
+
+    private final Kind kind;
+    private final float threshold;
+    private final int requiredFrames;
+    private final float smoothing;
+
+    private DecisionRule(Kind kind, float threshold, int requiredFrames, float smoothing) {
+        this.kind = kind;
+        this.threshold = threshold;
+        this.requiredFrames = requiredFrames;
+        this.smoothing = smoothing;
+    }
+
+    // قبول عند أول إطار تتجاوز درجته الحد
+    public static DecisionRule threshold(float threshold) {
+        return new DecisionRule(Kind.THRESHOLD, threshold, 1, 1f);
+    }
+
+    // قبول بعد عدد من الإطارات المتتالية فوق الحد
+    public static DecisionRule consecutive(float threshold, int requiredFrames) {
+        return new DecisionRule(Kind.CONSECUTIVE, threshold, Math.max(1, requiredFrames), 1f);
+    }
+
+    // قبول عندما يتجاوز المتوسط الأسي (alpha بين 0 و 1) الحد
+    public static DecisionRule smoothed(float threshold, float alpha) {
+        return new DecisionRule(Kind.SMOOTHED, threshold, 1, Math.max(0.01f, Math.min(1f, alpha)));
+    }
+
+    // قبول عندما يتجاوز متوسط أعلى k درجات الحد؛ إطار شاذ واحد لا يكفي للقبول.
+    // الخانات الناقصة تُحسب صفرًا، فالمتوسط لا ينقص مع وصول إطارات جديدة
+    public static DecisionRule topKMean(float threshold, int k) {
+        return new DecisionRule(Kind.TOP_K_MEAN, threshold, Math.max(1, k), 1f);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public float getThreshold() {
+        return threshold;
+    }
+
+    // عدد الإطارات المطلوبة لـ CONSECUTIVE، أو k لـ TOP_K_MEAN
+    public int getRequiredFrames() {
+        return requiredFrames;
+    }
+
+    public float getSmoothing() {
+        return smoothing;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.nabd;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+// يحفظ صوت قرارات التحقق (قبول/رفض) في ملفات WAV دوّارة لتحليل القبول أو الرفض الخاطئ لاحقًا
+public class DiagnosticCapture {
+    private static final String TAG = "DiagnosticCapture";
+    private static final String DIRECTORY = "diagnostics";
+
+    private final File directory;
+    private final int sampleRate;
+    private final int maxFiles;
+
+    public DiagnosticCapture(File filesDir, int sampleRate, int maxFiles) {
+        this.directory = new File(filesDir, DIRECTORY);
+        this.sampleRate = sampleRate;
+        this.maxFiles = maxFiles;
+    }
+
+    public void capture(String label, short[] audio, int length) {
+        if (length <= 0 || (!directory.exists() && !directory.mkdirs())) {
+            return;
+        }
+        File file = new File(directory, label + "_" + System.currentTimeMillis() + ".wav");
+        try (WavWriter writer = new WavWriter(file, sampleRate, length)) {
+            writer.write(audio, 0, length);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write diagnostic audio: " + e.getMessage(), e);
+            return;
+        }
+        trim();
+    }
+
+    private void trim() {
+        File[] files = directory.listFiles();
+        if (files == null || files.length <= maxFiles) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (int i = 0; i < files.length - maxFiles; i++) {
+            files[i].delete();
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.nabd;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ai.picovoice.eagle.Eagle;
+import ai.picovoice.eagle.EagleException;
+import ai.picovoice.eagle.EagleProfile;
+
+// محرك Eagle واحد على مستوى العملية لكل نسخة من مجموعة البصمات، مع عدّ المراجع:
+// يُحمَّل من القرص مرة واحدة، يُستبدل بعد التسجيل أو الحذف، ويُحذف عند خروج آخر مستخدم.
+// قراءة القرص وبناء Eagle خارج القفل، ثم يُركب المحرك تحته؛ retain و release بلا قفل لأن
+// الواجهة تستدعيهما من الخيط الرئيسي
+public final class EagleEngineRegistry {
+    private static final String TAG = "EagleEngineRegistry";
+    private static EagleEngineRegistry instance;
+
+    public static final class Engine {
+        private final Eagle eagle;
+        private final String[] names;
+        private final float[] thresholds;
+        private final int version;
+        private final EagleFrameScorer scorer;
+        private final StreamingVerifier verifier;
+        // مرجع للـ registry طالما المحرك هو الحالي + مرجع لكل استخدام جارٍ
+        private int refCount = 1;
+
+        private Engine(Eagle eagle, String[] names, float[] thresholds, int version, int frameLength) {
+            this.eagle = eagle;
+            this.names = names;
+            this.thresholds = thresholds;
+            this.version = version;
+            this.scorer = new EagleFrameScorer(eagle);
+            this.verifier = new StreamingVerifier(scorer, frameLength, null);
+            this.verifier.setProfileThresholds(thresholds);
+        }
+
+        // أسماء المتحدثين بنفس ترتيب درجات Eagle
+        public String[] getNames() {
+            return names;
+        }
+
+        public float[] getThresholds() {
+            return thresholds;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        // Eagle ليس آمنًا للخيوط المتعددة: استخدم المحقق داخل synchronized (engine)
+        public StreamingVerifier getVerifier() {
+            return verifier;
+        }
+
+        // Eagle نفسه إطارًا بإطار، للتقييم المضارب؛ نفس قيد synchronized (engine)
+        public FrameScorer getScorer() {
+            return scorer;
+        }
+    }
+
+    // القرص وبناء Eagle خارج الخيط الرئيسي؛ الخيط ينتهي بعد فترة خمول
+    private final ThreadPoolExecutor background = new ThreadPoolExecutor(1, 1, 10L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "nabd-eagle-io");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private final Context context;
+    private final SpeakerProfileStore store;
+    private final FileCalibrationStore calibrations;
+    private Engine current;
+    private boolean loaded = false;
+    // بناء أول محرك جارٍ خارج القفل؛ بقية المستدعين ينتظرونه بدل بناء نسخة ثانية
+    private boolean loading = false;
+    // يزيد مع كل تغيير للمحرك الحالي؛ محرك بُني قبل التغيير قديم ويُحذف بدل تركيبه
+    private int generation = 0;
+    private final AtomicInteger users = new AtomicInteger();
+    private final AtomicInteger version = new AtomicInteger();
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+
+    private EagleEngineRegistry(Context context) {
+        this.context = context.getApplicationContext();
+        this.store = new SpeakerProfileStore(this.context);
+        this.calibrations = new FileCalibrationStore(store.getDirectory(), background);
+        background.allowCoreThreadTimeOut(true);
+    }
+
+    // عمليات البصمات (قراءة، حذف، إعادة بناء) بالترتيب على خيط واحد
+    public void execute(Runnable task) {
+        background.execute(task);
+    }
+
+    // يبني المحرك مسبقًا حتى لا يدفع أول تحقق ثمن القرص والبناء؛ لا يعيد التحميل إن كان جاهزًا.
+    // على خيط المستدعي: خيوط بدء الخدمة تبنيه بالتوازي مع Porcupine
+    public void preloadNow() {
+        // آخر مستخدم خرج قبل تنفيذ المهمة
+        if (users.get() > 0) {
+            releaseEngine(acquire());
+        }
+    }
+
+    public SpeakerProfileStore getStore() {
+        return store;
+    }
+
+    // معايرة درجات كل متحدث؛ تُمسح مع بصمته
+    public FileCalibrationStore getCalibrations() {
+        return calibrations;
+    }
+
+    public static synchronized EagleEngineRegistry getInstance(Context context) {
+        if (instance == null) {
+            instance = new EagleEngineRegistry(context);
+        }
+        return instance;
+    }
+
+    // بعد تركيب محرك لمجموعة بصمات مختلفة (تسجيل أو حذف)، على الخيط الذي أعاد التحميل
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(Runnable listener) {
+        changeListeners.remove(listener);
+    }
+
+    public void retain() {
+        users.incrementAndGet();
+    }
+
+    public void release() {
+        int count;
+        do {
+            count = users.get();
+            if (count == 0) {
+                return;
+            }
+        } while (!users.compareAndSet(count, count - 1));
+        if (count == 1) {
+            // حذف Eagle على خيط البصمات؛ retain قبل تنفيذ المهمة يلغيه
+            execute(this::dropIfUnused);
+        }
+    }
+
+    private synchronized void dropIfUnused() {
+        if (users.get() > 0) {
+            return;
+        }
+        generation++;
+        swap(null);
+        loaded = false;
+        Log.d(TAG, "Last user released, Eagle engine dropped");
+    }
+
+    // يرجع المحرك الحالي مع زيادة عدد مراجعه، أو null إذا لا توجد بصمة
+    public Engine acquire() {
+        int started;
+        synchronized (this) {
+            while (loading && !loaded) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+            if (loaded) {
+                return ref(current);
+            }
+            loading = true;
+            started = generation;
+        }
+        Engine engine = load();
+        synchronized (this) {
+            loading = false;
+            notifyAll();
+            if (started == generation) {
+                swap(engine);
+                loaded = true;
+            } else if (engine != null) {
+                // reload أو clear ركّب محركًا أحدث أثناء البناء
+                unref(engine);
+            }
+            return loaded ? ref(current) : null;
+        }
+    }
+
+    public synchronized void releaseEngine(Engine engine) {
+        if (engine != null) {
+            unref(engine);
+        }
+    }
+
+    // يُستدعى بعد تغيير البصمات المخزنة (تسجيل أو حذف): يعيد بناء المحرك ويستبدل القديم.
+    // التحقق الجاري يكمل على القديم الذي يُحذف عند إرجاعه
+    public void reload() {
+        int started;
+        synchronized (this) {
+            started = ++generation;
+        }
+        Engine engine = load();
+        synchronized (this) {
+            if (started != generation) {
+                // reload أحدث بدأ بعدنا وقرأ بصمات أحدث
+                if (engine != null) {
+                    unref(engine);
+                }
+                return;
+            }
+            swap(engine);
+            loaded = true;
+            notifyAll();
+        }
+        Log.d(TAG, "Reloaded Eagle engine" + (engine != null ? " version " + engine.version : ""));
+        notifyChanged();
+    }
+
+    public void clear() {
+        synchronized (this) {
+            generation++;
+            swap(null);
+            loaded = true;
+            notifyAll();
+        }
+        Log.d(TAG, "Eagle engine cleared");
+        notifyChanged();
+    }
+
+    private void notifyChanged() {
+        for (Runnable listener : changeListeners) {
+            listener.run();
+        }
+    }
+
+    private Engine ref(Engine engine) {
+        if (engine != null) {
+            engine.refCount++;
+        }
+        return engine;
+    }
+
+    // بدون قفل: القرص وبناء Eagle (مئات ms)؛ null إذا لا توجد بصمة أو فشل التحميل
+    private Engine load() {
+        try {
+            List<SpeakerProfileStore.Entry> entries = store.list();
+            if (entries.isEmpty()) {
+                return null;
+            }
+            String[] names = new String[entries.size()];
+            float[] thresholds = new float[entries.size()];
+            EagleProfile[] profiles = new EagleProfile[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                SpeakerProfileStore.Entry entry = entries.get(i);
+                names[i] = entry.getName();
+                thresholds[i] = entry.getThreshold();
+                profiles[i] = new EagleProfile(store.read(entry));
+            }
+            Engine engine = build(names, thresholds, profiles);
+            Log.d(TAG, "Loaded " + names.length + " speaker profile(s)");
+            return engine;
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to load speaker profiles: " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private Engine build(String[] names, float[] thresholds, EagleProfile[] profiles) throws EagleException {
+        Eagle eagle = new Eagle.Builder()
+                .setAccessKey(VoiceIdService.ACCESS_KEY)
+                .setSpeakerProfiles(profiles)
+                .build(context);
+        return new Engine(eagle, names, thresholds, version.incrementAndGet(), VoiceIdService.FRAME_LENGTH);
+    }
+
+    private void swap(Engine engine) {
+        Engine previous = current;
+        current = engine;
+        if (previous != null) {
+            unref(previous);
+        }
+    }
+
+    private void unref(Engine engine) {
+        engine.refCount--;
+        if (engine.refCount == 0) {
+            engine.eagle.delete();
+            Log.d(TAG, "Deleted Eagle engine version " + engine.version);
+        }
+    }
+}
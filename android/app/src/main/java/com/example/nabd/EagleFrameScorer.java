@@ -0,0 +1,21 @@
+package com.example.nabd;
+
+import ai.picovoice.eagle.Eagle;
+
+public class EagleFrameScorer implements FrameScorer {
+    private final Eagle eagle;
+
+    public EagleFrameScorer(Eagle eagle) {
+        this.eagle = eagle;
+    }
+
+    @Override
+    public void reset() throws Exception {
+        eagle.reset();
+    }
+
+    @Override
+    public float[] score(short[] frame) throws Exception {
+        return eagle.process(frame);
+    }
+}
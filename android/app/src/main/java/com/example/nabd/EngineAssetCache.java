@@ -0,0 +1,198 @@
+package com.example.nabd;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// نسخ ملفات Porcupine (الكلمات من assets والنموذج من موارد المكتبة) في تخزين التطبيق باسم يتضمن CRC32
+// للمحتوى. Porcupine ينسخ كل مسار غير موجود على القرص عند كل بناء؛ بمسار مطلق موجود يستخدمه مباشرة.
+// الـ assets لا تتغير إلا بتحديث التطبيق: لنفس lastUpdateTime يُرجع الملف المحفوظ بدون قراءة الأصل.
+public final class EngineAssetCache {
+    private static final String TAG = "EngineAssetCache";
+    private static final String CACHE_DIR = "engine_assets";
+    private static final String INDEX_FILE = "index";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String RAW_PREFIX = "raw/";
+    private static EngineAssetCache instance;
+
+    private final Context context;
+    private final File directory;
+    // مفتاح الأصل ← اسم الملف المحفوظ؛ null حتى أول طلب
+    private Map<String, String> entries;
+    // ملفات نسخة سابقة من التطبيق؛ تُحذف عند استبدالها بمحتوى مختلف
+    private final Map<String, String> stale = new HashMap<>();
+    private long indexAppVersion;
+    // التحديث ينهي العملية: يكفي حسابه مرة
+    private long appVersion = -1;
+
+    private EngineAssetCache(Context context) {
+        this.context = context.getApplicationContext();
+        this.directory = new File(this.context.getFilesDir(), CACHE_DIR);
+    }
+
+    public static synchronized EngineAssetCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new EngineAssetCache(context);
+        }
+        return instance;
+    }
+
+    // مسار مطلق لنسخة الأصل؛ المسار المطلق (كلمة أضافها المستخدم في تخزين التطبيق) يُرجع كما هو
+    public synchronized String resolveAsset(String path) throws IOException {
+        if (new File(path).isAbsolute()) {
+            return path;
+        }
+        String cached = lookup(path);
+        if (cached != null) {
+            return cached;
+        }
+        return store(path, read(context.getAssets().open(path)));
+    }
+
+    // مورد raw من مكتبة مدمجة في التطبيق (مثل porcupine_params) باسم الملف الذي تتوقعه؛ null إذا لا يوجد
+    public synchronized String resolveRaw(String name, String fileName) throws IOException {
+        String key = RAW_PREFIX + fileName;
+        String cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+        int id = context.getResources().getIdentifier(name, "raw", context.getPackageName());
+        if (id == 0) {
+            return null;
+        }
+        return store(key, read(context.getResources().openRawResource(id)));
+    }
+
+    private String lookup(String key) {
+        if (entries == null) {
+            readIndex();
+        }
+        if (indexAppVersion != appVersion()) {
+            // تحديث: كل أصل يُقرأ مرة ويُقارن بالـ checksum من جديد
+            stale.putAll(entries);
+            entries.clear();
+            indexAppVersion = appVersion();
+        }
+        String fileName = entries.get(key);
+        if (fileName == null) {
+            return null;
+        }
+        File file = new File(directory, fileName);
+        return file.isFile() ? file.getPath() : null;
+    }
+
+    private String store(String key, byte[] data) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        String fileName = fileNameFor(key, crc.getValue());
+        File file = new File(directory, fileName);
+        // نفس المحتوى بعد تحديث لا يُكتب من جديد
+        if (!file.isFile() || file.length() != data.length) {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Failed to create " + directory);
+            }
+            writeAtomically(file, data);
+            Log.d(TAG, "Extracted " + key + " (" + data.length + " bytes)");
+        }
+        String previous = entries.put(key, fileName);
+        if (previous == null) {
+            previous = stale.remove(key);
+        }
+        if (previous != null && !previous.equals(fileName)) {
+            new File(directory, previous).delete();
+        }
+        writeIndex();
+        return file.getPath();
+    }
+
+    private static String fileNameFor(String key, long crc) {
+        String name = key.substring(key.lastIndexOf('/') + 1);
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        return base + "-" + Long.toHexString(crc) + extension;
+    }
+
+    private long appVersion() {
+        if (appVersion < 0) {
+            try {
+                appVersion = context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+            } catch (PackageManager.NameNotFoundException e) {
+                appVersion = 0;
+            }
+        }
+        return appVersion;
+    }
+
+    // السطر الأول lastUpdateTime للتطبيق عند الكتابة، ثم مفتاح<TAB>اسم الملف
+    private void readIndex() {
+        entries = new HashMap<>();
+        indexAppVersion = -1;
+        File index = new File(directory, INDEX_FILE);
+        if (!index.isFile()) {
+            return;
+        }
+        try {
+            String[] lines = new String(read(new FileInputStream(index)), StandardCharsets.UTF_8).split("\n");
+            indexAppVersion = Long.parseLong(lines[0].trim());
+            for (int i = 1; i < lines.length; i++) {
+                String[] parts = lines[i].split("\t");
+                if (parts.length == 2) {
+                    entries.put(parts[0], parts[1]);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            Log.e(TAG, "Ignoring unreadable cache index: " + e.getMessage());
+            entries.clear();
+            indexAppVersion = -1;
+        }
+    }
+
+    private void writeIndex() {
+        StringBuilder text = new StringBuilder().append(indexAppVersion).append('\n');
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            text.append(entry.getKey()).append('\t').append(entry.getValue()).append('\n');
+        }
+        try {
+            writeAtomically(new File(directory, INDEX_FILE), text.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // الملفات نفسها صالحة؛ التشغيل التالي يقرأ الأصول ويقارن من جديد
+            Log.e(TAG, "Failed to write cache index: " + e.getMessage());
+        }
+    }
+
+    private static void writeAtomically(File target, byte[] data) throws IOException {
+        File temp = new File(target.getParentFile(), target.getName() + TEMP_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(data);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Failed to replace " + target);
+        }
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = input.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+}
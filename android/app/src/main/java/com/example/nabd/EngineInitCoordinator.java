@@ -0,0 +1,87 @@
+package com.example.nabd;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import ai.picovoice.porcupine.PorcupineException;
+
+// يبني Porcupine و Eagle معًا على خيطي بدء بدل الخيط الرئيسي في onCreate، وهذا يتكرر مع كل
+// إعادة تشغيل START_STICKY. الخدمة تُنشأ فورًا وتنتظر onWakeEngineReady لتشغيل الالتقاط؛
+// Eagle يلزم أول تحقق فقط، فلا يؤخر الاستماع (acquire ينتظر بناءه إن لم يكتمل).
+public class EngineInitCoordinator {
+    private static final String TAG = "EngineInitCoordinator";
+
+    public interface Callback {
+        // على الخيط الرئيسي؛ المستلم يملك المحرك
+        void onWakeEngineReady(PorcupineWakeWordEngine engine);
+
+        void onWakeEngineFailed(Exception e);
+    }
+
+    private final Context context;
+    private final ListeningMetrics metrics;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService startup = Executors.newFixedThreadPool(2,
+            runnable -> new Thread(runnable, "nabd-startup"));
+    // الخيط الرئيسي فقط
+    private boolean cancelled = false;
+
+    public EngineInitCoordinator(Context context, ListeningMetrics metrics) {
+        this.context = context;
+        this.metrics = metrics;
+    }
+
+    // الخيطان ينتهيان مع آخر مهمة
+    public void start(String accessKey, VoiceIdService voiceIdService, Callback callback) {
+        startup.execute(() -> buildWakeEngine(accessKey, callback));
+        startup.execute(() -> {
+            long start = System.nanoTime();
+            voiceIdService.preloadNow();
+            long millis = millisSince(start);
+            metrics.voiceIdInit.record(millis);
+            Log.d(TAG, "Eagle ready in " + millis + " ms");
+        });
+        startup.shutdown();
+    }
+
+    // من onDestroy: محرك يكتمل بعدها يُحذف بدل تسليمه
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private void buildWakeEngine(String accessKey, Callback callback) {
+        long start = System.nanoTime();
+        List<KeywordRegistry.Keyword> keywords = KeywordRegistry.load(context);
+        PorcupineWakeWordEngine engine;
+        try {
+            engine = PorcupineWakeWordEngine.create(context, accessKey, keywords);
+        } catch (PorcupineException e) {
+            mainHandler.post(() -> {
+                if (!cancelled) {
+                    callback.onWakeEngineFailed(e);
+                }
+            });
+            return;
+        }
+        long millis = millisSince(start);
+        metrics.wakeEngineInit.record(millis);
+        Log.d(TAG, "Porcupine ready in " + millis + " ms with " + keywords.size() + " keyword(s)");
+        mainHandler.post(() -> {
+            if (cancelled) {
+                engine.delete();
+                return;
+            }
+            callback.onWakeEngineReady(engine);
+        });
+    }
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000L;
+    }
+}
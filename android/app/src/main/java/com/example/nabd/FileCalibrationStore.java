@@ -0,0 +1,146 @@
+package com.example.nabd;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+// معايرة المتحدثين في ملف بجانب فهرس البصمات: سطر لكل متحدث "الاسم<TAB>المعايرة".
+// التحقق يقرأ ويعدل نسخة في الذاكرة فقط، والكتابة على القرص بالترتيب على خيط io
+// (لا تقع على مسار الاكتشاف ← الفتح). عمليتا الواجهة و:listener تكتبان في الملف، فكل كتابة تعيد
+// قراءته أولًا وتغير متحدثًا واحدًا ثم تستبدله بـ rename، والنسخة في الذاكرة تُبطلها invalidate
+// عند تغير الملف من العملية الأخرى.
+public class FileCalibrationStore implements CalibrationStore {
+    static final String FILE_NAME = "calibration";
+
+    private final File file;
+    private final Executor io;
+    private final Map<String, SpeakerCalibration> cache = new HashMap<>();
+    private boolean loaded = false;
+
+    public FileCalibrationStore(File directory, Executor io) {
+        this.file = new File(directory, FILE_NAME);
+        this.io = io;
+    }
+
+    @Override
+    public synchronized SpeakerCalibration load(String speaker) {
+        ensureLoaded();
+        return cache.get(speaker);
+    }
+
+    // التحقق يقرأ المعايرة قبل تعديلها، فالنسخة في الذاكرة محملة هنا عادة
+    @Override
+    public synchronized void save(String speaker, SpeakerCalibration calibration) {
+        ensureLoaded();
+        cache.put(speaker, calibration);
+        io.execute(() -> persist(speaker, calibration));
+    }
+
+    @Override
+    public synchronized void remove(String speaker) {
+        ensureLoaded();
+        cache.remove(speaker);
+        io.execute(() -> persist(speaker, null));
+    }
+
+    @Override
+    public synchronized void clear() {
+        cache.clear();
+        loaded = true;
+        io.execute(this::deleteFile);
+    }
+
+    // الملف تغير من العملية الأخرى؛ القراءة التالية من القرص
+    public synchronized void invalidate() {
+        loaded = false;
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            cache.clear();
+            cache.putAll(read());
+            loaded = true;
+        }
+    }
+
+    // null يحذف المتحدث
+    private void persist(String speaker, SpeakerCalibration calibration) {
+        synchronized (file) {
+            Map<String, SpeakerCalibration> calibrations = read();
+            if (calibration != null) {
+                calibrations.put(speaker, calibration);
+            } else if (calibrations.remove(speaker) == null) {
+                return;
+            }
+            write(calibrations);
+        }
+    }
+
+    private void deleteFile() {
+        synchronized (file) {
+            file.delete();
+        }
+    }
+
+    private Map<String, SpeakerCalibration> read() {
+        Map<String, SpeakerCalibration> calibrations = new HashMap<>();
+        if (!file.exists()) {
+            return calibrations;
+        }
+        byte[] data = new byte[(int) file.length()];
+        try (FileInputStream in = new FileInputStream(file)) {
+            int offset = 0;
+            while (offset < data.length) {
+                int read = in.read(data, offset, data.length - offset);
+                if (read < 0) {
+                    break;
+                }
+                offset += read;
+            }
+        } catch (IOException e) {
+            // المعايرة تُبنى من جديد مع الاستخدام
+            return calibrations;
+        }
+        for (String line : new String(data, StandardCharsets.UTF_8).split("\n")) {
+            String[] parts = line.split("\t");
+            SpeakerCalibration calibration = parts.length == 2 ? SpeakerCalibration.parse(parts[1]) : null;
+            if (calibration != null) {
+                calibrations.put(parts[0], calibration);
+            }
+        }
+        return calibrations;
+    }
+
+    private void write(Map<String, SpeakerCalibration> calibrations) {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, SpeakerCalibration> entry : calibrations.entrySet()) {
+            text.append(entry.getKey()).append('\t').append(entry.getValue().serialize()).append('\n');
+        }
+        File directory = file.getParentFile();
+        File temp = null;
+        try {
+            if (!directory.exists() && !directory.mkdirs()) {
+                return;
+            }
+            // اسم مؤقت فريد: العمليتان قد تكتبان في نفس اللحظة
+            temp = File.createTempFile(FILE_NAME, ".tmp", directory);
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                out.write(text.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            if (temp.renameTo(file)) {
+                temp = null;
+            }
+        } catch (IOException e) {
+            // فقدان تحديث واحد للمعايرة لا يستحق إيقاف التحقق
+        } finally {
+            if (temp != null) {
+                temp.delete();
+            }
+        }
+    }
+}
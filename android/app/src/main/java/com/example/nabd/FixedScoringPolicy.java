@@ -0,0 +1,38 @@
+package com.example.nabd;
+
+import java.util.Set;
+
+// السلوك السابق: حد التسجيل كما هو بدون تكيّف أو تعلّم
+public class FixedScoringPolicy implements ScoringPolicy {
+    // عرض منحنى الثقة حول الحد (درجة Eagle)
+    static final float DEFAULT_CONFIDENCE_SCALE = 0.05f;
+
+    private final DecisionRule rule;
+
+    public FixedScoringPolicy(DecisionRule rule) {
+        this.rule = rule;
+    }
+
+    @Override
+    public DecisionRule getRule() {
+        return rule;
+    }
+
+    @Override
+    public float thresholdFor(String speaker, float enrolledThreshold, float snrDb, Set<Reason> reasons) {
+        return enrolledThreshold;
+    }
+
+    @Override
+    public float confidence(String speaker, float decisionScore, float threshold) {
+        return logistic(decisionScore - threshold, DEFAULT_CONFIDENCE_SCALE);
+    }
+
+    @Override
+    public void onAccepted(String speaker, float decisionScore, float snrDb) {
+    }
+
+    static float logistic(float distance, float scale) {
+        return (float) (1.0 / (1.0 + Math.exp(-distance / scale)));
+    }
+}
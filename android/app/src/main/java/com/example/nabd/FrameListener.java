@@ -0,0 +1,6 @@
+package com.example.nabd;
+
+public interface FrameListener {
+    // الإطار يُعاد استخدامه بعد رجوع الدالة، لا تحتفظ بمرجع له
+    void onFrame(short[] frame, int length);
+}
@@ -0,0 +1,9 @@
+package com.example.nabd;
+
+// مرحلة معالجة على خيط الالتقاط قبل توزيع الإطار: تعدّل العينات في مكانها، بلا تخصيص لكل إطار
+public interface FrameProcessor {
+    void process(short[] frame, int length);
+
+    // بعد انقطاع الصوت (إيقاف مؤقت) لا تتصل الحالة السابقة بما بعده
+    void reset();
+}
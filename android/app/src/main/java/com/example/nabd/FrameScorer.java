@@ -0,0 +1,9 @@
+package com.example.nabd;
+
+// يفصل قاعدة القرار عن محرك Eagle حتى يمكن اختبارها بدالة تقييم بديلة
+public interface FrameScorer {
+    void reset() throws Exception;
+
+    // درجة لكل بصمة مسجلة لهذا الإطار
+    float[] score(short[] frame) throws Exception;
+}
@@ -0,0 +1,228 @@
+package com.example.nabd;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// كلمات التنبيه المفعلة: keywords.json في تخزين التطبيق إن وُجد، وإلا النسخة الافتراضية في assets.
+// كل كلمة لها حساسيتها، وهل تتطلب التحقق من الصوت، والإجراء عند اكتشافها.
+public final class KeywordRegistry {
+    private static final String TAG = "KeywordRegistry";
+    static final String FILE_NAME = "keywords.json";
+    private static final String DEFAULT_KEYWORD = "nabd";
+    private static final String DEFAULT_PATH = "nabd.ppn";
+    private static final float DEFAULT_SENSITIVITY = 0.7f;
+
+    public enum Action {
+        OPEN_APP("open_app"),
+        FLUTTER_COMMAND("flutter_command"),
+        INTENT("intent");
+
+        private final String id;
+
+        Action(String id) {
+            this.id = id;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        static Action fromId(String id) {
+            for (Action action : values()) {
+                if (action.id.equals(id)) {
+                    return action;
+                }
+            }
+            return OPEN_APP;
+        }
+    }
+
+    public static final class Keyword {
+        private final String name;
+        private final String path;
+        private final float sensitivity;
+        private final boolean requireVerification;
+        private final Action action;
+        // نص الأمر لـ FLUTTER_COMMAND، أو action الـ Intent لـ INTENT
+        private final String command;
+        // لـ INTENT: الحزمة المستهدفة (اختياري)، و broadcast بدل activity
+        private final String intentPackage;
+        private final boolean broadcast;
+
+        Keyword(String name, String path, float sensitivity, boolean requireVerification, Action action,
+                String command, String intentPackage, boolean broadcast) {
+            this.name = name;
+            this.path = path;
+            this.sensitivity = Math.max(0f, Math.min(1f, sensitivity));
+            this.requireVerification = requireVerification;
+            this.action = action;
+            this.command = command;
+            this.intentPackage = intentPackage;
+            this.broadcast = broadcast;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public float getSensitivity() {
+            return sensitivity;
+        }
+
+        public boolean isVerificationRequired() {
+            return requireVerification;
+        }
+
+        public Action getAction() {
+            return action;
+        }
+
+        public String getCommand() {
+            return command;
+        }
+
+        public String getIntentPackage() {
+            return intentPackage;
+        }
+
+        public boolean isBroadcast() {
+            return broadcast;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("name", name);
+            map.put("path", path);
+            map.put("sensitivity", (double) sensitivity);
+            map.put("requireVerification", requireVerification);
+            map.put("action", action.getId());
+            map.put("command", command);
+            map.put("intentPackage", intentPackage);
+            map.put("broadcast", broadcast);
+            return map;
+        }
+    }
+
+    private KeywordRegistry() {
+    }
+
+    // لا يرجع قائمة فارغة أبدًا؛ عند أي خطأ تُستخدم كلمة "نبض" الافتراضية
+    public static List<Keyword> load(Context context) {
+        File file = new File(context.getFilesDir(), FILE_NAME);
+        try {
+            String json = file.exists() ? read(new FileInputStream(file)) : read(context.getAssets().open(FILE_NAME));
+            List<Keyword> keywords = parse(json);
+            if (!keywords.isEmpty()) {
+                return keywords;
+            }
+            Log.e(TAG, "Keyword registry is empty, using default keyword");
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Failed to load keyword registry: " + e.getMessage());
+        }
+        return Collections.singletonList(new Keyword(DEFAULT_KEYWORD, DEFAULT_PATH, DEFAULT_SENSITIVITY,
+                true, Action.OPEN_APP, null, null, false));
+    }
+
+    // يكتب القائمة في تخزين التطبيق (تتقدم على assets)؛ القيم من قناة Flutter
+    public static void save(Context context, List<Map<String, Object>> entries) throws IOException, JSONException {
+        JSONArray array = new JSONArray();
+        for (Map<String, Object> entry : entries) {
+            JSONObject object = new JSONObject();
+            for (Map.Entry<String, Object> field : entry.entrySet()) {
+                object.put(field.getKey(), field.getValue());
+            }
+            array.put(object);
+        }
+        JSONObject root = new JSONObject();
+        root.put("keywords", array);
+        // تحقق قبل الكتابة حتى لا يُستبدل ملف صالح بآخر تالف
+        if (parse(root.toString(2)).isEmpty()) {
+            throw new JSONException("No valid keywords");
+        }
+
+        File file = new File(context.getFilesDir(), FILE_NAME);
+        File temp = new File(context.getFilesDir(), FILE_NAME + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(root.toString(2).getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Failed to replace " + file);
+        }
+    }
+
+    // يحذف نسخة التطبيق فتعود القائمة الافتراضية من assets
+    public static boolean reset(Context context) {
+        return new File(context.getFilesDir(), FILE_NAME).delete();
+    }
+
+    public static List<Map<String, Object>> toMaps(List<Keyword> keywords) {
+        List<Map<String, Object>> maps = new ArrayList<>();
+        for (Keyword keyword : keywords) {
+            maps.add(keyword.toMap());
+        }
+        return maps;
+    }
+
+    static List<Keyword> parse(String json) throws JSONException {
+        JSONArray array = new JSONObject(json).getJSONArray("keywords");
+        List<Keyword> keywords = new ArrayList<>();
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject entry = array.getJSONObject(i);
+            String path = entry.optString("path", "");
+            if (path.isEmpty()) {
+                Log.e(TAG, "Skipping keyword without a model path at index " + i);
+                continue;
+            }
+            String name = entry.optString("name", path.replace(".ppn", ""));
+            keywords.add(new Keyword(
+                    name,
+                    path,
+                    (float) entry.optDouble("sensitivity", DEFAULT_SENSITIVITY),
+                    entry.optBoolean("requireVerification", true),
+                    Action.fromId(entry.optString("action", Action.OPEN_APP.getId()).toLowerCase(Locale.US)),
+                    emptyToNull(entry.optString("command", "")),
+                    emptyToNull(entry.optString("intentPackage", "")),
+                    entry.optBoolean("broadcast", false)));
+        }
+        return keywords;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = input.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.nabd;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// مدرج تكراري بحدود ثابتة تُحدد مسبقًا؛ التسجيل بلا أقفال وبلا تخصيص ذاكرة.
+// القيمة تذهب لأول خانة حدها الأعلى >= القيمة، وما فوق آخر حد يذهب لخانة الفائض.
+public class LatencyHistogram {
+    private final long[] upperBounds;
+    private final AtomicLongArray counts;
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    public LatencyHistogram(long... upperBounds) {
+        for (int i = 1; i < upperBounds.length; i++) {
+            if (upperBounds[i] <= upperBounds[i - 1]) {
+                throw new IllegalArgumentException("Bucket bounds must be strictly increasing");
+            }
+        }
+        this.upperBounds = upperBounds.clone();
+        this.counts = new AtomicLongArray(upperBounds.length + 1);
+    }
+
+    // حدود خطية: step, 2*step, ..., count*step
+    public static LatencyHistogram linear(long step, int count) {
+        long[] bounds = new long[count];
+        for (int i = 0; i < count; i++) {
+            bounds[i] = step * (i + 1);
+        }
+        return new LatencyHistogram(bounds);
+    }
+
+    public void record(long value) {
+        counts.incrementAndGet(bucketFor(value));
+        total.incrementAndGet();
+        sum.addAndGet(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    private int bucketFor(long value) {
+        int low = 0;
+        int high = upperBounds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (upperBounds[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public long getCount() {
+        return total.get();
+    }
+
+    // الحد الأعلى للخانة التي تحوي النسبة المطلوبة (تقدير محافظ)
+    public long percentile(double p) {
+        long count = total.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(p * count);
+        long seen = 0;
+        for (int i = 0; i < upperBounds.length; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return upperBounds[i];
+            }
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        total.set(0);
+        sum.set(0);
+        max.set(Long.MIN_VALUE);
+    }
+
+    // يخصص ذاكرة؛ للقراءة من القناة فقط وليس من المسار الساخن
+    public Map<String, Object> snapshot() {
+        Map<String, Object> map = new HashMap<>();
+        long count = total.get();
+        List<Long> bounds = new ArrayList<>();
+        List<Long> bucketCounts = new ArrayList<>();
+        for (int i = 0; i < upperBounds.length; i++) {
+            bounds.add(upperBounds[i]);
+            bucketCounts.add(counts.get(i));
+        }
+        bucketCounts.add(counts.get(upperBounds.length));
+        map.put("count", count);
+        map.put("mean", count == 0 ? 0.0 : (double) sum.get() / count);
+        map.put("max", count == 0 ? 0L : max.get());
+        map.put("p50", percentile(0.50));
+        map.put("p90", percentile(0.90));
+        map.put("p99", percentile(0.99));
+        map.put("bounds", bounds);
+        map.put("buckets", bucketCounts);
+        return map;
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.nabd;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.RemoteException;
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import io.flutter.plugin.common.EventChannel;
+
+// طرف خدمة الاستماع في عملية :listener: ينفذ رسائل MainActivity على الخدمة (على الخيط الرئيسي)،
+// ويرسل للواجهات المسجلة الأنماط وأحداث الاكتشاف والأوامر. بدون واجهة مسجلة تبقى أحداث
+// WakeEventStream معلقة كما في العملية الواحدة.
+public class ListenerBridge implements Handler.Callback {
+    private static final String TAG = "ListenerBridge";
+
+    private final ListenerControl target;
+    private final Handler handler = new Handler(Looper.getMainLooper(), this);
+    private final Messenger messenger = new Messenger(handler);
+    // send من أي خيط (الأوامر من خيط التحقق)؛ التسجيل على الخيط الرئيسي
+    private final List<Messenger> clients = new CopyOnWriteArrayList<>();
+    private final WakeEventStream wakeEvents = WakeEventStream.getInstance();
+
+    private final EventChannel.EventSink forwardingSink = new EventChannel.EventSink() {
+        @Override
+        public void success(Object batch) {
+            Message message = Message.obtain(null, ListenerProtocol.MSG_WAKE_EVENTS);
+            Bundle data = new Bundle();
+            data.putSerializable(ListenerProtocol.KEY_EVENTS, new ArrayList<>((List<?>) batch));
+            message.setData(data);
+            sendToAll(message);
+        }
+
+        @Override
+        public void error(String code, String message, Object details) {
+        }
+
+        @Override
+        public void endOfStream() {
+        }
+    };
+
+    public ListenerBridge(ListenerControl target) {
+        this.target = target;
+        // الدفعات تُجمع في عملية الواجهة حسب حالتها؛ هنا تُمرر فورًا
+        wakeEvents.setForeground(true);
+    }
+
+    public IBinder getBinder() {
+        return messenger.getBinder();
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        switch (msg.what) {
+            case ListenerProtocol.MSG_REGISTER_CLIENT:
+                if (msg.replyTo != null && !clients.contains(msg.replyTo)) {
+                    clients.add(msg.replyTo);
+                    send(msg.replyTo, stateMessage());
+                    wakeEvents.setSink(forwardingSink);
+                }
+                return true;
+            case ListenerProtocol.MSG_UNREGISTER_CLIENT:
+                removeClient(msg.replyTo);
+                return true;
+            case ListenerProtocol.MSG_PAUSE:
+                target.pauseListening();
+                return true;
+            case ListenerProtocol.MSG_SET_PROFILE:
+                String name = msg.getData().getString(ListenerProtocol.KEY_PROFILE);
+                ListeningScheduler.Profile profile = ListeningScheduler.Profile.fromName(name, null);
+                if (profile != null) {
+                    target.setListeningProfile(profile);
+                }
+                return true;
+            case ListenerProtocol.MSG_SET_SPECULATIVE:
+                target.setSpeculativeVerification(msg.arg2 != 0);
+                return true;
+            case ListenerProtocol.MSG_RELOAD_KEYWORDS:
+                target.reloadKeywords();
+                return true;
+            case ListenerProtocol.MSG_GET_METRICS: {
+                // msg يُعاد تدويره بعد الرجوع؛ الرد قد يأتي لاحقًا
+                Messenger replyTo = msg.replyTo;
+                int request = msg.arg1;
+                target.requestMetrics(metrics -> {
+                    Message reply = Message.obtain(null, ListenerProtocol.MSG_METRICS, request, 0);
+                    Bundle data = new Bundle();
+                    data.putSerializable(ListenerProtocol.KEY_METRICS, new HashMap<>(metrics));
+                    reply.setData(data);
+                    send(replyTo, reply);
+                });
+                return true;
+            }
+            case ListenerProtocol.MSG_RESET_METRICS:
+                target.resetMetrics();
+                return true;
+            case ListenerProtocol.MSG_TAKE_WAKE_AUDIO: {
+                Messenger replyTo = msg.replyTo;
+                int request = msg.arg1;
+                boolean taken = target.takeWakeAudio(clip -> {
+                    Message reply = Message.obtain(null, ListenerProtocol.MSG_WAKE_AUDIO, request, 0);
+                    Bundle data = new Bundle();
+                    data.putByteArray(ListenerProtocol.KEY_CLIP, toBytes(clip));
+                    reply.setData(data);
+                    send(replyTo, reply);
+                });
+                if (!taken) {
+                    send(replyTo, Message.obtain(null, ListenerProtocol.MSG_WAKE_AUDIO, request, 0));
+                }
+                return true;
+            }
+            default:
+                return false;
+        }
+    }
+
+    // بعد تغير نمط الجدولة أو التحقق
+    public void publishState() {
+        if (!clients.isEmpty()) {
+            sendToAll(stateMessage());
+        }
+    }
+
+    // false إذا لا توجد واجهة مسجلة؛ تفتح الخدمة التطبيق مع الأمر بدلًا منها
+    public boolean deliverWakeCommand(String keyword, String command) {
+        if (clients.isEmpty()) {
+            return false;
+        }
+        Message message = Message.obtain(null, ListenerProtocol.MSG_WAKE_COMMAND);
+        Bundle data = new Bundle();
+        data.putString(ListenerProtocol.KEY_KEYWORD, keyword);
+        data.putString(ListenerProtocol.KEY_COMMAND, command);
+        message.setData(data);
+        return sendToAll(message);
+    }
+
+    public void close() {
+        clients.clear();
+        wakeEvents.setSink(null);
+    }
+
+    private Message stateMessage() {
+        Message message = Message.obtain(null, ListenerProtocol.MSG_STATE);
+        Bundle data = new Bundle();
+        ListeningScheduler.Mode mode = target.getListeningMode();
+        data.putString(ListenerProtocol.KEY_LISTENING_MODE, mode != null ? mode.name() : null);
+        data.putString(ListenerProtocol.KEY_VERIFICATION_MODE, target.getVerificationMode().name());
+        message.setData(data);
+        return message;
+    }
+
+    private boolean sendToAll(Message message) {
+        boolean delivered = false;
+        for (Messenger client : clients) {
+            // Message واحد لا يُرسل مرتين
+            Message copy = Message.obtain(null, message.what, message.arg1, message.arg2);
+            copy.setData(message.getData());
+            delivered |= send(client, copy);
+        }
+        return delivered;
+    }
+
+    private boolean send(Messenger client, Message message) {
+        if (client == null) {
+            return false;
+        }
+        try {
+            client.send(message);
+            return true;
+        } catch (RemoteException e) {
+            // عملية الواجهة انتهت بدون unregister
+            Log.d(TAG, "Client gone: " + e.getMessage());
+            handler.post(() -> removeClient(client));
+            return false;
+        }
+    }
+
+    private void removeClient(Messenger client) {
+        clients.remove(client);
+        if (clients.isEmpty()) {
+            wakeEvents.setSink(null);
+        }
+    }
+
+    // الـ clip المباشر لا يعبر Binder؛ البيانات من 0 حتى position
+    private static byte[] toBytes(ByteBuffer clip) {
+        ByteBuffer view = clip.duplicate();
+        view.flip();
+        byte[] bytes = new byte[view.remaining()];
+        view.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.nabd;
+
+import java.util.Map;
+
+// ما تحتاجه MainActivity من خدمة الاستماع، سواء كانت في نفس العملية (LocalBinder) أو في
+// عملية :listener عبر Messenger (RemoteListenerClient). كل الدوال من الخيط الرئيسي.
+public interface ListenerControl {
+    interface MetricsCallback {
+        void onMetrics(Map<String, Object> metrics);
+    }
+
+    void pauseListening();
+
+    void setListeningProfile(ListeningScheduler.Profile profile);
+
+    ListeningScheduler.Mode getListeningMode();
+
+    void setSpeculativeVerification(boolean enabled);
+
+    VoiceIdService.Mode getVerificationMode();
+
+    void reloadKeywords();
+
+    // true إذا سيُستدعى consumer (قد يكون لاحقًا، وبـ null إن لم توجد لقطة حديثة في العملية الأخرى)
+    boolean takeWakeAudio(WakeAudioHandoff.ClipConsumer consumer);
+
+    // مقاييس عملية الخدمة مع ذاكرتها
+    void requestMetrics(MetricsCallback callback);
+
+    void resetMetrics();
+}
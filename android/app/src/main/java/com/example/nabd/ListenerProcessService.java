@@ -0,0 +1,11 @@
+package com.example.nabd;
+
+// نفس خدمة الاستماع في عملية :listener (android:process في AndroidManifest). العملية لا تحمل
+// Flutter ولا إضافاته، فيبقى في الخلفية الميكروفون والمحركات فقط، ويعيد النظام تشغيلها أسرع إذا قتلها.
+// MainActivity تتصل بها عبر RemoteListenerClient ← ListenerBridge.
+public class ListenerProcessService extends PorcupainService {
+    @Override
+    protected boolean isSeparateProcess() {
+        return true;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.nabd;
+
+// رسائل Messenger بين MainActivity وخدمة الاستماع في عملية :listener.
+// الطلبات التي تنتظر ردًا تحمل رقمًا في arg1 يُعاد كما هو مع الرد.
+final class ListenerProtocol {
+    // واجهة ← خدمة
+    static final int MSG_REGISTER_CLIENT = 1;
+    static final int MSG_UNREGISTER_CLIENT = 2;
+    static final int MSG_PAUSE = 3;
+    static final int MSG_SET_PROFILE = 4;
+    // arg2: 1 تفعيل، 0 تعطيل
+    static final int MSG_SET_SPECULATIVE = 5;
+    static final int MSG_RELOAD_KEYWORDS = 6;
+    static final int MSG_GET_METRICS = 7;
+    static final int MSG_RESET_METRICS = 8;
+    static final int MSG_TAKE_WAKE_AUDIO = 9;
+
+    // خدمة ← واجهة
+    // أنماط الخدمة بعد التسجيل وعند كل تغيير، حتى تبقى القراءة في الواجهة متزامنة
+    static final int MSG_STATE = 100;
+    static final int MSG_METRICS = 101;
+    static final int MSG_WAKE_AUDIO = 102;
+    static final int MSG_WAKE_EVENTS = 103;
+    static final int MSG_WAKE_COMMAND = 104;
+
+    static final String KEY_PROFILE = "profile";
+    static final String KEY_LISTENING_MODE = "listeningMode";
+    static final String KEY_VERIFICATION_MODE = "verificationMode";
+    static final String KEY_METRICS = "metrics";
+    static final String KEY_CLIP = "clip";
+    static final String KEY_EVENTS = "events";
+    static final String KEY_KEYWORD = "keyword";
+    static final String KEY_COMMAND = "command";
+
+    private ListenerProtocol() {
+    }
+}
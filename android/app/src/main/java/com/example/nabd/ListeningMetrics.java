@@ -0,0 +1,183 @@
+package com.example.nabd;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// مقاييس خدمة الاستماع على مستوى العملية. التسجيل بلا أقفال وبلا تخصيص حتى تبقى مفعلة دائمًا؛
+// snapshot() فقط يبني Map لقناة nabd/foreground.
+public class ListeningMetrics {
+    private static final ListeningMetrics INSTANCE = new ListeningMetrics();
+
+    // الدرجات تُسجل بالألف (0..1000) في خانات 0.05
+    private static final int SCORE_SCALE = 1000;
+
+    public final StripedCounter framesCaptured = new StripedCounter();
+    public final StripedCounter shortReads = new StripedCounter();
+    public final StripedCounter readErrors = new StripedCounter();
+    // محاولات فاشلة لتشغيل الميكروفون عند الاستئناف بعد إيقاف مؤقت
+    public final StripedCounter resumeFailures = new StripedCounter();
+    // قراءة رجعت بلا عينات
+    public final StripedCounter underruns = new StripedCounter();
+    // إطارات استغرقت معالجتها وتوزيعها على المستمعين أكثر من مدتها. ليست فقدان صوت بحد ذاتها:
+    // الـ buffer يمتص بعض التأخير، لكن تكرارها المتتالي يملؤه فيسقط AudioRecord عينات
+    public final StripedCounter slowDispatches = new StripedCounter();
+    public final StripedCounter framesSkipped = new StripedCounter();
+    public final StripedCounter wakeDetections = new StripedCounter();
+    public final StripedCounter verifyAccepts = new StripedCounter();
+    public final StripedCounter verifyRejects = new StripedCounter();
+    public final StripedCounter verifyErrors = new StripedCounter();
+    public final StripedCounter verifyCoalesced = new StripedCounter();
+    public final StripedCounter appLaunches = new StripedCounter();
+    public final StripedCounter schedulerTransitions = new StripedCounter();
+    // التقييم المضارب: الإطارات المقيّمة أثناء الكلام ووقتها (الكلفة)، والقرارات التي لم تحتج Eagle عند الطلب
+    public final StripedCounter speculativeFrames = new StripedCounter();
+    public final StripedCounter speculativeNanos = new StripedCounter();
+    public final StripedCounter speculativeHits = new StripedCounter();
+    public final StripedCounter speculativeMisses = new StripedCounter();
+
+    public final LatencyHistogram scores = LatencyHistogram.linear(SCORE_SCALE / 20, 20);
+    // بالميلي ثانية
+    public final LatencyHistogram verifyLatency =
+            new LatencyHistogram(5, 10, 20, 30, 50, 75, 100, 150, 200, 300, 500, 750, 1000, 2000);
+    // verifyLatency مقسومة حسب المسار: الفرق بينهما هو الزمن الموفر
+    public final LatencyHistogram speculativeLatency =
+            new LatencyHistogram(5, 10, 20, 30, 50, 75, 100, 150, 200, 300, 500, 750, 1000, 2000);
+    public final LatencyHistogram onDemandLatency =
+            new LatencyHistogram(5, 10, 20, 30, 50, 75, 100, 150, 200, 300, 500, 750, 1000, 2000);
+    public final LatencyHistogram launchLatency =
+            new LatencyHistogram(25, 50, 75, 100, 150, 200, 300, 500, 750, 1000, 1500, 2000, 3000, 5000);
+    // من الاكتشاف حتى أول إطار Flutter، مع محرك مُسخّن وبدونه
+    public final LatencyHistogram firstFrameWarm =
+            new LatencyHistogram(50, 100, 150, 200, 300, 500, 750, 1000, 1500, 2000, 3000, 5000, 8000);
+    public final LatencyHistogram firstFrameCold =
+            new LatencyHistogram(50, 100, 150, 200, 300, 500, 750, 1000, 1500, 2000, 3000, 5000, 8000);
+    // بدء الخدمة: من onCreate حتى تشغيل الميكروفون، ومدة بناء كل محرك على خيوط البدء
+    public final LatencyHistogram startToListening =
+            new LatencyHistogram(25, 50, 75, 100, 150, 200, 300, 500, 750, 1000, 1500, 2000, 3000, 5000);
+    public final LatencyHistogram wakeEngineInit =
+            new LatencyHistogram(25, 50, 75, 100, 150, 200, 300, 500, 750, 1000, 1500, 2000, 3000, 5000);
+    public final LatencyHistogram voiceIdInit =
+            new LatencyHistogram(25, 50, 75, 100, 150, 200, 300, 500, 750, 1000, 1500, 2000, 3000, 5000);
+
+    private volatile long startedAtMillis = System.currentTimeMillis();
+    private volatile String listeningMode = ListeningScheduler.Mode.CONTINUOUS.name();
+    private volatile long listeningModeSinceMillis = System.currentTimeMillis();
+    // من بدء عملية الخدمة حتى أول تشغيل للميكروفون؛ يقيس زمن إعادة التشغيل بعد أن يقتلها النظام
+    private volatile long processStartToListeningMillis = -1;
+
+    public static ListeningMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    public void recordScore(float score) {
+        scores.record(Math.round(Math.max(0f, Math.min(1f, score)) * SCORE_SCALE));
+    }
+
+    public void recordVerification(VerificationResult result) {
+        if (result.isError()) {
+            verifyErrors.increment();
+            return;
+        }
+        if (result.isMatched()) {
+            verifyAccepts.increment();
+        } else {
+            verifyRejects.increment();
+        }
+        recordScore(result.getScore());
+        long latencyMillis = result.getLatencyNanos() / 1_000_000L;
+        verifyLatency.record(latencyMillis);
+        (result.isSpeculative() ? speculativeLatency : onDemandLatency).record(latencyMillis);
+    }
+
+    public void recordAppLaunch(long detectionNanos) {
+        appLaunches.increment();
+        launchLatency.record((System.nanoTime() - detectionNanos) / 1_000_000L);
+    }
+
+    public void recordFirstFrame(long detectionNanos, boolean warmEngine) {
+        long millis = (System.nanoTime() - detectionNanos) / 1_000_000L;
+        (warmEngine ? firstFrameWarm : firstFrameCold).record(millis);
+    }
+
+    public void recordListeningMode(ListeningScheduler.Mode mode) {
+        schedulerTransitions.increment();
+        listeningMode = mode.name();
+        listeningModeSinceMillis = System.currentTimeMillis();
+    }
+
+    // مرة واحدة لكل عملية؛ -1 إذا لا يُعرف وقت بدء العملية (قبل API 24)
+    public void recordListeningStarted(long processStartMillis) {
+        if (processStartToListeningMillis < 0) {
+            processStartToListeningMillis = processStartMillis;
+        }
+    }
+
+    public void reset() {
+        framesCaptured.reset();
+        shortReads.reset();
+        readErrors.reset();
+        resumeFailures.reset();
+        underruns.reset();
+        slowDispatches.reset();
+        framesSkipped.reset();
+        wakeDetections.reset();
+        verifyAccepts.reset();
+        verifyRejects.reset();
+        verifyErrors.reset();
+        verifyCoalesced.reset();
+        appLaunches.reset();
+        schedulerTransitions.reset();
+        speculativeFrames.reset();
+        speculativeNanos.reset();
+        speculativeHits.reset();
+        speculativeMisses.reset();
+        scores.reset();
+        verifyLatency.reset();
+        speculativeLatency.reset();
+        onDemandLatency.reset();
+        launchLatency.reset();
+        firstFrameWarm.reset();
+        firstFrameCold.reset();
+        startToListening.reset();
+        wakeEngineInit.reset();
+        voiceIdInit.reset();
+        startedAtMillis = System.currentTimeMillis();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("sinceMillis", startedAtMillis);
+        map.put("framesCaptured", framesCaptured.sum());
+        map.put("shortReads", shortReads.sum());
+        map.put("readErrors", readErrors.sum());
+        map.put("resumeFailures", resumeFailures.sum());
+        map.put("underruns", underruns.sum());
+        map.put("slowDispatches", slowDispatches.sum());
+        map.put("framesSkipped", framesSkipped.sum());
+        map.put("wakeDetections", wakeDetections.sum());
+        map.put("verifyAccepts", verifyAccepts.sum());
+        map.put("verifyRejects", verifyRejects.sum());
+        map.put("verifyErrors", verifyErrors.sum());
+        map.put("verifyCoalesced", verifyCoalesced.sum());
+        map.put("appLaunches", appLaunches.sum());
+        map.put("schedulerTransitions", schedulerTransitions.sum());
+        map.put("speculativeFrames", speculativeFrames.sum());
+        map.put("speculativeCpuMillis", speculativeNanos.sum() / 1_000_000L);
+        map.put("speculativeHits", speculativeHits.sum());
+        map.put("speculativeMisses", speculativeMisses.sum());
+        map.put("listeningMode", listeningMode);
+        map.put("listeningModeSinceMillis", listeningModeSinceMillis);
+        map.put("processStartToListeningMillis", processStartToListeningMillis);
+        map.put("scorePermille", scores.snapshot());
+        map.put("verifyLatencyMillis", verifyLatency.snapshot());
+        map.put("speculativeLatencyMillis", speculativeLatency.snapshot());
+        map.put("onDemandLatencyMillis", onDemandLatency.snapshot());
+        map.put("launchLatencyMillis", launchLatency.snapshot());
+        map.put("firstFrameWarmMillis", firstFrameWarm.snapshot());
+        map.put("firstFrameColdMillis", firstFrameCold.snapshot());
+        map.put("startToListeningMillis", startToListening.snapshot());
+        map.put("wakeEngineInitMillis", wakeEngineInit.snapshot());
+        map.put("voiceIdInitMillis", voiceIdInit.snapshot());
+        return map;
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.nabd;
+
+import java.util.Locale;
+
+// يقرر نمط الاستماع من حالة الجهاز: الشاشة، البطارية، الشحن، والحرارة، حسب ملف المستخدم.
+// بدون Android: PowerStateMonitor يغذيه بالأحداث، والخدمة تطبق الخطة (دورات الميكروفون وحساسية VAD).
+// ليس آمنًا للخيوط؛ يُستدعى من الخيط الرئيسي للخدمة.
+public class ListeningScheduler {
+    // نفس قيم PowerManager.THERMAL_STATUS_*
+    public static final int THERMAL_NONE = 0;
+    public static final int THERMAL_MODERATE = 2;
+    public static final int THERMAL_SEVERE = 3;
+
+    public static final int LOW_BATTERY_PERCENT = 15;
+    public static final int CRITICAL_BATTERY_PERCENT = 5;
+
+    public enum Profile {
+        // استماع كامل دائمًا؛ الحرارة الشديدة فقط توقفه
+        CONTINUOUS,
+        // كامل والشاشة تعمل، دورات عند إطفائها، ومخفض مع البطارية المنخفضة أو الحرارة
+        BALANCED,
+        // دورات دائمًا، وأطول مع إطفاء الشاشة
+        SAVER;
+
+        public static Profile fromName(String name, Profile fallback) {
+            if (name == null) {
+                return fallback;
+            }
+            try {
+                return valueOf(name.toUpperCase(Locale.US));
+            } catch (IllegalArgumentException e) {
+                return fallback;
+            }
+        }
+    }
+
+    // listenMillis/sleepMillis: نافذة استماع ثم إيقاف للميكروفون؛ sleepMillis = 0 استماع متواصل
+    public enum Mode {
+        CONTINUOUS(0, 0, VoiceActivityGate.DEFAULT_RATIO_Q8),
+        DUTY_CYCLE(4000, 1000, 4 << 8),
+        REDUCED(2000, 2000, 5 << 8),
+        SUSPENDED(0, 0, VoiceActivityGate.DEFAULT_RATIO_Q8);
+
+        private final int listenMillis;
+        private final int sleepMillis;
+        private final int vadRatioQ8;
+
+        Mode(int listenMillis, int sleepMillis, int vadRatioQ8) {
+            this.listenMillis = listenMillis;
+            this.sleepMillis = sleepMillis;
+            this.vadRatioQ8 = vadRatioQ8;
+        }
+
+        public int getListenMillis() {
+            return listenMillis;
+        }
+
+        public int getSleepMillis() {
+            return sleepMillis;
+        }
+
+        public boolean isDutyCycled() {
+            return sleepMillis > 0;
+        }
+
+        public int getVadRatioQ8() {
+            return vadRatioQ8;
+        }
+    }
+
+    public interface Listener {
+        void onModeChanged(Mode previous, Mode current);
+    }
+
+    private final Listener listener;
+    private Profile profile;
+    private boolean screenOn = true;
+    private int batteryPercent = 100;
+    private boolean charging = false;
+    private int thermalStatus = THERMAL_NONE;
+    private Mode mode;
+    private long transitions = 0;
+
+    public ListeningScheduler(Profile profile, Listener listener) {
+        this.profile = profile;
+        this.listener = listener;
+        this.mode = decide();
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public Profile getProfile() {
+        return profile;
+    }
+
+    public long getTransitions() {
+        return transitions;
+    }
+
+    public void setProfile(Profile profile) {
+        this.profile = profile;
+        update();
+    }
+
+    public void onScreen(boolean on) {
+        screenOn = on;
+        update();
+    }
+
+    public void onBattery(int percent, boolean charging) {
+        this.batteryPercent = percent;
+        this.charging = charging;
+        update();
+    }
+
+    public void onThermal(int status) {
+        thermalStatus = status;
+        update();
+    }
+
+    Mode decide() {
+        if (thermalStatus >= THERMAL_SEVERE) {
+            return Mode.SUSPENDED;
+        }
+        if (profile == Profile.CONTINUOUS || (charging && thermalStatus < THERMAL_MODERATE)) {
+            return Mode.CONTINUOUS;
+        }
+        if (!charging && batteryPercent <= CRITICAL_BATTERY_PERCENT) {
+            return Mode.SUSPENDED;
+        }
+        boolean lowBattery = !charging && batteryPercent <= LOW_BATTERY_PERCENT;
+        if (lowBattery || thermalStatus >= THERMAL_MODERATE) {
+            return Mode.REDUCED;
+        }
+        if (profile == Profile.SAVER) {
+            return screenOn ? Mode.DUTY_CYCLE : Mode.REDUCED;
+        }
+        return screenOn ? Mode.CONTINUOUS : Mode.DUTY_CYCLE;
+    }
+
+    private void update() {
+        Mode next = decide();
+        if (next == mode) {
+            return;
+        }
+        Mode previous = mode;
+        mode = next;
+        transitions++;
+        if (listener != null) {
+            listener.onModeChanged(previous, next);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return mode + " (" + profile + ", screen " + (screenOn ? "on" : "off") + ", battery " + batteryPercent
+                + "%" + (charging ? " charging" : "") + ", thermal " + thermalStatus + ")";
+    }
+}
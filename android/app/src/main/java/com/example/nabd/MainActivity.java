@@ -1,11 +1,16 @@
 package com.example.nabd;
 
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
+import android.content.ServiceConnection;
 import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
 import android.os.PowerManager;
 import android.provider.Settings;
-import android.text.TextUtils;
 import android.os.Build;
 import android.view.WindowManager;
 
@@ -14,21 +19,216 @@ import android.util.Log;
 
 import io.flutter.embedding.android.FlutterFragmentActivity;
 import io.flutter.embedding.engine.FlutterEngine;
+import io.flutter.embedding.engine.renderer.FlutterUiDisplayListener;
+import io.flutter.plugin.common.BasicMessageChannel;
+import io.flutter.plugin.common.BinaryCodec;
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.EventChannel;
 import io.flutter.plugin.common.MethodChannel;
+import io.flutter.plugin.common.StandardMethodCodec;
 import io.flutter.plugins.GeneratedPluginRegistrant;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
 public class MainActivity extends FlutterFragmentActivity {
     private static final String CHANNEL = "nabd/foreground";
     private static final String VOICE_ID_CHANNEL = "nabd/voiceid";
-    private VoiceIdService voiceIdService;
+    private static final String ENROLL_PROGRESS_CHANNEL = "nabd/voiceid_progress";
+    private static final String COMMANDS_CHANNEL = "nabd/commands";
+    private static final String WAKE_AUDIO_CHANNEL = "nabd/wake_audio";
+    private static final String STATE_CHANNEL = "nabd/state";
+    // وقت اكتشاف كلمة التنبيه (System.nanoTime) عند فتح التطبيق من خدمة الاستماع
+    static final String EXTRA_WAKE_NANOS = "nabd.wake_nanos";
+    // أمر Flutter من كلمة تنبيه والتطبيق مغلق؛ تستهلكه الواجهة عبر consumeWakeCommand
+    static final String EXTRA_WAKE_KEYWORD = "nabd.wake_keyword";
+    static final String EXTRA_WAKE_COMMAND = "nabd.wake_command";
+    // قناة الأوامر للواجهة الحالية فقط؛ null إذا لا توجد واجهة Flutter مرتبطة
+    private static volatile MethodChannel commandChannel;
+    // قناة nabd/voiceid تعمل على خيط خلفي، والتنظيف على الخيط الرئيسي
+    private volatile VoiceIdService voiceIdService;
+    // الخدمة نفسها في نفس العملية، أو RemoteListenerClient إذا كانت في عملية :listener
+    private volatile ListenerControl listenerService;
+    private RemoteListenerClient remoteListener;
+    private Class<? extends PorcupainService> serviceClass;
+    private AppStateCache appState;
+    // واجهة Flutter تملك الميكروفون؛ يُطبق على الخدمة عند اتصالها إن لم تكن متصلة بعد
+    private boolean listeningPauseRequested = false;
+    private boolean usingWarmEngine = false;
+    // فتح من كلمة التنبيه لم تستهلكه واجهة Flutter بعد
+    private boolean wakeLaunchPending = false;
+    // اكتشاف ينتظر أول إطار لقياس زمن الفتح
+    private long firstFrameWakeNanos = 0;
+    private Map<String, Object> pendingWakeCommand;
+
+    private final FlutterUiDisplayListener firstFrameListener = new FlutterUiDisplayListener() {
+        @Override
+        public void onFlutterUiDisplayed() {
+            if (firstFrameWakeNanos != 0) {
+                ListeningMetrics.getInstance().recordFirstFrame(firstFrameWakeNanos, usingWarmEngine);
+                Log.d("MainActivity", "Wake to first frame: "
+                        + (System.nanoTime() - firstFrameWakeNanos) / 1_000_000 + " ms, warm engine: " + usingWarmEngine);
+                firstFrameWakeNanos = 0;
+            }
+        }
+
+        @Override
+        public void onFlutterUiNoLongerDisplayed() {
+        }
+    };
+
+    // بدون BIND_AUTO_CREATE: الربط لا ينشئ الخدمة، يتصل بها فقط عندما تعمل
+    private final ServiceConnection listenerConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            if (binder instanceof PorcupainService.LocalBinder) {
+                listenerService = ((PorcupainService.LocalBinder) binder).getService();
+            } else {
+                remoteListener = new RemoteListenerClient(MainActivity.this, binder);
+                listenerService = remoteListener;
+            }
+            if (listeningPauseRequested) {
+                listenerService.pauseListening();
+            }
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            onListenerDisconnected();
+        }
+    };
+
+    private void onListenerDisconnected() {
+        listenerService = null;
+        if (remoteListener != null) {
+            remoteListener.close();
+            remoteListener = null;
+        }
+    }
+
+    // يوقف الخدمة في عمليتها الحالية ويشغلها في الأخرى إن كانت تعمل
+    private void switchServiceClass(Class<? extends PorcupainService> next) {
+        if (next == serviceClass) {
+            return;
+        }
+        boolean running = listenerService != null;
+        unbindService(listenerConnection);
+        onListenerDisconnected();
+        stopService(new Intent(this, serviceClass));
+        serviceClass = next;
+        bindService(new Intent(this, serviceClass), listenerConnection, 0);
+        if (running) {
+            startService(new Intent(this, serviceClass));
+        }
+    }
 
     @Override
-    public void configureFlutterEngine(@NonNull FlutterEngine flutterEngine) {
-        GeneratedPluginRegistrant.registerWith(flutterEngine);
+    protected void onCreate(Bundle savedInstanceState) {
+        onWakeIntent(getIntent());
+        appState = AppStateCache.getInstance(this);
+        super.onCreate(savedInstanceState);
+        serviceClass = PorcupainService.serviceClass(this);
+        bindService(new Intent(this, serviceClass), listenerConnection, 0);
+    }
 
-        // أوقف الخدمة عند تشغيل التطبيق
-        Intent stopIntent = new Intent(this, PorcupainService.class);
-        stopService(stopIntent);
+    @Override
+    protected void onDestroy() {
+        unbindService(listenerConnection);
+        onListenerDisconnected();
+        super.onDestroy();
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // الواجهة تملك الميكروفون ما دامت ظاهرة، بدون انتظار حدث دورة الحياة من Dart
+        listeningPauseRequested = true;
+        if (listenerService != null) {
+            listenerService.pauseListening();
+        }
+        WakeEventStream.getInstance().setForeground(true);
+        // الرجوع من الإعدادات أو حوار الإذن قد غيّر ما لا يُرسل عنه إشعار
+        appState.invalidateOnResume();
+    }
+
+    @Override
+    protected void onPause() {
+        // الاستئناف يبقى من Dart (resumeListening) لأنه قد يشغل الخدمة
+        listeningPauseRequested = false;
+        WakeEventStream.getInstance().setForeground(false);
+        super.onPause();
+    }
+
+    @Override
+    public void onNewIntent(@NonNull Intent intent) {
+        super.onNewIntent(intent);
+        onWakeIntent(intent);
+    }
+
+    private void onWakeIntent(Intent intent) {
+        long wakeNanos = wakeNanosOf(intent);
+        if (wakeNanos != 0) {
+            wakeLaunchPending = true;
+            firstFrameWakeNanos = wakeNanos;
+        }
+        String command = intent != null ? intent.getStringExtra(EXTRA_WAKE_COMMAND) : null;
+        if (command != null) {
+            pendingWakeCommand = commandPayload(intent.getStringExtra(EXTRA_WAKE_KEYWORD), command);
+        }
+    }
+
+    // من أي خيط؛ false إذا لا توجد واجهة تستقبل الأمر الآن
+    static boolean deliverWakeCommand(String keyword, String command) {
+        MethodChannel channel = commandChannel;
+        if (channel == null) {
+            return false;
+        }
+        new Handler(Looper.getMainLooper()).post(() ->
+                channel.invokeMethod("onWakeCommand", commandPayload(keyword, command)));
+        return true;
+    }
+
+    private static Map<String, Object> commandPayload(String keyword, String command) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("keyword", keyword);
+        payload.put("command", command);
+        return payload;
+    }
+
+    private static long wakeNanosOf(Intent intent) {
+        return intent != null ? intent.getLongExtra(EXTRA_WAKE_NANOS, 0) : 0;
+    }
+
+    // المحرك المُسخّن فقط عند الفتح من كلمة التنبيه؛ الفتح العادي يمر بشاشة الدخول كالمعتاد
+    @Override
+    public FlutterEngine provideFlutterEngine(@NonNull Context context) {
+        if (wakeNanosOf(getIntent()) != 0) {
+            FlutterEngine warmEngine = WarmFlutterEngine.get();
+            if (warmEngine != null) {
+                usingWarmEngine = true;
+                return warmEngine;
+            }
+        }
+        return super.provideFlutterEngine(context);
+    }
+
+    @Override
+    public String getInitialRoute() {
+        if (wakeNanosOf(getIntent()) != 0) {
+            return WarmFlutterEngine.LISTENING_ROUTE;
+        }
+        return super.getInitialRoute();
+    }
+
+    @Override
+    public void configureFlutterEngine(@NonNull FlutterEngine flutterEngine) {
+        // المحرك المُسخّن سجّل الإضافات عند إنشائه
+        if (!usingWarmEngine) {
+            GeneratedPluginRegistrant.registerWith(flutterEngine);
+        }
+        flutterEngine.getRenderer().addIsDisplayingFlutterUiListener(firstFrameListener);
 
         voiceIdService = new VoiceIdService(this);
 
@@ -36,17 +236,33 @@ public class MainActivity extends FlutterFragmentActivity {
                 .setMethodCallHandler((call, result) -> {
                     switch (call.method) {
                         case "startService":
-                            Intent startServiceIntent = new Intent(this, PorcupainService.class);
+                            Intent startServiceIntent = new Intent(this, serviceClass);
                             startService(startServiceIntent);
                             result.success("Service Started");
                             break;
 
                         case "stopService":
-                            Intent stopServiceIntent = new Intent(this, PorcupainService.class);
+                            Intent stopServiceIntent = new Intent(this, serviceClass);
                             stopService(stopServiceIntent);
                             result.success("Service Stopped");
                             break;
 
+                        // التطبيق في الواجهة: أوقف الميكروفون فقط وأبقِ المحركات جاهزة
+                        case "pauseListening":
+                            listeningPauseRequested = true;
+                            if (listenerService != null) {
+                                listenerService.pauseListening();
+                            }
+                            result.success(null);
+                            break;
+
+                        // التطبيق في الخلفية: يستأنف الخدمة إن كانت تعمل أو يشغلها
+                        case "resumeListening":
+                            listeningPauseRequested = false;
+                            startService(new Intent(this, serviceClass));
+                            result.success(null);
+                            break;
+
                         case "requestIgnoreBatteryOptimizations":
                             PowerManager pm = (PowerManager) getSystemService(POWER_SERVICE);
                             String packageName = getPackageName();
@@ -69,14 +285,122 @@ public class MainActivity extends FlutterFragmentActivity {
                             result.success(null);
                             break;
 
+                        // للنسخ القديمة من الواجهة؛ nabd/state يجيبها خارج الخيط الرئيسي
                         case "isAccessibilityEnabled":
-                            boolean enabled = isAccessibilityServiceEnabled(this, AutoOpenAccessibilityService.class);
-                            result.success(enabled);
+                            result.success(appState.get(AppStateCache.ACCESSIBILITY));
                             break;
 
                         case "isOverlayEnabled":
-                            boolean canDraw = Settings.canDrawOverlays(this);
-                            result.success(canDraw);
+                            result.success(appState.get(AppStateCache.OVERLAY));
+                            break;
+
+                        // continuous | balanced | saver؛ يُحفظ ويُطبق فورًا إن كانت الخدمة تعمل
+                        case "setListeningProfile":
+                            String profileName = call.argument("profile");
+                            ListeningScheduler.Profile profile = ListeningScheduler.Profile.fromName(profileName, null);
+                            if (profile == null) {
+                                result.error("INVALID_PROFILE", "Unknown listening profile: " + profileName, null);
+                                break;
+                            }
+                            getSharedPreferences("FlutterSharedPreferences", MODE_PRIVATE).edit()
+                                    .putString(PorcupainService.LISTENING_PROFILE_KEY, profile.name().toLowerCase(Locale.US))
+                                    .apply();
+                            if (listenerService != null) {
+                                listenerService.setListeningProfile(profile);
+                            }
+                            result.success(null);
+                            break;
+
+                        case "getListeningMode":
+                            ListeningScheduler.Mode mode = listenerService != null ? listenerService.getListeningMode() : null;
+                            result.success(mode != null ? mode.name().toLowerCase(Locale.US) : null);
+                            break;
+
+                        // التقييم المضارب للمتحدث (enabled)؛ يُحفظ ويُطبق فورًا إن كانت الخدمة تعمل
+                        case "setSpeculativeVerification":
+                            boolean speculative = Boolean.TRUE.equals(call.argument("enabled"));
+                            getSharedPreferences("FlutterSharedPreferences", MODE_PRIVATE).edit()
+                                    .putBoolean(PorcupainService.SPECULATIVE_VERIFICATION_KEY, speculative)
+                                    .apply();
+                            if (listenerService != null) {
+                                listenerService.setSpeculativeVerification(speculative);
+                            }
+                            result.success(null);
+                            break;
+
+                        case "getVerificationMode":
+                            VoiceIdService.Mode verificationMode = listenerService != null
+                                    ? listenerService.getVerificationMode() : VoiceIdService.Mode.ON_DEMAND;
+                            result.success(verificationMode.name().toLowerCase(Locale.US));
+                            break;
+
+                        // مقاييس عملية الخدمة مع ذاكرتها (listenerPssKb)، أو مقاييس هذه العملية إن لم تعمل
+                        case "getMetrics":
+                            ListenerControl listener = listenerService;
+                            if (listener != null) {
+                                listener.requestMetrics(result::success);
+                            } else {
+                                result.success(ListeningMetrics.getInstance().snapshot());
+                            }
+                            break;
+
+                        case "resetMetrics":
+                            ListeningMetrics.getInstance().reset();
+                            if (listenerService != null) {
+                                listenerService.resetMetrics();
+                            }
+                            result.success(null);
+                            break;
+
+                        // خدمة الاستماع في عملية :listener خفيفة (enabled)؛ يُحفظ وتُنقل الخدمة إن كانت تعمل
+                        case "setSeparateListenerProcess":
+                            boolean separate = Boolean.TRUE.equals(call.argument("enabled"));
+                            getSharedPreferences("FlutterSharedPreferences", MODE_PRIVATE).edit()
+                                    .putBoolean(PorcupainService.SEPARATE_PROCESS_KEY, separate)
+                                    .apply();
+                            switchServiceClass(PorcupainService.serviceClass(this));
+                            result.success(null);
+                            break;
+
+                        case "consumeWakeLaunch":
+                            result.success(wakeLaunchPending);
+                            wakeLaunchPending = false;
+                            break;
+
+                        case "consumeWakeCommand":
+                            result.success(pendingWakeCommand);
+                            pendingWakeCommand = null;
+                            break;
+
+                        case "getKeywords":
+                            result.success(KeywordRegistry.toMaps(KeywordRegistry.load(this)));
+                            break;
+
+                        // يحفظ القائمة ويعيد بناء محرك الخدمة إن كانت تعمل؛ وإلا تُقرأ عند تشغيلها القادم
+                        case "setKeywords":
+                            List<Map<String, Object>> keywords = call.argument("keywords");
+                            if (keywords == null) {
+                                result.error("INVALID_KEYWORDS", "keywords is required", null);
+                                break;
+                            }
+                            try {
+                                KeywordRegistry.save(this, keywords);
+                            } catch (Exception e) {
+                                result.error("INVALID_KEYWORDS", e.getMessage(), null);
+                                break;
+                            }
+                            if (listenerService != null) {
+                                listenerService.reloadKeywords();
+                            }
+                            result.success(null);
+                            break;
+
+                        case "resetKeywords":
+                            KeywordRegistry.reset(this);
+                            if (listenerService != null) {
+                                listenerService.reloadKeywords();
+                            }
+                            result.success(null);
                             break;
 
                         default:
@@ -85,45 +409,116 @@ public class MainActivity extends FlutterFragmentActivity {
                     }
                 });
 
-        new MethodChannel(flutterEngine.getDartExecutor().getBinaryMessenger(), VOICE_ID_CHANNEL)
+        // بناء EagleProfiler وقراءة البصمات من القرص: خيط خلفي بدل خيط الواجهة
+        BinaryMessenger messenger = flutterEngine.getDartExecutor().getBinaryMessenger();
+        new MethodChannel(messenger, VOICE_ID_CHANNEL, StandardMethodCodec.INSTANCE, messenger.makeBackgroundTaskQueue())
                 .setMethodCallHandler((call, result) -> {
+                    VoiceIdService voiceId = voiceIdService;
+                    if (voiceId == null) {
+                        result.error("NOT_READY", "Voice ID service is not available", null);
+                        return;
+                    }
                     switch (call.method) {
                         case "enrollVoice":
-                            voiceIdService.enrollVoice(this, result);
+                            voiceId.enrollVoice(this, result);
                             break;
                         case "resetEnrollment":
-                            voiceIdService.resetEnrollment(this, result);
+                            voiceId.resetEnrollment(this, result);
                             break;
                         case "isProfileEnrolled":
-                            boolean enrolled = voiceIdService.isProfileEnrolled(this);
-                            result.success(enrolled);
+                            result.success(appState.get(AppStateCache.PROFILE_ENROLLED));
+                            break;
+                        case "listProfiles":
+                            voiceId.listProfiles(result);
+                            break;
+                        case "enrollVoiceAs":
+                            String name = call.argument("name");
+                            // int من Dart (مثل 1) يصل Integer
+                            Number threshold = call.argument("threshold");
+                            voiceId.enrollVoice(this, name,
+                                    threshold != null ? threshold.floatValue() : VoiceIdService.MATCH_THRESHOLD, result);
+                            break;
+                        case "removeProfile":
+                            voiceId.removeProfile(call.argument("name"), result);
                             break;
                         default:
                             result.notImplemented();
                             break;
                     }
                 });
-    }
 
-    private boolean isAccessibilityServiceEnabled(Context context, Class<?> accessibilityService) {
-        String expectedComponentName = context.getPackageName() + "/" + accessibilityService.getName();
-        String enabledServices = Settings.Secure.getString(
-                context.getContentResolver(),
-                Settings.Secure.ENABLED_ACCESSIBILITY_SERVICES
-        );
-
-        if (enabledServices == null) return false;
+        registerStateChannel(messenger);
+        registerEnrollProgressChannel(flutterEngine);
+        // المحرك المُسخّن سجّلها قبل تشغيل Dart فيه
+        if (!usingWarmEngine) {
+            WakeEventStream.getInstance().registerChannel(messenger);
+        }
 
-        TextUtils.SimpleStringSplitter colonSplitter = new TextUtils.SimpleStringSplitter(':');
-        colonSplitter.setString(enabledServices);
+        // أي رسالة من Dart تطلب اللقطة؛ الرد buffer مباشر بدون نسخ، أو null إذا لا توجد
+        new BasicMessageChannel<>(flutterEngine.getDartExecutor().getBinaryMessenger(), WAKE_AUDIO_CHANNEL,
+                BinaryCodec.INSTANCE_DIRECT)
+                .setMessageHandler((message, reply) -> {
+                    if (listenerService == null || !listenerService.takeWakeAudio(reply::reply)) {
+                        reply.reply(null);
+                    }
+                });
+        commandChannel = new MethodChannel(flutterEngine.getDartExecutor().getBinaryMessenger(), COMMANDS_CHANNEL);
+    }
 
-        while (colonSplitter.hasNext()) {
-            String componentName = colonSplitter.next();
-            if (componentName.equalsIgnoreCase(expectedComponentName)) {
-                return true;
-            }
+    @Override
+    public void cleanUpFlutterEngine(@NonNull FlutterEngine flutterEngine) {
+        flutterEngine.getRenderer().removeIsDisplayingFlutterUiListener(firstFrameListener);
+        commandChannel = null;
+        // المحرك المُسخّن يبقى حيًا باشتراك MainScreen فيه، والقناة مسجلة عليه منذ التسخين
+        if (!usingWarmEngine) {
+            WakeEventStream.getInstance().setSink(null);
+        }
+        if (voiceIdService != null) {
+            voiceIdService.close();
+            voiceIdService = null;
         }
+        super.cleanUpFlutterEngine(flutterEngine);
+    }
+
+    // حالة الأذونات والخدمات دفعة واحدة عند بدء الواجهة، من النسخة المخزنة في الذاكرة
+    private void registerStateChannel(BinaryMessenger messenger) {
+        new MethodChannel(messenger, STATE_CHANNEL, StandardMethodCodec.INSTANCE, messenger.makeBackgroundTaskQueue())
+                .setMethodCallHandler((call, result) -> {
+                    appState.start();
+                    switch (call.method) {
+                        case "getState":
+                            Map<String, Object> state = appState.snapshot();
+                            state.put("serviceRunning", listenerService != null);
+                            result.success(state);
+                            break;
+                        case "isAccessibilityEnabled":
+                            result.success(appState.get(AppStateCache.ACCESSIBILITY));
+                            break;
+                        case "isOverlayEnabled":
+                            result.success(appState.get(AppStateCache.OVERLAY));
+                            break;
+                        case "isProfileEnrolled":
+                            result.success(appState.get(AppStateCache.PROFILE_ENROLLED));
+                            break;
+                        default:
+                            result.notImplemented();
+                            break;
+                    }
+                });
+    }
 
-        return false;
+    private void registerEnrollProgressChannel(@NonNull FlutterEngine flutterEngine) {
+        new EventChannel(flutterEngine.getDartExecutor().getBinaryMessenger(), ENROLL_PROGRESS_CHANNEL)
+                .setStreamHandler(new EventChannel.StreamHandler() {
+                    @Override
+                    public void onListen(Object arguments, EventChannel.EventSink events) {
+                        voiceIdService.setProgressSink(events);
+                    }
+
+                    @Override
+                    public void onCancel(Object arguments) {
+                        voiceIdService.setProgressSink(null);
+                    }
+                });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,82 @@
+package com.example.nabd;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.util.Log;
+
+public class MicAudioSource implements AudioSource {
+    private static final String TAG = "MicAudioSource";
+    private static final int CHANNELS = AudioFormat.CHANNEL_IN_MONO;
+    private static final int ENCODING = AudioFormat.ENCODING_PCM_16BIT;
+
+    private final int sampleRate;
+    private final int bufferSize;
+    // يُقرأ على خيط الالتقاط ويتغير من خيط التحكم
+    private volatile AudioRecord audioRecord;
+
+    public MicAudioSource(int sampleRate, int frameLength) {
+        this.sampleRate = sampleRate;
+        int minBufferSize = AudioRecord.getMinBufferSize(sampleRate, CHANNELS, ENCODING);
+        this.bufferSize = Math.max(minBufferSize, frameLength * 2 * 2);
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public boolean start() {
+        if (audioRecord == null) {
+            audioRecord = new AudioRecord(MediaRecorder.AudioSource.MIC, sampleRate, CHANNELS, ENCODING, bufferSize);
+            if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
+                Log.e(TAG, "Failed to initialize AudioRecord");
+                audioRecord.release();
+                audioRecord = null;
+                return false;
+            }
+        }
+        try {
+            audioRecord.startRecording();
+        } catch (IllegalStateException e) {
+            Log.e(TAG, "Failed to start AudioRecord: " + e.getMessage());
+        }
+        // الميكروفون مشغول (مكالمة أو تطبيق آخر): المحاولة التالية تبني AudioRecord جديدًا
+        if (audioRecord.getRecordingState() != AudioRecord.RECORDSTATE_RECORDING) {
+            Log.e(TAG, "AudioRecord did not start recording");
+            release();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int read(short[] buffer, int offset, int length) {
+        AudioRecord record = audioRecord;
+        if (record == null) {
+            return -1;
+        }
+        // blocking حتى يمتلئ الطلب؛ stop() يفكه بقراءة قصيرة
+        return record.read(buffer, offset, length, AudioRecord.READ_BLOCKING);
+    }
+
+    @Override
+    public void stop() {
+        if (audioRecord != null) {
+            try {
+                audioRecord.stop();
+            } catch (IllegalStateException e) {
+                Log.e(TAG, "Error stopping AudioRecord: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void release() {
+        if (audioRecord != null) {
+            audioRecord.release();
+            audioRecord = null;
+        }
+    }
+}
@@ -4,42 +4,116 @@ import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.Service;
+import android.content.ActivityNotFoundException;
+import android.content.Context;
 import android.content.Intent;
+import android.os.Binder;
 import android.os.Build;
+import android.os.Debug;
+import android.os.FileObserver;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
 import androidx.core.app.ActivityCompat;
 import androidx.core.app.NotificationCompat;
 import android.Manifest;
 import android.content.pm.PackageManager;
-import ai.picovoice.porcupine.PorcupineManager;
 import ai.picovoice.porcupine.PorcupineException;
-import ai.picovoice.porcupine.PorcupineManagerCallback;
-import android.media.AudioFormat;
-import android.media.AudioRecord;
-import android.media.MediaRecorder;
 
-public class PorcupainService extends Service {
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+public class PorcupainService extends Service implements ListenerControl {
     private static final String TAG = "PorcupainService";
     private static final String CHANNEL_ID = "WakeWordChannel";
     private static final int NOTIFICATION_ID = 1;
-    private PorcupineManager porcupineManager;
+    private WakeWordEngine wakeWordEngine;
+    // الكلمات بنفس ترتيب أرقام Porcupine للمحرك المركب حاليًا؛ تُستبدل مع المحرك على خيط الالتقاط
+    private volatile List<KeywordRegistry.Keyword> activeKeywords;
     private boolean isRunning = false;
+    // نتيجة تحقق أو إجراء مؤجل بعد onDestroy لا يفتح التطبيق ولا ينشر أحداثًا
+    private volatile boolean destroyed = false;
     private NotificationManager notificationManager;
     private VoiceIdService voiceIdService;
+    private VerificationExecutor verificationExecutor;
 
     private static final int SAMPLE_RATE = 16000;
-    private static final int CHANNELS = AudioFormat.CHANNEL_IN_MONO;
-    private static final int ENCODING = AudioFormat.ENCODING_PCM_16BIT;
     private static final int FRAME_LENGTH = 512;
-    private static final int BUFFER_SIZE = AudioRecord.getMinBufferSize(SAMPLE_RATE, CHANNELS, ENCODING);
-    private AudioRecord audioRecord;
-    private short[] audioBuffer;
-    private int bufferIndex = 0;
-    private boolean isRecording = false;
+    private static final int PRE_ROLL_MILLIS = 2000;
+    // الأمر المنطوق بعد كلمة التنبيه يُلتقط حتى 4 ثوانٍ ويُسلم للتطبيق عند فتحه
+    private static final int POST_WAKE_MILLIS = 4000;
+    private static final int MAX_DIAGNOSTIC_FILES = 20;
+    // أقصى انتظار لتحقق جارٍ قبل تحرير Eagle في onDestroy
+    private static final long VERIFY_SHUTDOWN_MILLIS = 500;
+    // عند فتح بوابة النشاط الصوتي تُعاد ~100 ms سابقة لـ Porcupine
+    private static final int VAD_ONSET_FRAMES = 3;
+    // مفتاح shared_preferences من جهة Flutter لتفعيل حفظ صوت قرارات التحقق
+    private static final String FLUTTER_PREFS = "FlutterSharedPreferences";
+    private static final String DIAGNOSTIC_CAPTURE_KEY = "flutter.diagnostic_capture";
+    static final String LISTENING_PROFILE_KEY = "flutter.listening_profile";
+    static final String SPECULATIVE_VERIFICATION_KEY = "flutter.speculative_verification";
+    static final String SEPARATE_PROCESS_KEY = "flutter.listener_process";
+    private static final int DUTY_CYCLE_EXTEND_MILLIS = 500;
+    private AudioSource audioSource;
+    private CaptureEngine captureEngine;
+    private WakeWordPipeline wakeWordPipeline;
+    private WakeAudioHandoff wakeAudioHandoff;
+    private SpeculativeScorer speculativeScorer;
+    // موضع آخر اكتشاف في الـ pre-roll؛ يكتبه خيط الالتقاط ويقرؤه خيط التحقق
+    private volatile long detectionSequence;
+    private VoiceActivityGate wakeGate;
+    private ListeningScheduler scheduler;
+    private PowerStateMonitor powerMonitor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // مصدران مستقلان لإيقاف الميكروفون: التطبيق في الواجهة، ونافذة نوم من الجدولة
+    private boolean userPaused = false;
+    private boolean schedulerPaused = false;
+    private final Runnable dutyCycleToggle = this::toggleDutyCycle;
+    private final Runnable warmFlutterEngine = () -> WarmFlutterEngine.warm(this);
+    private AudioRingBuffer preRollBuffer;
+    private short[] verifyBuffer;
+    private int verifyLength;
+    private DiagnosticCapture diagnosticCapture;
+    private final ListeningMetrics metrics = ListeningMetrics.getInstance();
+    private final WakeEventStream wakeEvents = WakeEventStream.getInstance();
+    private final IBinder binder = new LocalBinder();
+    // بناء المحركات جارٍ؛ null بعد جاهزية Porcupine أو فشله
+    private EngineInitCoordinator engineInit;
+    // onStartCommand وصل قبل المحركات: الالتقاط يبدأ عند جاهزيتها
+    private boolean listeningPending = false;
+    // لقياس بدء الخدمة حتى الاستماع؛ 0 بعد أول تشغيل للميكروفون
+    private long createdNanos;
+    // في عملية :listener فقط: الربط عبر Messenger ومراقبة البصمات التي تكتبها الواجهة
+    private ListenerBridge bridge;
+    private FileObserver profileObserver;
+    // سلسلة المعالجة الحالية (AudioFrontEnd.CONFIG_*)؛ تتبع سلسلة البصمات المسجلة
+    private int frontEndConfig = AudioFrontEnd.CONFIG_RAW;
+    private final Runnable profilesChanged = () -> mainHandler.post(this::updateFrontEnd);
+
+    // ربط داخل نفس العملية: تستخدمه MainActivity لإيقاف الميكروفون مؤقتًا أثناء ظهور التطبيق
+    public class LocalBinder extends Binder {
+        PorcupainService getService() {
+            return PorcupainService.this;
+        }
+    }
 
     String apiKey = "";
 
+    // الخدمة التي تشغلها الواجهة حسب الإعداد؛ التغيير يسري من التشغيل التالي
+    static Class<? extends PorcupainService> serviceClass(Context context) {
+        return context.getSharedPreferences(FLUTTER_PREFS, Context.MODE_PRIVATE).getBoolean(SEPARATE_PROCESS_KEY, false)
+                ? ListenerProcessService.class : PorcupainService.class;
+    }
+
+    // ListenerProcessService: نفس الخدمة في android:process=":listener" بدون Flutter
+    protected boolean isSeparateProcess() {
+        return false;
+    }
+
     @Override
     public void onCreate() {
         super.onCreate();
@@ -47,32 +121,195 @@ public class PorcupainService extends Service {
         notificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
         createNotificationChannel();
 
+        createdNanos = System.nanoTime();
         voiceIdService = new VoiceIdService(this);
+        verificationExecutor = new VerificationExecutor(this::verifyWakeAudio, this::onVerificationResult);
 
         // تخصيص Buffer لتخزين الصوت (2 ثانية من الصوت)
-        int bufferSizeInFrames = SAMPLE_RATE * 2 / FRAME_LENGTH; // 2 ثانية
-        audioBuffer = new short[bufferSizeInFrames * FRAME_LENGTH];
+        preRollBuffer = new AudioRingBuffer(SAMPLE_RATE, PRE_ROLL_MILLIS, FRAME_LENGTH);
+        verifyBuffer = new short[preRollBuffer.samplesFor(PRE_ROLL_MILLIS)];
+        if (getSharedPreferences(FLUTTER_PREFS, MODE_PRIVATE).getBoolean(DIAGNOSTIC_CAPTURE_KEY, false)) {
+            diagnosticCapture = new DiagnosticCapture(getFilesDir(), SAMPLE_RATE, MAX_DIAGNOSTIC_FILES);
+        }
+        if (isSeparateProcess()) {
+            bridge = new ListenerBridge(this);
+            watchProfiles();
+        }
 
-        try {
-            porcupineManager = new PorcupineManager.Builder()
-                    .setAccessKey(apiKey)
-                    .setKeywordPath("nabd.ppn")
-                    .setSensitivity(0.7f)
-                    .build(this, new PorcupineManagerCallback() {
-                        @Override
-                        public void invoke(int keywordIndex) {
-                            if (keywordIndex == 0) {
-                                Log.d(TAG, "Keyword 'نبض' detected!");
-                                verifyAndOpenApp(audioBuffer);
-                            }
-                        }
-                    });
-            Log.d(TAG, "PorcupineManager initialized successfully");
-        } catch (PorcupineException e) {
-            Log.e(TAG, "Failed to initialize PorcupineManager: " + e.getMessage());
-            porcupineManager = null; 
+        EagleEngineRegistry.getInstance(this).addChangeListener(profilesChanged);
+        wakeGate = new VoiceActivityGate();
+
+        // Porcupine و Eagle على خيوط البدء؛ الالتقاط يُبنى ويبدأ في onWakeEngineReady
+        engineInit = new EngineInitCoordinator(this, metrics);
+        engineInit.start(apiKey, voiceIdService, engineCallback);
+
+        String profile = getSharedPreferences(FLUTTER_PREFS, MODE_PRIVATE).getString(LISTENING_PROFILE_KEY, null);
+        scheduler = new ListeningScheduler(
+                ListeningScheduler.Profile.fromName(profile, ListeningScheduler.Profile.BALANCED),
+                this::onListeningModeChanged);
+        powerMonitor = new PowerStateMonitor(this, scheduler);
+    }
+
+    private final EngineInitCoordinator.Callback engineCallback = new EngineInitCoordinator.Callback() {
+        @Override
+        public void onWakeEngineReady(PorcupineWakeWordEngine engine) {
+            engineInit = null;
+            buildCapture(engine);
+            if (listeningPending) {
+                listeningPending = false;
+                startRecording();
+            }
+        }
+
+        @Override
+        public void onWakeEngineFailed(Exception e) {
+            engineInit = null;
+            Log.e(TAG, "Failed to initialize Porcupine: " + e.getMessage());
             stopSelf();
         }
+    };
+
+    // إعادة التسجيل بعد ترقية قد تنقل البصمات من الصوت الخام إلى السلسلة أو العكس (بعد الحذف)
+    private void updateFrontEnd() {
+        if (captureEngine == null) {
+            return;
+        }
+        int config = VoiceIdService.frontEndConfig(this);
+        if (config != frontEndConfig) {
+            Log.d(TAG, "Front end changed " + frontEndConfig + " -> " + config);
+            frontEndConfig = config;
+            captureEngine.setProcessor(AudioFrontEnd.forConfig(config, SAMPLE_RATE));
+        }
+    }
+
+    private void buildCapture(PorcupineWakeWordEngine engine) {
+        synchronized (this) {
+            wakeWordEngine = engine;
+            activeKeywords = engine.getKeywords();
+        }
+        // مصدر ميكروفون واحد يغذي Porcupine والـ buffer معًا
+        audioSource = new MicAudioSource(SAMPLE_RATE, FRAME_LENGTH);
+        captureEngine = new CaptureEngine(audioSource, engine.getFrameLength(),
+                new AudioThreadFactory("nabd-capture"));
+        captureEngine.setMetrics(metrics);
+        captureEngine.setFailureListener(reason -> mainHandler.post(() -> onCaptureFailed(reason)));
+        // نفس معالجة تسجيل البصمة حتى يقارن Eagle صوتًا بمثله
+        frontEndConfig = VoiceIdService.frontEndConfig(this);
+        captureEngine.setProcessor(AudioFrontEnd.forConfig(frontEndConfig, SAMPLE_RATE));
+        synchronized (this) {
+            wakeWordPipeline = new WakeWordPipeline(preRollBuffer, engine, wakeWordListener,
+                    wakeGate, VAD_ONSET_FRAMES);
+        }
+        wakeWordPipeline.setMetrics(metrics);
+        captureEngine.addListener(wakeWordPipeline);
+        wakeAudioHandoff = new WakeAudioHandoff(preRollBuffer, PRE_ROLL_MILLIS, POST_WAKE_MILLIS);
+        captureEngine.addListener(wakeAudioHandoff);
+        if (getSharedPreferences(FLUTTER_PREFS, MODE_PRIVATE).getBoolean(SPECULATIVE_VERIFICATION_KEY, false)) {
+            setSpeculativeVerification(true);
+        }
+        // التطبيق في الواجهة أو الجدولة في نافذة نوم: الميكروفون لا يُفتح مع start
+        applyPauseState();
+    }
+
+    private final WakeWordPipeline.Listener wakeWordListener = new WakeWordPipeline.Listener() {
+        @Override
+        public void onWakeWord(int keywordIndex, long detectionNanos) {
+            List<KeywordRegistry.Keyword> keywords = activeKeywords;
+            if (keywordIndex < 0 || keywordIndex >= keywords.size()) {
+                return;
+            }
+            KeywordRegistry.Keyword keyword = keywords.get(keywordIndex);
+            Log.d(TAG, "Keyword '" + keyword.getName() + "' detected!");
+            wakeEvents.publishDetected(keyword.getName());
+            if (keyword.getAction() == KeywordRegistry.Action.OPEN_APP) {
+                wakeAudioHandoff.arm(detectionNanos);
+            }
+            if (!keyword.isVerificationRequired()) {
+                // startActivity و sendBroadcast عبر Binder قد يتأخران؛ خيط الالتقاط لا ينتظرهما
+                mainHandler.post(() -> runAction(keyword, detectionNanos));
+                return;
+            }
+            detectionSequence = preRollBuffer.getWriteSequence();
+            if (!verificationExecutor.submit(detectionNanos, keywordIndex)) {
+                metrics.verifyCoalesced.increment();
+            }
+        }
+
+        @Override
+        public void onEngineError(Exception e) {
+            Log.e(TAG, "Porcupine process error: " + e.getMessage());
+        }
+
+        @Override
+        public void onEngineReplaced(WakeWordEngine previous) {
+            PorcupineWakeWordEngine current = (PorcupineWakeWordEngine) wakeWordPipeline.getEngine();
+            synchronized (PorcupainService.this) {
+                activeKeywords = current.getKeywords();
+                wakeWordEngine = current;
+            }
+            previous.delete();
+            Log.d(TAG, "Wake word engine replaced, " + activeKeywords.size() + " keyword(s) active");
+        }
+    };
+
+    // البصمات ومعايرتها تُسجل وتُحذف في عملية الواجهة: نعيد قراءة المعايرة عند تغير ملفها،
+    // والفهرس وبناء Eagle عند تغيره (بعد المعايرة حتى لا يُقارن ببصمة جديدة بمعايرة قديمة)
+    private void watchProfiles() {
+        EagleEngineRegistry registry = EagleEngineRegistry.getInstance(this);
+        File directory = registry.getStore().getDirectory();
+        directory.mkdirs();
+        profileObserver = new FileObserver(directory.getPath(), FileObserver.MOVED_TO | FileObserver.DELETE) {
+            @Override
+            public void onEvent(int event, String path) {
+                if (FileCalibrationStore.FILE_NAME.equals(path)) {
+                    registry.getCalibrations().invalidate();
+                } else if (SpeakerProfileStore.INDEX_FILE.equals(path)) {
+                    registry.execute(() -> {
+                        registry.getCalibrations().invalidate();
+                        registry.getStore().invalidate();
+                        registry.reload();
+                    });
+                }
+            }
+        };
+        profileObserver.startWatching();
+    }
+
+    // يبني محركًا جديدًا من keywords.json على خيط جانبي ثم يركبه بين إطارين بدون إيقاف الالتقاط
+    @Override
+    public void reloadKeywords() {
+        new Thread(() -> {
+            List<KeywordRegistry.Keyword> keywords = KeywordRegistry.load(this);
+            PorcupineWakeWordEngine engine;
+            try {
+                engine = PorcupineWakeWordEngine.create(this, apiKey, keywords);
+            } catch (PorcupineException e) {
+                Log.e(TAG, "Failed to rebuild Porcupine: " + e.getMessage());
+                return;
+            }
+            synchronized (PorcupainService.this) {
+                if (wakeWordPipeline == null) {
+                    engine.delete();
+                    return;
+                }
+                WakeWordEngine superseded = wakeWordPipeline.replaceEngine(engine);
+                if (superseded != null) {
+                    superseded.delete();
+                }
+            }
+            // أثناء الإيقاف المؤقت يُركب المحرك مع أول إطار بعد الاستئناف
+            Log.d(TAG, "Rebuilt Porcupine with " + keywords.size() + " keyword(s)");
+        }, "KeywordReload").start();
+    }
+
+    // من الخيط الرئيسي: الـ pre-roll وما التُقط بعد آخر اكتشاف، مرة واحدة
+    @Override
+    public boolean takeWakeAudio(WakeAudioHandoff.ClipConsumer consumer) {
+        return wakeAudioHandoff != null && wakeAudioHandoff.takeClip(consumer);
+    }
+
+    public List<KeywordRegistry.Keyword> getActiveKeywords() {
+        return activeKeywords;
     }
 
     @Override
@@ -90,8 +327,10 @@ public class PorcupainService extends Service {
                 return START_NOT_STICKY;
             }
 
-            startListening();
             startRecording();
+        } else {
+            // startService على خدمة تعمل يعني أن التطبيق ذهب للخلفية
+            resumeListening();
         }
         return START_STICKY;
     }
@@ -104,78 +343,309 @@ public class PorcupainService extends Service {
             return;
         }
 
-        audioRecord = new AudioRecord(MediaRecorder.AudioSource.MIC, SAMPLE_RATE, CHANNELS, ENCODING, BUFFER_SIZE);
-        if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
-            Log.e(TAG, "Failed to initialize AudioRecord");
+        if (captureEngine == null) {
+            if (engineInit != null) {
+                listeningPending = true;
+                updateNotification();
+                Log.d(TAG, "Listening pending until Porcupine is ready");
+                return;
+            }
+            Log.e(TAG, "Porcupine is null. Cannot start listening.");
             stopSelf();
             return;
         }
 
-        audioRecord.startRecording();
-        isRecording = true;
-
-        new Thread(() -> {
-            while (isRecording) {
-                short[] frameBuffer = new short[FRAME_LENGTH];
-                int numRead = audioRecord.read(frameBuffer, 0, frameBuffer.length);
-                if (numRead > 0) {
-                    synchronized (audioBuffer) {
-                        System.arraycopy(frameBuffer, 0, audioBuffer, bufferIndex * FRAME_LENGTH, numRead);
-                        bufferIndex = (bufferIndex + 1) % (audioBuffer.length / FRAME_LENGTH);
-                    }
-                }
-            }
-        }).start();
+        if (!captureEngine.start()) {
+            Log.e(TAG, "Failed to start audio capture");
+            stopSelf();
+            return;
+        }
         Log.d(TAG, "Recording started successfully");
+        if (createdNanos != 0) {
+            long millis = (System.nanoTime() - createdNanos) / 1_000_000L;
+            metrics.startToListening.record(millis);
+            Log.d(TAG, "Listening " + millis + " ms after service start");
+            createdNanos = 0;
+            warmFlutterEngineLater();
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            metrics.recordListeningStarted(SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime());
+        }
+        // يطبق النمط الحالي ثم يتابع تغيرات الشاشة والبطارية والحرارة
+        powerMonitor.start();
+        applyListeningMode(scheduler.getMode());
+    }
+
+    // محرك Flutter مكانه عملية الواجهة (في :listener يلغي الفائدة من فصلها)، وبناؤه يشغل الخيط
+    // الرئيسي لمئات الميلي ثانية: بعد أول بدء للالتقاط لا قبله
+    private void warmFlutterEngineLater() {
+        if (!isSeparateProcess()
+                && getSharedPreferences(FLUTTER_PREFS, MODE_PRIVATE).getBoolean(WarmFlutterEngine.WARM_ENGINE_KEY, false)) {
+            mainHandler.post(warmFlutterEngine);
+        }
     }
 
-    private void startListening() {
-        if (porcupineManager == null) {
-            Log.e(TAG, "PorcupineManager is null. Cannot start listening.");
+    // خيط الالتقاط خرج بعد فشل المصدر (بعد إعادة المحاولات عند الاستئناف): نبني AudioRecord جديدًا مرة،
+    // وإذا فشل تتوقف الخدمة بدل أن تبقى ظاهرة في الإشعار بدون ميكروفون
+    private void onCaptureFailed(String reason) {
+        Log.e(TAG, "Audio capture stopped: " + reason);
+        if (captureEngine == null || captureEngine.isRunning()) {
+            return;
+        }
+        captureEngine.stop();
+        audioSource.release();
+        if (!captureEngine.start()) {
+            Log.e(TAG, "Failed to restart audio capture");
             stopSelf();
             return;
         }
+        Log.d(TAG, "Audio capture restarted");
+    }
 
-        try {
-            porcupineManager.start();
-            Log.d(TAG, "PorcupineManager started listening");
-        } catch (PorcupineException e) {
-            Log.e(TAG, "Failed to start PorcupineManager: " + e.getMessage());
-            stopSelf();
+    // Porcupine و Eagle والـ buffers تبقى مُهيأة؛ فقط الميكروفون يتوقف
+    @Override
+    public void pauseListening() {
+        if (userPaused) {
+            return;
         }
+        userPaused = true;
+        applyPauseState();
+        updateNotification();
+        Log.d(TAG, "Listening paused");
     }
 
-    private void verifyAndOpenApp(short[] audioBuffer) {
-        io.flutter.plugin.common.MethodChannel.Result callback = new io.flutter.plugin.common.MethodChannel.Result() {
-            @Override
-            public void success(Object result) {
-                if ("Voice matched".equals(result)) {
-                    Log.d(TAG, "Voice verified, opening app...");
-                    openApp();
-                } else {
-                    Log.d(TAG, "Voice not matched, ignoring...");
-                }
-            }
+    public void resumeListening() {
+        if (!userPaused) {
+            return;
+        }
+        userPaused = false;
+        applyPauseState();
+        updateNotification();
+        Log.d(TAG, "Listening resumed");
+    }
 
-            @Override
-            public void error(String errorCode, String errorMessage, Object errorDetails) {
-                Log.e(TAG, "Voice verification error: " + errorMessage);
-            }
+    public boolean isListeningPaused() {
+        return captureEngine != null && captureEngine.isPaused();
+    }
 
-            @Override
-            public void notImplemented() {
-                Log.w(TAG, "Method not implemented");
+    @Override
+    public void setListeningProfile(ListeningScheduler.Profile profile) {
+        if (scheduler != null) {
+            scheduler.setProfile(profile);
+        }
+    }
+
+    @Override
+    public ListeningScheduler.Mode getListeningMode() {
+        return scheduler != null ? scheduler.getMode() : null;
+    }
+
+    // التقييم المضارب: Eagle يعمل أثناء الكلام قبل الاكتشاف مقابل وقت معالج إضافي (راجع getMetrics)
+    @Override
+    public synchronized void setSpeculativeVerification(boolean enabled) {
+        if (captureEngine == null || voiceIdService == null || enabled == (speculativeScorer != null)) {
+            return;
+        }
+        if (enabled) {
+            speculativeScorer = voiceIdService.enableSpeculative(preRollBuffer, wakeGate, PRE_ROLL_MILLIS,
+                    VAD_ONSET_FRAMES);
+            // بعد WakeWordPipeline حتى تكون البوابة والـ pre-roll محدثين لنفس الإطار
+            captureEngine.addListener(speculativeScorer);
+        } else {
+            captureEngine.removeListener(speculativeScorer);
+            speculativeScorer = null;
+            voiceIdService.disableSpeculative();
+        }
+        if (bridge != null) {
+            bridge.publishState();
+        }
+    }
+
+    @Override
+    public VoiceIdService.Mode getVerificationMode() {
+        return voiceIdService != null ? voiceIdService.getMode() : VoiceIdService.Mode.ON_DEMAND;
+    }
+
+    // Debug.getPss يقرأ smaps للعملية كلها؛ عند الطلب فقط
+    @Override
+    public void requestMetrics(MetricsCallback callback) {
+        Map<String, Object> snapshot = metrics.snapshot();
+        snapshot.put("listenerPssKb", Debug.getPss());
+        snapshot.put("listenerProcess", isSeparateProcess());
+        callback.onMetrics(snapshot);
+    }
+
+    @Override
+    public void resetMetrics() {
+        metrics.reset();
+    }
+
+    private void onListeningModeChanged(ListeningScheduler.Mode previous, ListeningScheduler.Mode current) {
+        Log.d(TAG, "Listening mode " + previous + " -> " + current);
+        metrics.recordListeningMode(current);
+        applyListeningMode(current);
+        if (bridge != null) {
+            bridge.publishState();
+        }
+    }
+
+    private void applyListeningMode(ListeningScheduler.Mode mode) {
+        wakeGate.setRatioQ8(mode.getVadRatioQ8());
+        mainHandler.removeCallbacks(dutyCycleToggle);
+        schedulerPaused = mode == ListeningScheduler.Mode.SUSPENDED;
+        if (mode.isDutyCycled()) {
+            mainHandler.postDelayed(dutyCycleToggle, mode.getListenMillis());
+        }
+        applyPauseState();
+        updateNotification();
+    }
+
+    private void toggleDutyCycle() {
+        ListeningScheduler.Mode mode = scheduler.getMode();
+        if (!mode.isDutyCycled() || !isRunning) {
+            return;
+        }
+        // لا نقطع كلامًا جاريًا: نمدد النافذة حتى تنغلق بوابة النشاط الصوتي
+        if (!schedulerPaused && wakeGate.isOpen()) {
+            mainHandler.postDelayed(dutyCycleToggle, DUTY_CYCLE_EXTEND_MILLIS);
+            return;
+        }
+        schedulerPaused = !schedulerPaused;
+        applyPauseState();
+        mainHandler.postDelayed(dutyCycleToggle, schedulerPaused ? mode.getSleepMillis() : mode.getListenMillis());
+    }
+
+    private void applyPauseState() {
+        if (captureEngine == null) {
+            return;
+        }
+        boolean pause = userPaused || schedulerPaused;
+        if (pause == captureEngine.isPaused()) {
+            return;
+        }
+        if (pause) {
+            captureEngine.pause();
+        } else {
+            captureEngine.resume();
+        }
+    }
+
+    private void updateNotification() {
+        if (isRunning) {
+            notificationManager.notify(NOTIFICATION_ID, createNotification());
+        }
+    }
+
+    // يعمل على خيط التحقق؛ هو المستهلك الوحيد لـ preRollBuffer و verifyBuffer
+    private VerificationResult verifyWakeAudio(long detectionNanos, int keywordIndex) {
+        verifyLength = preRollBuffer.snapshot(PRE_ROLL_MILLIS, verifyBuffer);
+        return voiceIdService.verify(verifyBuffer, verifyLength, detectionSequence);
+    }
+
+    private void onVerificationResult(VerificationResult result) {
+        if (destroyed) {
+            return;
+        }
+        Log.d(TAG, "Verification decided in " + result.getLatencyMillis() + " ms after detection");
+        metrics.recordVerification(result);
+        wakeEvents.publishVerification(keywordName(result), result);
+        if (!result.isMatched()) {
+            wakeAudioHandoff.cancel();
+        }
+        if (result.isError()) {
+            Log.e(TAG, "Voice verification error: " + result.getErrorMessage());
+        } else if (result.isMatched()) {
+            List<KeywordRegistry.Keyword> keywords = activeKeywords;
+            int index = result.getKeywordIndex();
+            // المحرك استُبدل بين الاكتشاف والقرار: الرقم لم يعد يدل على نفس الكلمة
+            KeywordRegistry.Keyword keyword = index < keywords.size() ? keywords.get(index) : null;
+            Log.d(TAG, "Voice verified for " + result.getSpeaker()
+                    + (keyword != null ? ", running " + keyword.getAction().getId() : ", opening app..."));
+            if (keyword != null) {
+                runAction(keyword, result.getDetectionNanos());
+            } else {
+                openApp(result.getDetectionNanos());
             }
-        };
+        } else {
+            Log.d(TAG, "Voice not matched, ignoring...");
+        }
+        // بعد تنفيذ الإجراء حتى لا تؤخر كتابة WAV الفتح؛ نفس خيط التحقق فـ verifyBuffer لم يتغير
+        if (diagnosticCapture != null && !result.isError()) {
+            diagnosticCapture.capture(result.isMatched() ? "accept" : "reject", verifyBuffer, verifyLength);
+        }
+    }
+
+    private String keywordName(VerificationResult result) {
+        List<KeywordRegistry.Keyword> keywords = activeKeywords;
+        int index = result.getKeywordIndex();
+        return index < keywords.size() ? keywords.get(index).getName() : null;
+    }
+
+    private void runAction(KeywordRegistry.Keyword keyword, long detectionNanos) {
+        if (destroyed) {
+            return;
+        }
+        switch (keyword.getAction()) {
+            case FLUTTER_COMMAND:
+                sendFlutterCommand(keyword);
+                break;
+            case INTENT:
+                sendIntent(keyword);
+                break;
+            case OPEN_APP:
+            default:
+                openApp(detectionNanos);
+                break;
+        }
+    }
+
+    // للواجهة إن كانت تعمل، وإلا يفتح التطبيق مع الأمر لتستهلكه Flutter عند البدء
+    private void sendFlutterCommand(KeywordRegistry.Keyword keyword) {
+        if (keyword.getCommand() == null) {
+            Log.e(TAG, "Keyword '" + keyword.getName() + "' has no command");
+            return;
+        }
+        boolean delivered = bridge != null
+                ? bridge.deliverWakeCommand(keyword.getName(), keyword.getCommand())
+                : MainActivity.deliverWakeCommand(keyword.getName(), keyword.getCommand());
+        if (delivered) {
+            return;
+        }
+        Intent intent = new Intent(this, MainActivity.class);
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP);
+        intent.putExtra(MainActivity.EXTRA_WAKE_KEYWORD, keyword.getName());
+        intent.putExtra(MainActivity.EXTRA_WAKE_COMMAND, keyword.getCommand());
+        startActivity(intent);
+    }
 
-        voiceIdService.verifyVoice(this, audioBuffer, callback);
+    private void sendIntent(KeywordRegistry.Keyword keyword) {
+        if (keyword.getCommand() == null) {
+            Log.e(TAG, "Keyword '" + keyword.getName() + "' has no intent action");
+            return;
+        }
+        Intent intent = new Intent(keyword.getCommand());
+        if (keyword.getIntentPackage() != null) {
+            intent.setPackage(keyword.getIntentPackage());
+        }
+        try {
+            if (keyword.isBroadcast()) {
+                sendBroadcast(intent);
+            } else {
+                intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+                startActivity(intent);
+            }
+            Log.d(TAG, "Intent " + keyword.getCommand() + " sent for '" + keyword.getName() + "'");
+        } catch (ActivityNotFoundException e) {
+            Log.e(TAG, "No activity for " + keyword.getCommand());
+        }
     }
 
-    private void openApp() {
+    private void openApp(long detectionNanos) {
         Log.d(TAG, "Trying to open app using AccessibilityService...");
 
         if (AutoOpenAccessibilityService.getInstance() != null) {
-            AutoOpenAccessibilityService.launchApp(AutoOpenAccessibilityService.getInstance());
+            AutoOpenAccessibilityService.launchApp(AutoOpenAccessibilityService.getInstance(), detectionNanos);
+            metrics.recordAppLaunch(detectionNanos);
             Log.d(TAG, "App launched using AccessibilityService");
             return;
         }
@@ -183,7 +653,9 @@ public class PorcupainService extends Service {
         Intent launchIntent = getPackageManager().getLaunchIntentForPackage(getPackageName());
         if (launchIntent != null) {
             launchIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+            launchIntent.putExtra(MainActivity.EXTRA_WAKE_NANOS, detectionNanos);
             startActivity(launchIntent);
+            metrics.recordAppLaunch(detectionNanos);
             Log.d(TAG, "App launched via getLaunchIntentForPackage");
         } else {
             Log.e(TAG, "Launch intent is null.");
@@ -194,12 +666,31 @@ public class PorcupainService extends Service {
         NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
                 .setSmallIcon(android.R.drawable.ic_btn_speak_now)
                 .setContentTitle("Voice Detection Active")
-                .setContentText("Listening for the wake word...")
+                .setContentText(notificationText())
                 .setPriority(NotificationCompat.PRIORITY_LOW)
                 .setOngoing(true);
         return builder.build();
     }
 
+    private String notificationText() {
+        if (userPaused) {
+            return "Paused while the app is open";
+        }
+        if (listeningPending) {
+            return "Starting wake word detection...";
+        }
+        ListeningScheduler.Mode mode = scheduler != null ? scheduler.getMode() : ListeningScheduler.Mode.CONTINUOUS;
+        switch (mode) {
+            case SUSPENDED:
+                return "Paused to protect battery and temperature";
+            case DUTY_CYCLE:
+            case REDUCED:
+                return "Listening for the wake word (power saving)";
+            default:
+                return "Listening for the wake word...";
+        }
+    }
+
     private void createNotificationChannel() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationChannel channel = new NotificationChannel(
@@ -214,21 +705,65 @@ public class PorcupainService extends Service {
 
     @Override
     public void onDestroy() {
+        destroyed = true;
         isRunning = false;
-        isRecording = false;
-        if (audioRecord != null) {
-            audioRecord.stop();
-            audioRecord.release();
-            audioRecord = null;
+        mainHandler.removeCallbacks(dutyCycleToggle);
+        mainHandler.removeCallbacks(warmFlutterEngine);
+        if (engineInit != null) {
+            engineInit.cancel();
+            engineInit = null;
+        }
+        if (bridge != null) {
+            bridge.close();
+            bridge = null;
         }
-        if (porcupineManager != null) {
+        if (profileObserver != null) {
+            profileObserver.stopWatching();
+            profileObserver = null;
+        }
+        EagleEngineRegistry.getInstance(this).removeChangeListener(profilesChanged);
+        if (powerMonitor != null) {
+            powerMonitor.stop();
+            powerMonitor = null;
+        }
+        if (captureEngine != null) {
+            captureEngine.stop();
+            captureEngine = null;
+        }
+        synchronized (this) {
+            if (wakeWordPipeline != null) {
+                Log.d(TAG, "Wake word frames processed: " + wakeWordPipeline.getFramesProcessed()
+                        + ", skipped by VAD: " + wakeWordPipeline.getFramesSkipped());
+                WakeWordEngine pending = wakeWordPipeline.takePendingEngine();
+                if (pending != null) {
+                    pending.delete();
+                }
+                wakeWordPipeline = null;
+            }
+        }
+        if (verificationExecutor != null) {
+            verificationExecutor.shutdown();
             try {
-                porcupineManager.stop();
-                porcupineManager.delete();
-                Log.d(TAG, "PorcupineManager stopped and deleted");
-            } catch (PorcupineException e) {
-                Log.e(TAG, "Error stopping PorcupineManager: " + e.getMessage());
+                if (!verificationExecutor.awaitTermination(VERIFY_SHUTDOWN_MILLIS)) {
+                    Log.w(TAG, "Verification still running after " + VERIFY_SHUTDOWN_MILLIS + " ms");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
+            verificationExecutor = null;
+        }
+        if (audioSource != null) {
+            audioSource.release();
+            audioSource = null;
+        }
+        if (wakeWordEngine != null) {
+            wakeWordEngine.delete();
+            wakeWordEngine = null;
+            Log.d(TAG, "Porcupine deleted");
+        }
+        if (voiceIdService != null) {
+            voiceIdService.close();
+            voiceIdService = null;
         }
         super.onDestroy();
         Log.d(TAG, "Service Destroyed");
@@ -236,6 +771,6 @@ public class PorcupainService extends Service {
 
     @Override
     public IBinder onBind(Intent intent) {
-        return null;
+        return bridge != null ? bridge.getBinder() : binder;
     }
 }
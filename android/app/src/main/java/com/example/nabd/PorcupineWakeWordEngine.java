@@ -0,0 +1,89 @@
+package com.example.nabd;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.List;
+
+import ai.picovoice.porcupine.Porcupine;
+import ai.picovoice.porcupine.PorcupineException;
+
+public class PorcupineWakeWordEngine implements WakeWordEngine {
+    private static final String TAG = "PorcupineWakeWordEngine";
+    // النموذج الافتراضي في موارد مكتبة Porcupine (res/raw)
+    private static final String MODEL_RESOURCE = "porcupine_params";
+    private static final String MODEL_FILE = "porcupine_params.pv";
+    private final Porcupine porcupine;
+    private final List<KeywordRegistry.Keyword> keywords;
+
+    public PorcupineWakeWordEngine(Porcupine porcupine) {
+        this(porcupine, null);
+    }
+
+    private PorcupineWakeWordEngine(Porcupine porcupine, List<KeywordRegistry.Keyword> keywords) {
+        this.porcupine = porcupine;
+        this.keywords = keywords;
+    }
+
+    // كل الكلمات في نسخة واحدة: Porcupine يقيّمها في نفس المرور على الإطار.
+    // رقم الكلمة المكتشفة هو ترتيبها في keywords
+    public static PorcupineWakeWordEngine create(Context context, String accessKey,
+                                                 List<KeywordRegistry.Keyword> keywords) throws PorcupineException {
+        EngineAssetCache cache = EngineAssetCache.getInstance(context);
+        String[] paths = new String[keywords.size()];
+        float[] sensitivities = new float[keywords.size()];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = cachedPath(cache, keywords.get(i).getPath());
+            sensitivities[i] = keywords.get(i).getSensitivity();
+        }
+        Porcupine.Builder builder = new Porcupine.Builder()
+                .setAccessKey(accessKey)
+                .setKeywordPaths(paths)
+                .setSensitivities(sensitivities);
+        String modelPath = cachedModelPath(cache);
+        if (modelPath != null) {
+            builder.setModelPath(modelPath);
+        }
+        return new PorcupineWakeWordEngine(builder.build(context), keywords);
+    }
+
+    // بدون نسخة محفوظة يبقى المسار الأصلي فينسخه Porcupine بنفسه كما كان
+    private static String cachedPath(EngineAssetCache cache, String path) {
+        try {
+            return cache.resolveAsset(path);
+        } catch (IOException e) {
+            Log.e(TAG, "Keyword " + path + " not cached: " + e.getMessage());
+            return path;
+        }
+    }
+
+    private static String cachedModelPath(EngineAssetCache cache) {
+        try {
+            return cache.resolveRaw(MODEL_RESOURCE, MODEL_FILE);
+        } catch (IOException e) {
+            Log.e(TAG, "Porcupine model not cached: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // الكلمات التي بُني بها المحرك، أو null إذا أُنشئ من Porcupine جاهز
+    public List<KeywordRegistry.Keyword> getKeywords() {
+        return keywords;
+    }
+
+    @Override
+    public int getFrameLength() {
+        return porcupine.getFrameLength();
+    }
+
+    @Override
+    public int process(short[] frame) throws Exception {
+        return porcupine.process(frame);
+    }
+
+    @Override
+    public void delete() {
+        porcupine.delete();
+    }
+}
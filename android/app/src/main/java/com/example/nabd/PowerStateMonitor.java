@@ -0,0 +1,95 @@
+package com.example.nabd;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.util.Log;
+
+// يحول أحداث الشاشة والبطارية والحرارة إلى ListeningScheduler على الخيط الرئيسي
+public class PowerStateMonitor {
+    private static final String TAG = "PowerStateMonitor";
+
+    private final Context context;
+    private final ListeningScheduler scheduler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private PowerManager.OnThermalStatusChangedListener thermalListener;
+    private boolean started = false;
+
+    private final BroadcastReceiver receiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            String action = intent.getAction();
+            if (Intent.ACTION_SCREEN_ON.equals(action)) {
+                scheduler.onScreen(true);
+            } else if (Intent.ACTION_SCREEN_OFF.equals(action)) {
+                scheduler.onScreen(false);
+            } else if (Intent.ACTION_BATTERY_CHANGED.equals(action)) {
+                onBatteryChanged(intent);
+            }
+        }
+    };
+
+    public PowerStateMonitor(Context context, ListeningScheduler scheduler) {
+        this.context = context.getApplicationContext();
+        this.scheduler = scheduler;
+    }
+
+    public void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        if (pm != null) {
+            scheduler.onScreen(pm.isInteractive());
+        }
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        filter.addAction(Intent.ACTION_BATTERY_CHANGED);
+        // BATTERY_CHANGED ثابت (sticky): التسجيل يرجع الحالة الحالية مباشرة
+        Intent battery = context.registerReceiver(receiver, filter);
+        if (battery != null) {
+            onBatteryChanged(battery);
+        }
+
+        if (pm != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            thermalListener = scheduler::onThermal;
+            pm.addThermalStatusChangedListener(mainHandler::post, thermalListener);
+            scheduler.onThermal(pm.getCurrentThermalStatus());
+        }
+        Log.d(TAG, "Monitoring power state: " + scheduler);
+    }
+
+    public void stop() {
+        if (!started) {
+            return;
+        }
+        started = false;
+        context.unregisterReceiver(receiver);
+        if (thermalListener != null) {
+            PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+            if (pm != null) {
+                pm.removeThermalStatusChangedListener(thermalListener);
+            }
+            thermalListener = null;
+        }
+    }
+
+    private void onBatteryChanged(Intent intent) {
+        int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        if (level < 0 || scale <= 0) {
+            return;
+        }
+        boolean charging = intent.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+        scheduler.onBattery(level * 100 / scale, charging);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.nabd;
+
+// y[n] = x[n] - a * x[n-1]: يرفع الترددات العالية. اختياري لأن البصمات المسجلة بدونه لا تطابق صوتًا معه
+public class PreEmphasis implements FrameProcessor {
+    // a = 0.97
+    public static final int DEFAULT_COEFFICIENT_Q15 = 31785;
+
+    private final int coefficientQ15;
+    private int previousInput = 0;
+
+    public PreEmphasis() {
+        this(DEFAULT_COEFFICIENT_Q15);
+    }
+
+    public PreEmphasis(int coefficientQ15) {
+        this.coefficientQ15 = coefficientQ15;
+    }
+
+    @Override
+    public void process(short[] frame, int length) {
+        int previous = previousInput;
+        for (int i = 0; i < length; i++) {
+            int x = frame[i];
+            frame[i] = DcBlocker.saturate(x - ((coefficientQ15 * previous + (1 << 14)) >> 15));
+            previous = x;
+        }
+        previousInput = previous;
+    }
+
+    @Override
+    public void reset() {
+        previousInput = 0;
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.nabd;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.RemoteException;
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// طرف MainActivity لخدمة الاستماع في عملية :listener. الأنماط تصل مع كل تغيير فتُقرأ بلا انتظار؛
+// المقاييس وصوت التنبيه ترد لاحقًا على الخيط الرئيسي برقم الطلب.
+public class RemoteListenerClient implements ListenerControl, Handler.Callback {
+    private static final String TAG = "RemoteListenerClient";
+
+    private final Context context;
+    private final Messenger service;
+    private final Messenger replies = new Messenger(new Handler(Looper.getMainLooper(), this));
+    private final Map<Integer, MetricsCallback> metricsRequests = new HashMap<>();
+    private final Map<Integer, WakeAudioHandoff.ClipConsumer> clipRequests = new HashMap<>();
+    private int nextRequest = 1;
+    private ListeningScheduler.Mode listeningMode;
+    private VoiceIdService.Mode verificationMode = VoiceIdService.Mode.ON_DEMAND;
+
+    public RemoteListenerClient(Context context, IBinder binder) {
+        this.context = context.getApplicationContext();
+        this.service = new Messenger(binder);
+        send(Message.obtain(null, ListenerProtocol.MSG_REGISTER_CLIENT));
+    }
+
+    // عند فك الربط أو موت العملية: الطلبات المعلقة ترد بما هو متاح هنا
+    public void close() {
+        send(Message.obtain(null, ListenerProtocol.MSG_UNREGISTER_CLIENT));
+        for (MetricsCallback callback : new ArrayList<>(metricsRequests.values())) {
+            callback.onMetrics(ListeningMetrics.getInstance().snapshot());
+        }
+        metricsRequests.clear();
+        for (WakeAudioHandoff.ClipConsumer consumer : new ArrayList<>(clipRequests.values())) {
+            consumer.accept(null);
+        }
+        clipRequests.clear();
+    }
+
+    @Override
+    public void pauseListening() {
+        send(Message.obtain(null, ListenerProtocol.MSG_PAUSE));
+    }
+
+    @Override
+    public void setListeningProfile(ListeningScheduler.Profile profile) {
+        Message message = Message.obtain(null, ListenerProtocol.MSG_SET_PROFILE);
+        Bundle data = new Bundle();
+        data.putString(ListenerProtocol.KEY_PROFILE, profile.name());
+        message.setData(data);
+        send(message);
+    }
+
+    @Override
+    public ListeningScheduler.Mode getListeningMode() {
+        return listeningMode;
+    }
+
+    @Override
+    public void setSpeculativeVerification(boolean enabled) {
+        send(Message.obtain(null, ListenerProtocol.MSG_SET_SPECULATIVE, 0, enabled ? 1 : 0));
+    }
+
+    @Override
+    public VoiceIdService.Mode getVerificationMode() {
+        return verificationMode;
+    }
+
+    @Override
+    public void reloadKeywords() {
+        send(Message.obtain(null, ListenerProtocol.MSG_RELOAD_KEYWORDS));
+    }
+
+    @Override
+    public boolean takeWakeAudio(WakeAudioHandoff.ClipConsumer consumer) {
+        int request = nextRequest++;
+        if (!send(Message.obtain(null, ListenerProtocol.MSG_TAKE_WAKE_AUDIO, request, 0))) {
+            return false;
+        }
+        clipRequests.put(request, consumer);
+        return true;
+    }
+
+    @Override
+    public void requestMetrics(MetricsCallback callback) {
+        int request = nextRequest++;
+        if (!send(Message.obtain(null, ListenerProtocol.MSG_GET_METRICS, request, 0))) {
+            callback.onMetrics(ListeningMetrics.getInstance().snapshot());
+            return;
+        }
+        metricsRequests.put(request, callback);
+    }
+
+    @Override
+    public void resetMetrics() {
+        send(Message.obtain(null, ListenerProtocol.MSG_RESET_METRICS));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean handleMessage(Message msg) {
+        Bundle data = msg.getData();
+        switch (msg.what) {
+            case ListenerProtocol.MSG_STATE:
+                String mode = data.getString(ListenerProtocol.KEY_LISTENING_MODE);
+                listeningMode = mode != null ? ListeningScheduler.Mode.valueOf(mode) : null;
+                verificationMode =
+                        VoiceIdService.Mode.valueOf(data.getString(ListenerProtocol.KEY_VERIFICATION_MODE));
+                return true;
+            case ListenerProtocol.MSG_METRICS: {
+                MetricsCallback callback = metricsRequests.remove(msg.arg1);
+                if (callback != null) {
+                    Map<String, Object> metrics =
+                            (Map<String, Object>) data.getSerializable(ListenerProtocol.KEY_METRICS);
+                    callback.onMetrics(withLocalMetrics(metrics));
+                }
+                return true;
+            }
+            case ListenerProtocol.MSG_WAKE_AUDIO: {
+                WakeAudioHandoff.ClipConsumer consumer = clipRequests.remove(msg.arg1);
+                if (consumer != null) {
+                    consumer.accept(toClip(data.getByteArray(ListenerProtocol.KEY_CLIP)));
+                }
+                return true;
+            }
+            case ListenerProtocol.MSG_WAKE_EVENTS:
+                List<?> events = (List<?>) data.getSerializable(ListenerProtocol.KEY_EVENTS);
+                WakeEventStream.getInstance().publishBatch(events);
+                return true;
+            case ListenerProtocol.MSG_WAKE_COMMAND:
+                deliverWakeCommand(data.getString(ListenerProtocol.KEY_KEYWORD),
+                        data.getString(ListenerProtocol.KEY_COMMAND));
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // أول إطار Flutter يُقاس في هذه العملية، والذاكرة هنا للمقارنة مع عملية الخدمة
+    private static Map<String, Object> withLocalMetrics(Map<String, Object> remote) {
+        Map<String, Object> local = ListeningMetrics.getInstance().snapshot();
+        if (remote == null) {
+            return local;
+        }
+        remote.put("firstFrameWarmMillis", local.get("firstFrameWarmMillis"));
+        remote.put("firstFrameColdMillis", local.get("firstFrameColdMillis"));
+        remote.put("uiPssKb", Debug.getPss());
+        return remote;
+    }
+
+    // الواجهة مسجلة لكن محرك Flutter غير مرتبط: نفتح التطبيق مع الأمر كما تفعل الخدمة
+    private void deliverWakeCommand(String keyword, String command) {
+        if (MainActivity.deliverWakeCommand(keyword, command)) {
+            return;
+        }
+        Intent intent = new Intent(context, MainActivity.class);
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP);
+        intent.putExtra(MainActivity.EXTRA_WAKE_KEYWORD, keyword);
+        intent.putExtra(MainActivity.EXTRA_WAKE_COMMAND, command);
+        context.startActivity(intent);
+    }
+
+    // نفس شكل WakeAudioHandoff: مباشر، والموضع عند نهاية البيانات
+    private static ByteBuffer toClip(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        ByteBuffer clip = ByteBuffer.allocateDirect(bytes.length).order(ByteOrder.LITTLE_ENDIAN);
+        clip.put(bytes);
+        return clip;
+    }
+
+    private boolean send(Message message) {
+        message.replyTo = replies;
+        try {
+            service.send(message);
+            return true;
+        } catch (RemoteException e) {
+            Log.e(TAG, "Listener process unreachable: " + e.getMessage());
+            return false;
+        }
+    }
+}
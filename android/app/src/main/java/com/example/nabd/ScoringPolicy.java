@@ -0,0 +1,29 @@
+package com.example.nabd;
+
+import java.util.Set;
+
+// سياسة قرار التحقق: كيف تُجمّع درجات الإطارات (DecisionRule)، ما الحد الفعلي لكل متحدث
+// في هذه الجلسة، وكيف تتحول درجة القرار إلى ثقة معايرة. لا تعتمد على Android حتى تُقيّم
+// على سجلات درجات مصنفة خارج الجهاز.
+public interface ScoringPolicy {
+    enum Reason {
+        ABOVE_THRESHOLD,
+        BELOW_THRESHOLD,
+        // رُفض قبل نهاية الصوت لأن الإطارات المتبقية لا تكفي للقبول
+        EARLY_REJECT,
+        LOW_SNR_RELAXED,
+        TOO_NOISY,
+        CALIBRATION_RAISED,
+        NOT_CALIBRATED
+    }
+
+    DecisionRule getRule();
+
+    // الحد الفعلي؛ snrDb قد يكون SnrEstimator.UNKNOWN. يضيف أسباب التعديل إلى reasons إن لم يكن null
+    float thresholdFor(String speaker, float enrolledThreshold, float snrDb, Set<Reason> reasons);
+
+    // ثقة بين 0 و 1، تساوي 0.5 عند الحد تمامًا
+    float confidence(String speaker, float decisionScore, float threshold);
+
+    void onAccepted(String speaker, float decisionScore, float snrDb);
+}
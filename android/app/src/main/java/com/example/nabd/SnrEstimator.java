@@ -0,0 +1,35 @@
+package com.example.nabd;
+
+import java.util.Arrays;
+
+// تقدير نسبة الإشارة إلى الضوضاء من نفس مقطع التحقق: طاقة الإطارات الأعلى (كلام)
+// مقابل الأدنى (ضوضاء الخلفية)، بدون VAD منفصل
+public final class SnrEstimator {
+    // النسب المئوية لطاقات الإطارات المعتبرة ضوضاءً وكلامًا
+    private static final double NOISE_PERCENTILE = 0.10;
+    private static final double SPEECH_PERCENTILE = 0.90;
+    // أقل من هذا يُعد صمتًا رقميًا (يمنع القسمة على صفر)
+    private static final long MIN_ENERGY = 1;
+    public static final float UNKNOWN = Float.NaN;
+
+    private SnrEstimator() {
+    }
+
+    // بالـ dB؛ UNKNOWN إذا كان الصوت أقصر من إطارين
+    public static float estimateDb(short[] audio, int length, int frameLength) {
+        int numFrames = length / frameLength;
+        if (numFrames < 2) {
+            return UNKNOWN;
+        }
+        long[] energies = new long[numFrames];
+        short[] frame = new short[frameLength];
+        for (int i = 0; i < numFrames; i++) {
+            System.arraycopy(audio, i * frameLength, frame, 0, frameLength);
+            energies[i] = VoiceActivityGate.frameEnergy(frame, frameLength);
+        }
+        Arrays.sort(energies);
+        long noise = Math.max(MIN_ENERGY, energies[(int) (NOISE_PERCENTILE * (numFrames - 1))]);
+        long speech = Math.max(MIN_ENERGY, energies[(int) Math.ceil(SPEECH_PERCENTILE * (numFrames - 1))]);
+        return (float) (10.0 * Math.log10((double) speech / noise));
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.nabd;
+
+import java.util.Locale;
+
+// إحصاءات درجات القبول الأخيرة لمتحدث واحد (متوسط وتباين أسّيان)،
+// تُستخدم لضبط حده ولمعايرة الثقة
+public final class SpeakerCalibration {
+    private final float mean;
+    private final float variance;
+    private final int sessions;
+
+    public SpeakerCalibration(float mean, float variance, int sessions) {
+        this.mean = mean;
+        this.variance = Math.max(0f, variance);
+        this.sessions = Math.max(0, sessions);
+    }
+
+    // يضيف جلسة مقبولة بوزن alpha (الجلسات الأولى تأخذ متوسطًا عاديًا حتى 1/alpha جلسة)
+    public SpeakerCalibration add(float score, float alpha) {
+        if (sessions == 0) {
+            return new SpeakerCalibration(score, 0f, 1);
+        }
+        float weight = Math.max(alpha, 1f / (sessions + 1));
+        float delta = score - mean;
+        float newMean = mean + weight * delta;
+        float newVariance = (1f - weight) * (variance + weight * delta * delta);
+        return new SpeakerCalibration(newMean, newVariance, sessions + 1);
+    }
+
+    public float getMean() {
+        return mean;
+    }
+
+    public float getStdDev() {
+        return (float) Math.sqrt(variance);
+    }
+
+    public int getSessions() {
+        return sessions;
+    }
+
+    public String serialize() {
+        return String.format(Locale.US, "%f,%f,%d", mean, variance, sessions);
+    }
+
+    // null إذا كانت القيمة تالفة
+    public static SpeakerCalibration parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        String[] parts = value.split(",");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            return new SpeakerCalibration(Float.parseFloat(parts[0]), Float.parseFloat(parts[1]),
+                    Integer.parseInt(parts[2]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
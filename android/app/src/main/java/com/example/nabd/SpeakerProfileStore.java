@@ -0,0 +1,336 @@
+package com.example.nabd;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// مجلد بصمات متعددة مع ملف فهرس: سطر لكل متحدث "الاسم<TAB>الحد<TAB>اسم الملف".
+// كل كتابة تذهب لملف مؤقت ثم fsync ثم rename، فانقطاع العملية يترك النسخة القديمة أو الجديدة كاملة.
+// ملف البصمة: "NBDP" + إصدار + الطول + CRC32 + سلسلة المعالجة (AudioFrontEnd.CONFIG_*) ثم بيانات Eagle؛
+// الملفات القديمة بدون رأس أو بالإصدار 1 تُقرأ كما هي وتُعد مسجلة على صوت خام.
+// الفهرس يُقرأ من القرص مرة واحدة ويبقى في الذاكرة.
+public class SpeakerProfileStore {
+    private static final String TAG = "SpeakerProfileStore";
+    private static final String PROFILE_DIR = "voice_profiles";
+    static final String INDEX_FILE = "index";
+    private static final String TEMP_SUFFIX = ".tmp";
+    static final String DEFAULT_SPEAKER = "default";
+
+    private static final int MAGIC = 0x4E424450;
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_BYTES_V1 = 16;
+    private static final int HEADER_BYTES = 20;
+
+    public static final class Entry {
+        private final String name;
+        private final float threshold;
+        private final String fileName;
+        private final int frontEnd;
+
+        Entry(String name, float threshold, String fileName, int frontEnd) {
+            this.name = name;
+            this.threshold = threshold;
+            this.fileName = fileName;
+            this.frontEnd = frontEnd;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public float getThreshold() {
+            return threshold;
+        }
+
+        // سلسلة المعالجة التي سُجلت البصمة عبرها
+        public int getFrontEnd() {
+            return frontEnd;
+        }
+
+        String getFileName() {
+            return fileName;
+        }
+    }
+
+    private final File directory;
+    private final File legacyProfile;
+    // null حتى أول قراءة للفهرس
+    private List<Entry> cachedEntries;
+
+    public SpeakerProfileStore(Context context) {
+        this.directory = new File(context.getFilesDir(), PROFILE_DIR);
+        this.legacyProfile = new File(context.getFilesDir(), VoiceIdService.PROFILE_FILE);
+    }
+
+    // مجلد البصمات والفهرس؛ قد لا يكون موجودًا قبل أول تسجيل
+    public File getDirectory() {
+        return directory;
+    }
+
+    public synchronized List<Entry> list() {
+        if (cachedEntries == null) {
+            migrateLegacyProfile();
+            deleteTempFiles();
+            cachedEntries = readIndex();
+        }
+        return new ArrayList<>(cachedEntries);
+    }
+
+    private List<Entry> readIndex() {
+        List<Entry> result = new ArrayList<>();
+        File index = new File(directory, INDEX_FILE);
+        if (!index.exists()) {
+            return result;
+        }
+        try {
+            String text = new String(readFully(index), StandardCharsets.UTF_8);
+            for (String line : text.split("\n")) {
+                String[] parts = line.split("\t");
+                if (parts.length == 3) {
+                    result.add(new Entry(parts[0], Float.parseFloat(parts[1]), parts[2],
+                            readFrontEnd(new File(directory, parts[2]))));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            Log.e(TAG, "Failed to read profile index: " + e.getMessage(), e);
+        }
+        return result;
+    }
+
+    // الفهرس تغير من عملية أخرى (الواجهة مع خدمة في :listener)؛ القراءة التالية من القرص
+    public synchronized void invalidate() {
+        cachedEntries = null;
+    }
+
+    // السلسلة التي يجب أن يمر بها الصوت ليُقارن بالبصمات الحالية؛ preferred إذا لا توجد بصمات.
+    // التسجيل يستخدم نفس الدالة فكل البصمات على سلسلة واحدة، والقديمة على الخام حتى يُعاد التسجيل.
+    // replacing: البصمة التي يعيد التسجيل كتابتها لا تُحسب (null لخدمة الاستماع)
+    public synchronized int enrolledFrontEnd(int preferred, String replacing) {
+        int frontEnd = -1;
+        for (Entry entry : list()) {
+            if (entry.getName().equals(replacing)) {
+                continue;
+            }
+            if (frontEnd == -1) {
+                frontEnd = entry.getFrontEnd();
+            } else if (entry.getFrontEnd() != frontEnd) {
+                Log.w(TAG, "Profiles enrolled with different front ends; using the oldest");
+                break;
+            }
+        }
+        return frontEnd == -1 ? preferred : frontEnd;
+    }
+
+    public synchronized boolean isEmpty() {
+        return list().isEmpty();
+    }
+
+    public synchronized boolean contains(String name) {
+        return find(list(), name) != null;
+    }
+
+    // يرمي IOException إذا كان الملف ناقصًا أو لا يطابق الـ CRC
+    public synchronized byte[] read(Entry entry) throws IOException {
+        File file = new File(directory, entry.getFileName());
+        return decode(readFully(file), file);
+    }
+
+    // يضيف المتحدث أو يستبدل بصمته إذا كان موجودًا
+    public synchronized void save(String name, byte[] profile, float threshold, int frontEnd) throws IOException {
+        List<Entry> entries = list();
+        Entry existing = find(entries, name);
+        String fileName = existing != null ? existing.getFileName() : newFileName();
+        if (existing != null) {
+            entries.remove(existing);
+        }
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        writeAtomically(new File(directory, fileName), encode(profile, frontEnd));
+        entries.add(new Entry(name, threshold, fileName, frontEnd));
+        writeIndex(entries);
+    }
+
+    public synchronized boolean remove(String name) throws IOException {
+        List<Entry> entries = list();
+        Entry entry = find(entries, name);
+        if (entry == null) {
+            return false;
+        }
+        entries.remove(entry);
+        writeIndex(entries);
+        new File(directory, entry.getFileName()).delete();
+        return true;
+    }
+
+    public synchronized void clear() {
+        cachedEntries = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        if (legacyProfile.exists()) {
+            legacyProfile.delete();
+        }
+    }
+
+    // ينقل voice_profile.bin القديم إلى المجلد الجديد باسم المتحدث الافتراضي
+    private void migrateLegacyProfile() {
+        if (!legacyProfile.exists() || new File(directory, INDEX_FILE).exists()) {
+            return;
+        }
+        if (!directory.exists() && !directory.mkdirs()) {
+            return;
+        }
+        String fileName = newFileName();
+        if (legacyProfile.renameTo(new File(directory, fileName))) {
+            List<Entry> entries = new ArrayList<>();
+            entries.add(new Entry(DEFAULT_SPEAKER, VoiceIdService.MATCH_THRESHOLD, fileName, AudioFrontEnd.CONFIG_RAW));
+            try {
+                writeIndex(entries);
+                Log.d(TAG, "Migrated legacy voice profile");
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to migrate legacy voice profile: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void writeIndex(List<Entry> entries) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (Entry entry : entries) {
+            text.append(entry.getName()).append('\t').append(entry.getThreshold())
+                    .append('\t').append(entry.getFileName()).append('\n');
+        }
+        writeAtomically(new File(directory, INDEX_FILE), text.toString().getBytes(StandardCharsets.UTF_8));
+        cachedEntries = new ArrayList<>(entries);
+    }
+
+    private static void writeAtomically(File target, byte[] data) throws IOException {
+        File temp = new File(target.getParentFile(), target.getName() + TEMP_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(data);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Failed to replace " + target);
+        }
+    }
+
+    // بقايا كتابة انقطعت قبل rename
+    private void deleteTempFiles() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.getName().endsWith(TEMP_SUFFIX) && file.delete()) {
+                Log.w(TAG, "Deleted incomplete write " + file.getName());
+            }
+        }
+    }
+
+    static byte[] encode(byte[] profile, int frontEnd) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + profile.length);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(profile.length).putInt((int) crc(profile, 0, profile.length))
+                .putInt(frontEnd);
+        buffer.put(profile);
+        return buffer.array();
+    }
+
+    static byte[] decode(byte[] data, File file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (data.length < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            // ملف من قبل إضافة الرأس
+            return data;
+        }
+        int version = buffer.getInt();
+        int length = buffer.getInt();
+        int expectedCrc = buffer.getInt();
+        if (version != 1 && version != FORMAT_VERSION) {
+            throw new IOException("Unsupported profile version " + version + " in " + file);
+        }
+        int headerBytes = version == 1 ? HEADER_BYTES_V1 : HEADER_BYTES;
+        if (length != data.length - headerBytes) {
+            throw new IOException("Truncated profile " + file);
+        }
+        if ((int) crc(data, headerBytes, length) != expectedCrc) {
+            throw new IOException("Checksum mismatch in " + file);
+        }
+        byte[] profile = new byte[length];
+        System.arraycopy(data, headerBytes, profile, 0, length);
+        return profile;
+    }
+
+    // من الرأس فقط بدون قراءة البصمة كاملة؛ الملفات القديمة (وغير المقروءة) على الخام
+    private static int readFrontEnd(File file) {
+        byte[] header = new byte[HEADER_BYTES];
+        try (FileInputStream fis = new FileInputStream(file)) {
+            int offset = 0;
+            while (offset < header.length) {
+                int read = fis.read(header, offset, header.length - offset);
+                if (read < 0) {
+                    return AudioFrontEnd.CONFIG_RAW;
+                }
+                offset += read;
+            }
+        } catch (IOException e) {
+            return AudioFrontEnd.CONFIG_RAW;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(header);
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+            return AudioFrontEnd.CONFIG_RAW;
+        }
+        return buffer.getInt(16);
+    }
+
+    private static long crc(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return crc.getValue();
+    }
+
+    private static byte[] readFully(File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        try (FileInputStream fis = new FileInputStream(file)) {
+            int offset = 0;
+            while (offset < data.length) {
+                int read = fis.read(data, offset, data.length - offset);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of " + file);
+                }
+                offset += read;
+            }
+        }
+        return data;
+    }
+
+    private String newFileName() {
+        return "profile_" + System.currentTimeMillis() + ".bin";
+    }
+
+    private static Entry find(List<Entry> entries, String name) {
+        for (Entry entry : entries) {
+            if (entry.getName().equals(name)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    // يمنع الأحرف التي تكسر صيغة الفهرس
+    static String sanitizeName(String name) {
+        return name == null ? "" : name.replace('\t', ' ').replace('\n', ' ').trim();
+    }
+}
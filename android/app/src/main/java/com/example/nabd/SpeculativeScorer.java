@@ -0,0 +1,241 @@
+package com.example.nabd;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.LockSupport;
+
+// تقييم مضارب للمتحدث: أثناء الكلام (بوابة VAD مفتوحة) يقرأ خيط منخفض الأولوية إطارات الـ pre-roll
+// ويمررها لـ Eagle، ويحفظ درجات كل إطار في نافذة دائرية مفهرسة بتسلسل العينات. عند الاكتشاف يصبح
+// القرار مرورًا على درجات جاهزة بدل تشغيل Eagle على ثانيتين من الصوت.
+// onFrame على خيط الالتقاط (بلا نسخ ولا تخصيص)؛ التقييم على خيط العامل؛ collect و replay على خيط التحقق.
+public class SpeculativeScorer implements FrameListener {
+    public interface Backend {
+        // درجة لكل بصمة، أو null إذا لا توجد بصمة؛ reset يبدأ حالة المحرك من جديد قبل هذا الإطار
+        float[] score(short[] frame, boolean reset) throws Exception;
+    }
+
+    private final AudioRingBuffer ring;
+    private final VoiceActivityGate gate;
+    private final Backend backend;
+    private final int frameLength;
+    private final int windowFrames;
+    private final int onsetFrames;
+    private final Thread worker;
+
+    // خيط الالتقاط ← العامل
+    private volatile boolean running = true;
+    private volatile boolean active = false;
+    private volatile int openEpoch = 0;
+    private volatile long openSequence = 0;
+    private volatile long closedAt = 0;
+    private volatile boolean resetRequested = true;
+
+    // العامل فقط
+    private final short[] frame;
+    private long readSequence = -1;
+    private int seenEpoch = 0;
+
+    // النافذة: العامل يكتب والتحقق يقرأ تحت windowLock
+    private final Object windowLock = new Object();
+    private final long[] slotSequence;
+    private float[][] slotScores = new float[0][];
+    private int profileCount = 0;
+    private long scoredUpTo = 0;
+
+    // خيط التحقق فقط
+    private float[][] collected = new float[0][];
+    private int collectedProfiles = 0;
+    private int replayIndex;
+    private final short[] replayFrame;
+    private final StreamingVerifier verifier;
+
+    private ListeningMetrics metrics;
+
+    public SpeculativeScorer(AudioRingBuffer ring, VoiceActivityGate gate, Backend backend, int frameLength,
+                             int windowMillis, int onsetFrames, ThreadFactory threadFactory) {
+        this.ring = ring;
+        this.gate = gate;
+        this.backend = backend;
+        this.frameLength = frameLength;
+        this.windowFrames = Math.max(1, ring.samplesFor(windowMillis) / frameLength);
+        this.onsetFrames = onsetFrames;
+        this.frame = new short[frameLength];
+        this.replayFrame = new short[frameLength];
+        this.slotSequence = new long[windowFrames];
+        Arrays.fill(slotSequence, -1);
+        this.verifier = new StreamingVerifier(new FrameScorer() {
+            @Override
+            public void reset() {
+                replayIndex = 0;
+            }
+
+            @Override
+            public float[] score(short[] ignored) {
+                return collected[replayIndex++];
+            }
+        }, frameLength, null);
+        this.worker = threadFactory.newThread(this::workLoop);
+        this.worker.start();
+    }
+
+    // يُضبط قبل أول إطار
+    public void setMetrics(ListeningMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public int getWindowFrames() {
+        return windowFrames;
+    }
+
+    // بعد WakeWordPipeline في ترتيب المستمعين حتى تكون البوابة والـ pre-roll محدثين لهذا الإطار
+    @Override
+    public void onFrame(short[] frame, int length) {
+        if (gate.isOpen()) {
+            if (!active) {
+                openSequence = Math.max(0, ring.getWriteSequence() - (long) (onsetFrames + 1) * frameLength);
+                openEpoch++;
+                active = true;
+            }
+            LockSupport.unpark(worker);
+        } else if (active) {
+            closedAt = ring.getWriteSequence();
+            active = false;
+            LockSupport.unpark(worker);
+        }
+    }
+
+    // بعد تشغيل المحرك نفسه من مسار آخر (التحقق عند الطلب) حالته لم تعد تخص هذا الكلام
+    public void requestReset() {
+        resetRequested = true;
+    }
+
+    public void stop() {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void workLoop() {
+        while (running) {
+            int epoch = openEpoch;
+            if (epoch != seenEpoch) {
+                seenEpoch = epoch;
+                long start = openSequence;
+                if (readSequence < start) {
+                    // فجوة صمت منذ آخر كلام: يبدأ Eagle من جديد كما في التحقق عند الطلب
+                    readSequence = start;
+                    resetRequested = true;
+                }
+            }
+            long target = active ? ring.getWriteSequence() : closedAt;
+            if (readSequence < 0 || readSequence >= target) {
+                LockSupport.park(this);
+                continue;
+            }
+            int read = ring.read(readSequence, frame, frameLength);
+            if (read == 0) {
+                LockSupport.park(this);
+                continue;
+            }
+            if (read < 0) {
+                // تأخر العامل أكثر من طول الـ pre-roll؛ يقفز لأحدث إطار
+                readSequence = ring.getWriteSequence() - frameLength;
+                resetRequested = true;
+                continue;
+            }
+            scoreFrame(readSequence);
+            readSequence += frameLength;
+        }
+    }
+
+    private void scoreFrame(long sequence) {
+        boolean reset = resetRequested;
+        resetRequested = false;
+        float[] scores;
+        long start = System.nanoTime();
+        try {
+            scores = backend.score(frame, reset);
+        } catch (Exception e) {
+            resetRequested = true;
+            return;
+        }
+        ListeningMetrics metrics = this.metrics;
+        if (metrics != null) {
+            // وقت حائطي على خيط منخفض الأولوية: حد أعلى لوقت المعالج الإضافي
+            metrics.speculativeFrames.increment();
+            metrics.speculativeNanos.add(System.nanoTime() - start);
+        }
+        if (scores == null) {
+            return;
+        }
+        synchronized (windowLock) {
+            if (scores.length != profileCount) {
+                // تغيرت البصمات: الدرجات القديمة لا تقارن بالجديدة
+                profileCount = scores.length;
+                slotScores = new float[windowFrames][profileCount];
+                Arrays.fill(slotSequence, -1);
+            }
+            int slot = (int) ((sequence / frameLength) % windowFrames);
+            System.arraycopy(scores, 0, slotScores[slot], 0, profileCount);
+            slotSequence[slot] = sequence;
+            scoredUpTo = sequence + frameLength;
+            windowLock.notifyAll();
+        }
+    }
+
+    // ينسخ درجات الإطارات المقيّمة ضمن النافذة المنتهية عند endSequence بالترتيب الزمني، وينتظر العامل
+    // حتى maxWaitMillis ليلحق بلحظة الاكتشاف. يرجع عدد الإطارات
+    public int collect(long endSequence, long maxWaitMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + maxWaitMillis * 1_000_000L;
+        synchronized (windowLock) {
+            while (scoredUpTo < endSequence && (active || readSequenceBehind(endSequence))) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                windowLock.wait(Math.max(1, remaining / 1_000_000L));
+            }
+            if (collected.length != windowFrames || (windowFrames > 0 && collected[0].length != profileCount)) {
+                collected = new float[windowFrames][profileCount];
+            }
+            collectedProfiles = profileCount;
+            long first = endSequence - (long) windowFrames * frameLength;
+            int count = 0;
+            for (long sequence = Math.max(0, first); sequence < endSequence; sequence += frameLength) {
+                int slot = (int) ((sequence / frameLength) % windowFrames);
+                if (slotSequence[slot] == sequence) {
+                    System.arraycopy(slotScores[slot], 0, collected[count++], 0, profileCount);
+                }
+            }
+            return count;
+        }
+    }
+
+    // الكلام انتهى لكن العامل لم يصل بعد لنهايته
+    private boolean readSequenceBehind(long endSequence) {
+        return scoredUpTo < Math.min(endSequence, closedAt);
+    }
+
+    // عدد البصمات في درجات آخر collect؛ يختلف عن المحرك الحالي إذا تغيرت البصمات أثناء الكلام
+    public int getCollectedProfileCount() {
+        return collectedProfiles;
+    }
+
+    // محقق على الدرجات المحفوظة؛ القاعدة والحدود يضبطها المستدعي قبل replay
+    public StreamingVerifier getVerifier() {
+        return verifier;
+    }
+
+    // يمرر أول count إطارًا من collect عبر قاعدة القرار نفسها المستخدمة في التحقق عند الطلب
+    public StreamingVerifier.Verdict replay(int count) throws Exception {
+        verifier.begin(count);
+        for (int i = 0; i < count && verifier.getVerdict() == StreamingVerifier.Verdict.PENDING; i++) {
+            verifier.offer(replayFrame, 0);
+        }
+        return verifier.getVerdict();
+    }
+}
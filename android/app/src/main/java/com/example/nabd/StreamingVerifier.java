@@ -0,0 +1,249 @@
+package com.example.nabd;
+
+import java.util.Arrays;
+
+// يقيّم الإطارات واحدًا تلو الآخر ويصدر القرار بمجرد تحقق القاعدة لأي بصمة،
+// أو يرفض مبكرًا عندما لا تستطيع الإطارات المتبقية تغيير النتيجة لأي منها
+public class StreamingVerifier {
+    public enum Verdict { PENDING, ACCEPT, REJECT }
+
+    private final FrameScorer scorer;
+    private final short[] frameBuffer;
+    private DecisionRule rule;
+    // حد لكل بصمة؛ null يعني استخدام حد القاعدة للجميع
+    private float[] profileThresholds;
+
+    private int totalFrames;
+    private int framesProcessed;
+    private int[] consecutiveFrames = new int[0];
+    private float[] bestScores = new float[0];
+    private float[] smoothedScores = new float[0];
+    // أعلى k درجات لكل بصمة (مرتبة تنازليًا، k متتالية لكل بصمة) ومجموعها
+    private float[] topScores = new float[0];
+    private float[] topSums = new float[0];
+    private int acceptedIndex = -1;
+    private Verdict verdict = Verdict.PENDING;
+
+    public StreamingVerifier(FrameScorer scorer, int frameLength, DecisionRule rule) {
+        this.scorer = scorer;
+        this.frameBuffer = new short[frameLength];
+        this.rule = rule;
+    }
+
+    public void setRule(DecisionRule rule) {
+        this.rule = rule;
+    }
+
+    public DecisionRule getRule() {
+        return rule;
+    }
+
+    public void setProfileThresholds(float[] thresholds) {
+        this.profileThresholds = thresholds;
+    }
+
+    public int getFrameLength() {
+        return frameBuffer.length;
+    }
+
+    public void begin(int totalFrames) throws Exception {
+        this.totalFrames = totalFrames;
+        framesProcessed = 0;
+        acceptedIndex = -1;
+        Arrays.fill(consecutiveFrames, 0);
+        Arrays.fill(bestScores, 0f);
+        Arrays.fill(smoothedScores, 0f);
+        Arrays.fill(topScores, 0f);
+        Arrays.fill(topSums, 0f);
+        verdict = totalFrames > 0 ? Verdict.PENDING : Verdict.REJECT;
+        scorer.reset();
+    }
+
+    public Verdict offer(short[] frame, int offset) throws Exception {
+        if (verdict != Verdict.PENDING) {
+            return verdict;
+        }
+        short[] input = frame;
+        if (offset != 0 || frame.length != frameBuffer.length) {
+            System.arraycopy(frame, offset, frameBuffer, 0, frameBuffer.length);
+            input = frameBuffer;
+        }
+        float[] scores = scorer.score(input);
+        framesProcessed++;
+        verdict = update(scores);
+        return verdict;
+    }
+
+    // يمرر الصوت كاملًا ويتوقف عند أول قرار
+    public Verdict verify(short[] audio, int length) throws Exception {
+        int numFrames = length / frameBuffer.length;
+        begin(numFrames);
+        for (int i = 0; i < numFrames && verdict == Verdict.PENDING; i++) {
+            offer(audio, i * frameBuffer.length);
+        }
+        return verdict;
+    }
+
+    private Verdict update(float[] scores) {
+        int count = scores == null ? 0 : scores.length;
+        ensureCapacity(count);
+        int k = rule.getKind() == DecisionRule.Kind.TOP_K_MEAN ? rule.getRequiredFrames() : 0;
+        if (topScores.length != count * k) {
+            topScores = new float[count * k];
+            topSums = new float[count];
+        }
+        int remaining = totalFrames - framesProcessed;
+        boolean anyReachable = false;
+        float acceptedScore = -1f;
+
+        for (int i = 0; i < count; i++) {
+            float score = scores[i];
+            float threshold = thresholdFor(i);
+            if (score > bestScores[i]) {
+                bestScores[i] = score;
+            }
+            consecutiveFrames[i] = score > threshold ? consecutiveFrames[i] + 1 : 0;
+            smoothedScores[i] = framesProcessed == 1
+                    ? score
+                    : smoothedScores[i] + rule.getSmoothing() * (score - smoothedScores[i]);
+            if (k > 0) {
+                insertTop(i, k, score);
+            }
+
+            boolean accepted;
+            boolean reachable;
+            switch (rule.getKind()) {
+                case CONSECUTIVE:
+                    accepted = consecutiveFrames[i] >= rule.getRequiredFrames();
+                    reachable = consecutiveFrames[i] + remaining >= rule.getRequiredFrames();
+                    break;
+                case SMOOTHED:
+                    accepted = smoothedScores[i] > threshold;
+                    // أعلى قيمة ممكنة للمتوسط لو كانت كل الإطارات المتبقية بدرجة 1
+                    reachable = 1.0 - (1.0 - smoothedScores[i]) * Math.pow(1.0 - rule.getSmoothing(), remaining) > threshold;
+                    break;
+                case TOP_K_MEAN:
+                    accepted = topSums[i] / k > threshold;
+                    reachable = topKUpperBound(i, k, remaining) > threshold;
+                    break;
+                case THRESHOLD:
+                default:
+                    accepted = score > threshold;
+                    reachable = remaining > 0;
+                    break;
+            }
+            if (accepted && getDecisionScore(i) > acceptedScore) {
+                acceptedScore = getDecisionScore(i);
+                acceptedIndex = i;
+            }
+            anyReachable |= reachable;
+        }
+
+        if (acceptedIndex >= 0) {
+            return Verdict.ACCEPT;
+        }
+        return remaining <= 0 || !anyReachable ? Verdict.REJECT : Verdict.PENDING;
+    }
+
+    private void insertTop(int profile, int k, float score) {
+        int base = profile * k;
+        int last = base + k - 1;
+        if (score <= topScores[last]) {
+            return;
+        }
+        topSums[profile] += score - topScores[last];
+        int j = last;
+        while (j > base && topScores[j - 1] < score) {
+            topScores[j] = topScores[j - 1];
+            j--;
+        }
+        topScores[j] = score;
+    }
+
+    // أعلى متوسط ممكن لو جاءت الإطارات المتبقية كلها بدرجة 1 مكان أدنى الخانات
+    private float topKUpperBound(int profile, int k, int remaining) {
+        int replaced = Math.min(remaining, k);
+        float sum = replaced;
+        int base = profile * k;
+        for (int j = 0; j < k - replaced; j++) {
+            sum += topScores[base + j];
+        }
+        return sum / k;
+    }
+
+    private float thresholdFor(int index) {
+        float[] thresholds = profileThresholds;
+        return thresholds != null && index < thresholds.length ? thresholds[index] : rule.getThreshold();
+    }
+
+    private void ensureCapacity(int count) {
+        if (bestScores.length != count) {
+            consecutiveFrames = new int[count];
+            bestScores = new float[count];
+            smoothedScores = new float[count];
+        }
+    }
+
+    public Verdict getVerdict() {
+        return verdict;
+    }
+
+    public int getFramesProcessed() {
+        return framesProcessed;
+    }
+
+    public int getTotalFrames() {
+        return totalFrames;
+    }
+
+    public int getProfileCount() {
+        return bestScores.length;
+    }
+
+    // رقم البصمة التي تم قبولها، أو -1
+    public int getAcceptedIndex() {
+        return acceptedIndex;
+    }
+
+    // البصمة الأعلى درجة حتى لو لم تُقبل
+    public int getBestIndex() {
+        if (acceptedIndex >= 0) {
+            return acceptedIndex;
+        }
+        int best = -1;
+        for (int i = 0; i < bestScores.length; i++) {
+            if (best < 0 || getDecisionScore(i) > getDecisionScore(best)) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    // الدرجة التي بُني عليها القرار حسب نوع القاعدة
+    public float getDecisionScore(int index) {
+        switch (rule.getKind()) {
+            case SMOOTHED:
+                return smoothedScores[index];
+            case TOP_K_MEAN:
+                return index < topSums.length ? topSums[index] / rule.getRequiredFrames() : 0f;
+            default:
+                return bestScores[index];
+        }
+    }
+
+    public float getDecisionScore() {
+        int best = getBestIndex();
+        return best < 0 ? 0f : getDecisionScore(best);
+    }
+
+    // ينسخ درجات القرار لكل البصمات إلى dest
+    public float[] copyDecisionScores(float[] dest) {
+        if (dest == null || dest.length != bestScores.length) {
+            dest = new float[bestScores.length];
+        }
+        for (int i = 0; i < dest.length; i++) {
+            dest[i] = getDecisionScore(i);
+        }
+        return dest;
+    }
+}
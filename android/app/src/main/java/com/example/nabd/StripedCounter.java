@@ -0,0 +1,39 @@
+package com.example.nabd;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// عداد بلا أقفال موزع على عدة خانات حسب الخيط (بديل LongAdder غير المتاح قبل API 24).
+// كل خانة في سطر cache مستقل لتفادي false sharing بين خيط الالتقاط وخيط التحقق.
+public class StripedCounter {
+    private static final int STRIPES = 4;
+    // 8 longs = 64 بايت بين الخانات
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long delta) {
+        cells.getAndAdd(stripe(), delta);
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    public void reset() {
+        for (int i = 0; i < STRIPES; i++) {
+            cells.set(i * PADDING, 0);
+        }
+    }
+
+    private static int stripe() {
+        return (int) (Thread.currentThread().getId() & (STRIPES - 1)) * PADDING;
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.nabd;
+
+public interface VerificationCallback {
+    // تُستدعى على خيط التحقق وليس على خيط الواجهة
+    void onVerificationResult(VerificationResult result);
+}
@@ -0,0 +1,115 @@
+package com.example.nabd;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// خيط واحد للتحقق من المتحدث مع طابور محدود: اكتشاف جديد أثناء التقييم يستبدل المهمة المعلقة بدل أن يتراكم
+public class VerificationExecutor {
+    public interface Task {
+        VerificationResult verify(long detectionNanos, int keywordIndex);
+    }
+
+    private final Task task;
+    private final VerificationCallback callback;
+    private volatile boolean stopped = false;
+    private final ThreadPoolExecutor executor;
+    // الاكتشاف المعلق (الوقت ورقم الكلمة معًا)؛ الاكتشافات نادرة فالقفل غير متنازع عليه
+    private final Object pendingLock = new Object();
+    private boolean hasPending = false;
+    private long pendingDetection;
+    private int pendingKeyword;
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final Runnable drain = this::drain;
+
+    public VerificationExecutor(Task task, VerificationCallback callback) {
+        this.task = task;
+        this.callback = callback;
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "nabd-verify");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    // يرجع false إذا دُمج الاكتشاف مع مهمة معلقة أو رُفض بعد الإيقاف
+    public boolean submit(long detectionNanos) {
+        return submit(detectionNanos, 0);
+    }
+
+    public boolean submit(long detectionNanos, int keywordIndex) {
+        synchronized (pendingLock) {
+            boolean replaced = hasPending;
+            hasPending = true;
+            pendingDetection = detectionNanos;
+            pendingKeyword = keywordIndex;
+            if (replaced) {
+                // توجد مهمة معلقة لم تبدأ بعد، استبدلناها بالاكتشاف الأحدث
+                coalescedCount.incrementAndGet();
+                return false;
+            }
+        }
+        try {
+            executor.execute(drain);
+            return true;
+        } catch (RejectedExecutionException e) {
+            synchronized (pendingLock) {
+                hasPending = false;
+            }
+            return false;
+        }
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    // التحقق الجاري يكمل لكن نتيجته لا تصل للـ callback
+    public void shutdown() {
+        stopped = true;
+        synchronized (pendingLock) {
+            hasPending = false;
+        }
+        executor.shutdownNow();
+    }
+
+    // بعد shutdown: ينتظر خروج التحقق الجاري قبل أن يحرر المستدعي المحركات التي يستخدمها
+    public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // ينهي المهام المعلقة ثم يتوقف (للتشغيل غير المتصل)
+    public boolean shutdownAndWait(long timeoutMillis) throws InterruptedException {
+        executor.shutdown();
+        return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void drain() {
+        long detectionNanos;
+        int keywordIndex;
+        synchronized (pendingLock) {
+            if (!hasPending) {
+                return;
+            }
+            hasPending = false;
+            detectionNanos = pendingDetection;
+            keywordIndex = pendingKeyword;
+        }
+        VerificationResult result;
+        try {
+            result = task.verify(detectionNanos, keywordIndex);
+        } catch (RuntimeException e) {
+            result = VerificationResult.error("VERIFY_ERROR", e.getMessage());
+        }
+        result.setTiming(detectionNanos, System.nanoTime());
+        result.setKeywordIndex(keywordIndex);
+        if (stopped) {
+            return;
+        }
+        callback.onVerificationResult(result);
+    }
+}
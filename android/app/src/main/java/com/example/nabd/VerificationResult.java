@@ -0,0 +1,172 @@
+package com.example.nabd;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+public class VerificationResult {
+    private static final String[] NO_NAMES = new String[0];
+    private static final float[] NO_SCORES = new float[0];
+
+    private final boolean matched;
+    private final float score;
+    private final String speaker;
+    private final String[] names;
+    private final float[] scores;
+    private final String errorCode;
+    private final String errorMessage;
+    private long detectionNanos;
+    private long decisionNanos;
+    private int keywordIndex;
+    private boolean speculative;
+    private float confidence = Float.NaN;
+    private float threshold = Float.NaN;
+    private float snrDb = Float.NaN;
+    private Set<ScoringPolicy.Reason> reasons = Collections.emptySet();
+
+    private VerificationResult(boolean matched, float score, String speaker, String[] names, float[] scores,
+                               String errorCode, String errorMessage) {
+        this.matched = matched;
+        this.score = score;
+        this.speaker = speaker;
+        this.names = names;
+        this.scores = scores;
+        this.errorCode = errorCode;
+        this.errorMessage = errorMessage;
+    }
+
+    public static VerificationResult matched(float score) {
+        return new VerificationResult(true, score, null, NO_NAMES, NO_SCORES, null, null);
+    }
+
+    public static VerificationResult notMatched(float score) {
+        return new VerificationResult(false, score, null, NO_NAMES, NO_SCORES, null, null);
+    }
+
+    // نتيجة تعريف المتحدث: speaker هو الأعلى درجة، names و scores بنفس ترتيب البصمات
+    public static VerificationResult identified(boolean matched, String speaker, String[] names, float[] scores) {
+        float score = 0f;
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(speaker)) {
+                score = scores[i];
+            }
+        }
+        return new VerificationResult(matched, score, speaker, names, scores, null, null);
+    }
+
+    public static VerificationResult error(String errorCode, String errorMessage) {
+        return new VerificationResult(false, 0f, null, NO_NAMES, NO_SCORES, errorCode, errorMessage);
+    }
+
+    public boolean isMatched() {
+        return matched;
+    }
+
+    public float getScore() {
+        return score;
+    }
+
+    // المتحدث الأقرب، أو null إذا لا توجد بصمات
+    public String getSpeaker() {
+        return speaker;
+    }
+
+    // أسماء المتحدثين مرتبة تنازليًا حسب الدرجة
+    public String[] getRankedSpeakers() {
+        Integer[] order = new Integer[names.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(scores[b], scores[a]));
+        String[] ranked = new String[names.length];
+        for (int i = 0; i < order.length; i++) {
+            ranked[i] = names[order[i]];
+        }
+        return ranked;
+    }
+
+    public float getScore(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return scores[i];
+            }
+        }
+        return 0f;
+    }
+
+    public boolean isError() {
+        return errorCode != null;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    void setExplanation(float confidence, float threshold, float snrDb, Set<ScoringPolicy.Reason> reasons) {
+        this.confidence = confidence;
+        this.threshold = threshold;
+        this.snrDb = snrDb;
+        this.reasons = reasons.isEmpty()
+                ? Collections.<ScoringPolicy.Reason>emptySet()
+                : Collections.unmodifiableSet(EnumSet.copyOf(reasons));
+    }
+
+    // ثقة معايرة بين 0 و 1 (NaN إذا لم تحددها سياسة)
+    public float getConfidence() {
+        return confidence;
+    }
+
+    // الحد الفعلي الذي قورنت به درجة المتحدث
+    public float getThreshold() {
+        return threshold;
+    }
+
+    public float getSnrDb() {
+        return snrDb;
+    }
+
+    public Set<ScoringPolicy.Reason> getReasons() {
+        return reasons;
+    }
+
+    void setTiming(long detectionNanos, long decisionNanos) {
+        this.detectionNanos = detectionNanos;
+        this.decisionNanos = decisionNanos;
+    }
+
+    void setKeywordIndex(int keywordIndex) {
+        this.keywordIndex = keywordIndex;
+    }
+
+    // رقم كلمة التنبيه التي أطلقت التحقق
+    public int getKeywordIndex() {
+        return keywordIndex;
+    }
+
+    void setSpeculative(boolean speculative) {
+        this.speculative = speculative;
+    }
+
+    // القرار بُني على درجات حُسبت أثناء الكلام قبل الاكتشاف
+    public boolean isSpeculative() {
+        return speculative;
+    }
+
+    public long getDetectionNanos() {
+        return detectionNanos;
+    }
+
+    // الزمن من اكتشاف كلمة التنبيه حتى القرار
+    public long getLatencyNanos() {
+        return decisionNanos - detectionNanos;
+    }
+
+    public double getLatencyMillis() {
+        return getLatencyNanos() / 1_000_000.0;
+    }
+}
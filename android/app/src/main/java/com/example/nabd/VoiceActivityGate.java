@@ -0,0 +1,141 @@
+package com.example.nabd;
+
+// بوابة نشاط صوتي رخيصة أمام محرك كلمة التنبيه: طاقة الإطار بحساب صحيح (بدون float)
+// مقارنة بأرضية ضوضاء متكيفة، مع إطارات "hangover" تبقي البوابة مفتوحة بعد آخر كلام.
+// تُستدعى من خيط الالتقاط فقط.
+public class VoiceActivityGate {
+    // 3x طاقة الأرضية (~4.8 dB) بصيغة Q8
+    public static final int DEFAULT_RATIO_Q8 = 3 << 8;
+    // RMS ~100 من 32768 تقريبًا؛ أي شيء أهدأ يُعد صمتًا مهما انخفضت الأرضية
+    public static final long DEFAULT_MIN_ENERGY = 100L * 100L;
+    // ~0.5 ثانية عند 512 عينة / 16 kHz
+    public static final int DEFAULT_HANGOVER_FRAMES = 16;
+
+    // سرعات تكيّف الأرضية (إزاحات): تنزل بسرعة، وتصعد ببطء، وأبطأ أثناء الكلام
+    private static final int FALL_SHIFT = 2;
+    private static final int RISE_SHIFT = 4;
+    private static final int RISE_ACTIVE_SHIFT = 7;
+
+    // يتغير من ListeningScheduler أثناء الالتقاط
+    private volatile int ratioQ8;
+    private final long minEnergy;
+    private final int hangoverFrames;
+
+    private long noiseFloor = -1;
+    private long lastEnergy = 0;
+    private int hangoverRemaining = 0;
+    // تُقرأ من خارج خيط الالتقاط (الجدولة) لتجنب قطع الكلام
+    private volatile boolean open = false;
+    private long passedFrames = 0;
+    private long skippedFrames = 0;
+    private long openings = 0;
+
+    public VoiceActivityGate() {
+        this(DEFAULT_RATIO_Q8, DEFAULT_MIN_ENERGY, DEFAULT_HANGOVER_FRAMES);
+    }
+
+    public VoiceActivityGate(int ratioQ8, long minEnergy, int hangoverFrames) {
+        setRatioQ8(ratioQ8);
+        this.minEnergy = Math.max(1, minEnergy);
+        this.hangoverFrames = Math.max(0, hangoverFrames);
+    }
+
+    // متوسط مربع العينات؛ 512 عينة * 2^30 تتسع في long بلا فيضان
+    public static long frameEnergy(short[] frame, int length) {
+        if (length <= 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (int i = 0; i < length; i++) {
+            int s = frame[i];
+            sum += s * s;
+        }
+        return sum / length;
+    }
+
+    // true إذا يجب تمرير الإطار للمحرك
+    public boolean accept(short[] frame, int length) {
+        long energy = frameEnergy(frame, length);
+        lastEnergy = energy;
+        if (noiseFloor < 0) {
+            noiseFloor = energy;
+        }
+
+        boolean speech = energy > getThreshold();
+        if (energy < noiseFloor) {
+            noiseFloor -= (noiseFloor - energy) >> FALL_SHIFT;
+        } else {
+            noiseFloor += (energy - noiseFloor) >> (speech ? RISE_ACTIVE_SHIFT : RISE_SHIFT);
+        }
+
+        boolean wasOpen = open;
+        if (speech) {
+            hangoverRemaining = hangoverFrames;
+            open = true;
+        } else if (hangoverRemaining > 0) {
+            hangoverRemaining--;
+            open = true;
+        } else {
+            open = false;
+        }
+
+        if (open) {
+            if (!wasOpen) {
+                openings++;
+            }
+            passedFrames++;
+        } else {
+            skippedFrames++;
+        }
+        return open;
+    }
+
+    // نسبة أعلى = بوابة أشد، مكالمات أقل للمحرك مع كلام أهدأ يُفوَّت
+    public void setRatioQ8(int ratioQ8) {
+        if (ratioQ8 < 256) {
+            throw new IllegalArgumentException("ratioQ8 must be >= 256 (1.0)");
+        }
+        this.ratioQ8 = ratioQ8;
+    }
+
+    public int getRatioQ8() {
+        return ratioQ8;
+    }
+
+    public void reset() {
+        noiseFloor = -1;
+        lastEnergy = 0;
+        hangoverRemaining = 0;
+        open = false;
+    }
+
+    public long getThreshold() {
+        long scaled = noiseFloor < 0 ? 0 : (noiseFloor * ratioQ8) >> 8;
+        return Math.max(scaled, minEnergy);
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public long getNoiseFloor() {
+        return noiseFloor;
+    }
+
+    public long getLastEnergy() {
+        return lastEnergy;
+    }
+
+    public long getPassedFrames() {
+        return passedFrames;
+    }
+
+    public long getSkippedFrames() {
+        return skippedFrames;
+    }
+
+    // عدد مرات الانتقال من صمت إلى كلام
+    public long getOpenings() {
+        return openings;
+    }
+}
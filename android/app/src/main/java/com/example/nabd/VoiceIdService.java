@@ -1,66 +1,145 @@
 package com.example.nabd;
 
 import android.content.Context;
-import android.media.AudioFormat;
-import android.media.AudioRecord;
-import android.media.MediaRecorder;
+import android.content.SharedPreferences;
 import androidx.core.app.ActivityCompat;
 import android.Manifest;
 import android.content.pm.PackageManager;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.Process;
 import android.util.Log;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.FileInputStream;
-import java.io.DataOutputStream;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import ai.picovoice.eagle.Eagle;
 import ai.picovoice.eagle.EagleException;
 import ai.picovoice.eagle.EagleProfile;
 import ai.picovoice.eagle.EagleProfiler;
 import ai.picovoice.eagle.EagleProfilerEnrollResult;
+import io.flutter.plugin.common.EventChannel;
 import io.flutter.plugin.common.MethodChannel;
 
 public class VoiceIdService {
     private static final String TAG = "VoiceIdService";
-    private static final String ACCESS_KEY = "";
+    static final String ACCESS_KEY = "";
     private static final int SAMPLE_RATE = 16000;
-    private static final int CHANNELS = AudioFormat.CHANNEL_IN_MONO;
-    private static final int ENCODING = AudioFormat.ENCODING_PCM_16BIT;
-    private static final int BUFFER_SIZE = AudioRecord.getMinBufferSize(SAMPLE_RATE, CHANNELS, ENCODING);
-    private static final int FRAME_LENGTH = 512;
-    private static final String PROFILE_FILE = "voice_profile.bin";
+    static final int FRAME_LENGTH = 512;
+    static final String PROFILE_FILE = "voice_profile.bin";
     private static final String AUDIO_FILE = "enroll_audio.wav";
-    private static final int RECORD_DURATION_SECONDS = 7;
+    private static final float TARGET_PERCENTAGE = 100f;
+    private static final int ENROLL_TIMEOUT_SECONDS = 30;
+    private static final int ENROLL_BUFFER_MILLIS = 4000;
+    private static final int CHUNK_POLL_MILLIS = 20;
+    static final float MATCH_THRESHOLD = 0.6f;
+    // متوسط أعلى 3 إطارات (~100 ms من الكلام) بدل أعلى إطار منفرد
+    private static final int TOP_K_FRAMES = 3;
+    // أقصى انتظار للتقييم المضارب حتى يلحق بلحظة الاكتشاف قبل الرجوع للتحقق عند الطلب
+    private static final int SPECULATIVE_WAIT_MILLIS = 60;
+    // أقل من ~250 ms من الكلام المقيّم لا تكفي للقرار
+    private static final int MIN_SPECULATIVE_FRAMES = 8;
+    // مفاتيح shared_preferences من جهة Flutter لسلسلة معالجة الصوت؛ تُقرأ عند بدء كل التقاط
+    static final String FRONT_END_KEY = "flutter.audio_front_end";
+    static final String PRE_EMPHASIS_KEY = "flutter.audio_pre_emphasis";
 
-    private Eagle eagle;
-    private EagleProfiler eagleProfiler;
-    private AudioRecord audioRecord;
-    private EagleProfile speakerProfile;
-    private boolean isRecording = false;
+    public enum Mode {
+        // Eagle على الـ pre-roll بعد الاكتشاف
+        ON_DEMAND,
+        // Eagle أثناء الكلام على خيط منخفض الأولوية، والقرار من الدرجات المحفوظة
+        SPECULATIVE
+    }
+
+    private final EagleEngineRegistry engineRegistry;
+    private volatile EagleProfiler eagleProfiler;
+    private volatile AudioSource enrollSource;
+    private volatile CaptureEngine enrollCapture;
+    private volatile AudioRingBuffer enrollBuffer;
+    private final AtomicBoolean enrolling = new AtomicBoolean(false);
+    private volatile EventChannel.EventSink progressSink;
+    private boolean closed = false;
+    private volatile ScoringPolicy scoringPolicy;
+    private volatile SpeculativeScorer speculative;
+    // خيط التقييم المضارب فقط: نسخة المحرك التي بُنيت عليها حالة Eagle الحالية
+    private int speculativeVersion = -1;
+    private final ListeningMetrics metrics = ListeningMetrics.getInstance();
 
     public VoiceIdService(Context context) {
-        loadSpeakerProfile(context);
+        engineRegistry = EagleEngineRegistry.getInstance(context);
+        engineRegistry.retain();
+        scoringPolicy = new AdaptiveScoringPolicy(DecisionRule.topKMean(MATCH_THRESHOLD, TOP_K_FRAMES),
+                engineRegistry.getCalibrations());
+    }
+
+    // اختيار المستخدم؛ يسري على التسجيل الأول فقط (لا توجد بصمات)
+    private static int preferredFrontEnd(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences("FlutterSharedPreferences", Context.MODE_PRIVATE);
+        if (!prefs.getBoolean(FRONT_END_KEY, true)) {
+            return AudioFrontEnd.CONFIG_RAW;
+        }
+        return prefs.getBoolean(PRE_EMPHASIS_KEY, false) ? AudioFrontEnd.CONFIG_PRE_EMPHASIS : AudioFrontEnd.CONFIG_STANDARD;
+    }
+
+    // نفس المعالجة لتسجيل البصمة ولالتقاط خدمة الاستماع: السلسلة التي سُجلت بها البصمات الحالية،
+    // فالبصمات المسجلة على صوت خام قبل السلسلة تبقى على الخام حتى يُعاد التسجيل
+    static int frontEndConfig(Context context) {
+        return frontEndConfig(context, null);
+    }
+
+    // عند إعادة تسجيل بصمة وحيدة قديمة تعود السلسلة لاختيار المستخدم
+    private static int frontEndConfig(Context context, String replacing) {
+        return EagleEngineRegistry.getInstance(context).getStore()
+                .enrolledFrontEnd(preferredFrontEnd(context), replacing);
+    }
+
+    // تحميل البصمات وبناء Eagle قبل أول تحقق، على خيط المستدعي (EngineInitCoordinator)
+    public void preloadNow() {
+        engineRegistry.preloadNow();
+    }
+
+    // يحرر مرجع هذه النسخة من محرك Eagle المشترك
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            disableSpeculative();
+            engineRegistry.release();
+        }
     }
 
     public void enrollVoice(Context context, MethodChannel.Result result) {
+        enrollVoice(context, SpeakerProfileStore.DEFAULT_SPEAKER, MATCH_THRESHOLD, result);
+    }
+
+    public void enrollVoice(Context context, String speakerName, float threshold, MethodChannel.Result result) {
+        String name = SpeakerProfileStore.sanitizeName(speakerName);
+        if (name.isEmpty()) {
+            result.error("INVALID_NAME", "Speaker name is empty", null);
+            return;
+        }
+
         if (ActivityCompat.checkSelfPermission(context, Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
             Log.e(TAG, "Microphone permission not granted");
             result.error("PERMISSION_ERROR", "Microphone permission not granted", null);
             return;
         }
 
-        File profileFile = new File(context.getFilesDir(), PROFILE_FILE);
-        if (profileFile.exists()) {
-            Log.d(TAG, "Voice profile already exists");
+        if (engineRegistry.getStore().contains(name)) {
+            Log.d(TAG, "Voice profile already exists for " + name);
             result.success("Voice already enrolled");
             return;
         }
 
+        if (!enrolling.compareAndSet(false, true)) {
+            result.error("ENROLL_BUSY", "Another enrollment is in progress", null);
+            return;
+        }
+
         try {
             Log.d(TAG, "Initializing EagleProfiler...");
             eagleProfiler = new EagleProfiler.Builder()
@@ -68,91 +147,46 @@ public class VoiceIdService {
                     .build(context);
             Log.d(TAG, "EagleProfiler initialized successfully");
 
+            // الميكروفون يكتب في buffer دائري، وخيط التسجيل يسحب منه مقاطع بحجم getMinEnrollSamples
+            int chunkSamples = Math.max(eagleProfiler.getMinEnrollSamples(), FRAME_LENGTH);
+            enrollBuffer = new AudioRingBuffer(SAMPLE_RATE, ENROLL_BUFFER_MILLIS + chunkSamples * 1000 / SAMPLE_RATE, FRAME_LENGTH);
+            enrollSource = new MicAudioSource(SAMPLE_RATE, FRAME_LENGTH);
+            enrollCapture = new CaptureEngine(enrollSource, FRAME_LENGTH, new AudioThreadFactory("nabd-enroll-capture"));
+            int frontEnd = frontEndConfig(context, name);
+            enrollCapture.setProcessor(AudioFrontEnd.forConfig(frontEnd, SAMPLE_RATE));
+            AudioRingBuffer buffer = enrollBuffer;
+            enrollCapture.addListener((frame, length) -> buffer.write(frame, 0, length));
+
             Log.d(TAG, "Starting audio recording...");
-            audioRecord = new AudioRecord(MediaRecorder.AudioSource.MIC, SAMPLE_RATE, CHANNELS, ENCODING, BUFFER_SIZE);
-            if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
+            if (!enrollCapture.start()) {
                 Log.e(TAG, "Failed to initialize AudioRecord");
                 result.error("AUDIO_INIT_ERROR", "Failed to initialize audio recording", null);
                 stopRecording();
                 return;
             }
-            audioRecord.startRecording();
-            isRecording = true;
             Log.d(TAG, "Audio recording started");
 
             new Thread(() -> {
                 try {
-                    int totalSamples = SAMPLE_RATE * RECORD_DURATION_SECONDS;
-                    short[] enrollBuffer = new short[totalSamples];
-                    int totalSamplesRead = 0;
-
-                    // تسجيل الصوت
-                    Log.d(TAG, "Recording audio for " + RECORD_DURATION_SECONDS + " seconds...");
-                    while (isRecording && totalSamplesRead < totalSamples) {
-                        short[] frameBuffer = new short[FRAME_LENGTH];
-                        int numRead = audioRecord.read(frameBuffer, 0, frameBuffer.length);
-                        if (numRead <= 0) {
-                            Log.e(TAG, "Failed to read audio data: " + numRead);
-                            runOnUiThread(() -> result.error("AUDIO_READ_ERROR", "Failed to read audio data", null));
-                            return;
-                        }
-                        int samplesToCopy = Math.min(numRead, totalSamples - totalSamplesRead);
-                        System.arraycopy(frameBuffer, 0, enrollBuffer, totalSamplesRead, samplesToCopy);
-                        totalSamplesRead += samplesToCopy;
-                    }
-                    Log.d(TAG, "Finished recording audio, total samples read: " + totalSamplesRead);
-
-                    // مضاعفة البيانات لتصير 28 ثانية (4 مرات)
-                    int multiplier = 4;
-                    int multipliedSamples = totalSamples * multiplier;
-                    short[] multipliedEnrollBuffer = new short[multipliedSamples];
-                    for (int i = 0; i < multiplier; i++) {
-                        System.arraycopy(enrollBuffer, 0, multipliedEnrollBuffer, i * totalSamples, totalSamples);
-                    }
-                    Log.d(TAG, "Multiplied audio buffer to " + multipliedSamples + " samples (" + (multipliedSamples / SAMPLE_RATE) + " seconds)");
-
-
-                    Log.d(TAG, "Saving audio to WAV file...");
-                    try {
-                        saveAudioToWav(context, multipliedEnrollBuffer);
-                        Log.d(TAG, "Audio saved successfully as " + AUDIO_FILE);
-                    } catch (Exception e) {
-                        Log.e(TAG, "Failed to save audio file: " + e.getMessage(), e);
-                        runOnUiThread(() -> result.error("SAVE_ERROR", "Failed to save audio file: " + e.getMessage(), null));
+                    float percentage = streamEnrollment(context, name, buffer, chunkSamples);
+                    if (percentage < TARGET_PERCENTAGE) {
+                        Log.e(TAG, "Enrollment timed out at " + percentage + "%");
+                        runOnUiThread(() -> result.error("ENROLL_TIMEOUT", "Enrollment did not complete in time", null));
                         return;
                     }
-
-                   
-                    Log.d(TAG, "Starting voice enrollment...");
-                    try {
-                        if (eagleProfiler == null) {
-                            Log.e(TAG, "EagleProfiler is null before enrollment");
-                            runOnUiThread(() -> result.error("ENROLL_ERROR", "EagleProfiler is null", null));
-                            return;
-                        }
-                        float percentage = 0;
-                        while (percentage < 85) {
-                            EagleProfilerEnrollResult feedbackResult = eagleProfiler.enroll(multipliedEnrollBuffer);
-                            percentage = feedbackResult.getPercentage();
-                            Log.d(TAG, "Enrollment percentage: " + percentage);
-                            if (percentage >= 85) break;
-                            Thread.sleep(100);
-                        }
-                        speakerProfile = eagleProfiler.export();
-                        saveProfile(context, speakerProfile);
-                        eagle = new Eagle.Builder()
-                                .setAccessKey(ACCESS_KEY)
-                                .setSpeakerProfiles(new EagleProfile[]{speakerProfile})
-                                .build(context);
-                        Log.d(TAG, "Voice enrolled successfully");
-                        runOnUiThread(() -> result.success("Voice enrolled successfully"));
-                    } catch (EagleException e) {
-                        Log.e(TAG, "Enrollment error: " + e.getMessage(), e);
-                        runOnUiThread(() -> result.error("ENROLL_ERROR", e.getMessage(), null));
-                    } catch (InterruptedException e) {
-                        Log.e(TAG, "Thread interrupted: " + e.getMessage(), e);
-                        runOnUiThread(() -> result.error("THREAD_ERROR", "Thread interrupted", null));
-                    }
+                    EagleProfile speakerProfile = eagleProfiler.export();
+                    // بصمة جديدة تعني توزيع درجات جديدًا؛ خدمة :listener تعيد قراءة المعايرة عند تغير ملفها
+                    engineRegistry.getCalibrations().remove(name);
+                    engineRegistry.getStore().save(name, speakerProfile.getBytes(), threshold, frontEnd);
+                    engineRegistry.reload();
+                    Log.d(TAG, "Voice enrolled successfully");
+                    runOnUiThread(() -> result.success("Voice enrolled successfully"));
+                } catch (EagleException e) {
+                    Log.e(TAG, "Enrollment error: " + e.getMessage(), e);
+                    runOnUiThread(() -> result.error("ENROLL_ERROR", e.getMessage(), null));
+                } catch (InterruptedException e) {
+                    Log.e(TAG, "Thread interrupted: " + e.getMessage(), e);
+                    runOnUiThread(() -> result.error("THREAD_ERROR", "Thread interrupted", null));
                 } catch (Exception e) {
                     Log.e(TAG, "Unexpected error during enrollment: " + e.getMessage(), e);
                     runOnUiThread(() -> result.error("UNEXPECTED_ERROR", "An unexpected error occurred: " + e.getMessage(), null));
@@ -161,161 +195,380 @@ public class VoiceIdService {
                     stopRecording();
                     Log.d(TAG, "Recording stopped");
                 }
-            }).start();
+            }, "nabd-enroll").start();
         } catch (EagleException e) {
             Log.e(TAG, "Failed to initialize EagleProfiler: " + e.getMessage(), e);
             result.error("ENROLL_INIT_ERROR", e.getMessage(), null);
+            stopRecording();
         } catch (Exception e) {
             Log.e(TAG, "Unexpected error during setup: " + e.getMessage(), e);
             result.error("SETUP_ERROR", "Unexpected error during setup: " + e.getMessage(), null);
+            stopRecording();
         }
     }
 
-    private void saveAudioToWav(Context context, short[] audioData) throws Exception {
+    // يمرر الصوت إلى EagleProfiler أثناء التسجيل حتى تصل النسبة للهدف أو تنتهي المهلة، ويرجع آخر نسبة
+    private float streamEnrollment(Context context, String name, AudioRingBuffer buffer, int chunkSamples) throws Exception {
+        short[] chunk = new short[chunkSamples];
+        WavWriter wavWriter = openEnrollmentWav(context);
+        long deadline = System.currentTimeMillis() + ENROLL_TIMEOUT_SECONDS * 1000L;
+        long readSequence = buffer.getWriteSequence();
+        float percentage = 0;
+
+        Log.d(TAG, "Streaming enrollment in chunks of " + chunkSamples + " samples");
+        try {
+            while (percentage < TARGET_PERCENTAGE && System.currentTimeMillis() < deadline) {
+                if (enrollCapture == null || !enrollCapture.isRunning()) {
+                    throw new IllegalStateException("Audio capture stopped");
+                }
+                int read = buffer.read(readSequence, chunk, chunkSamples);
+                if (read == 0) {
+                    Thread.sleep(CHUNK_POLL_MILLIS);
+                    continue;
+                }
+                if (read < 0) {
+                    // تأخر خيط التسجيل عن الميكروفون، نقفز إلى أحدث صوت
+                    Log.w(TAG, "Enrollment fell behind capture, skipping ahead");
+                    readSequence = buffer.getWriteSequence();
+                    continue;
+                }
+                readSequence += read;
+
+                EagleProfilerEnrollResult enrollResult = eagleProfiler.enroll(chunk);
+                percentage = enrollResult.getPercentage();
+                Log.d(TAG, "Enrollment percentage: " + percentage + " (" + enrollResult.getFeedback() + ")");
+                publishProgress(name, percentage, String.valueOf(enrollResult.getFeedback()), false);
+                if (wavWriter != null) {
+                    wavWriter.write(chunk, 0, read);
+                }
+            }
+        } finally {
+            if (wavWriter != null) {
+                try {
+                    wavWriter.close();
+                    Log.d(TAG, "Audio saved successfully as " + AUDIO_FILE);
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to save audio file: " + e.getMessage(), e);
+                }
+            }
+        }
+        publishProgress(name, percentage, null, true);
+        return percentage;
+    }
+
+    // صوت التسجيل يُحفظ أثناء التدفق؛ الفشل هنا لا يوقف التسجيل
+    private WavWriter openEnrollmentWav(Context context) {
         File audioFile = new File(context.getFilesDir(), AUDIO_FILE);
         Log.d(TAG, "Saving WAV file to: " + audioFile.getAbsolutePath());
-        try (FileOutputStream fos = new FileOutputStream(audioFile);
-             DataOutputStream dos = new DataOutputStream(fos)) {
-            int byteRate = SAMPLE_RATE * 2;
-            int dataSize = audioData.length * 2;
-
-            dos.writeBytes("RIFF");
-            dos.writeInt(Integer.reverseBytes(36 + dataSize));
-            dos.writeBytes("WAVE");
-            dos.writeBytes("fmt ");
-            dos.writeInt(Integer.reverseBytes(16));
-            dos.writeShort(Short.reverseBytes((short) 1));
-            dos.writeShort(Short.reverseBytes((short) 1));
-            dos.writeInt(Integer.reverseBytes(SAMPLE_RATE));
-            dos.writeInt(Integer.reverseBytes(byteRate));
-            dos.writeShort(Short.reverseBytes((short) 2));
-            dos.writeShort(Short.reverseBytes((short) 16));
-            dos.writeBytes("data");
-            dos.writeInt(Integer.reverseBytes(dataSize));
-
-            ByteBuffer buffer = ByteBuffer.allocate(dataSize).order(ByteOrder.LITTLE_ENDIAN);
-            for (short sample : audioData) {
-                buffer.putShort(sample);
-            }
-            dos.write(buffer.array());
+        try {
+            return new WavWriter(audioFile, SAMPLE_RATE);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to open audio file: " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    public void setProgressSink(EventChannel.EventSink sink) {
+        progressSink = sink;
+    }
+
+    private void publishProgress(String name, float percentage, String feedback, boolean done) {
+        EventChannel.EventSink sink = progressSink;
+        if (sink == null) {
+            return;
         }
+        Map<String, Object> event = new HashMap<>();
+        event.put("name", name);
+        event.put("percentage", (double) percentage);
+        event.put("feedback", feedback);
+        event.put("done", done);
+        runOnUiThread(() -> sink.success(event));
     }
 
     public boolean verifyVoice(Context context, short[] audioBuffer, MethodChannel.Result result) {
-        if (speakerProfile == null) {
-            Log.e(TAG, "No voice profile enrolled");
-            result.error("NO_PROFILE", "No voice profile enrolled", null);
+        return verifyVoice(context, audioBuffer, audioBuffer == null ? 0 : audioBuffer.length, result);
+    }
+
+    public boolean verifyVoice(Context context, short[] audioBuffer, int length, MethodChannel.Result result) {
+        VerificationResult verification = verify(audioBuffer, length);
+        if (verification.isError()) {
+            result.error(verification.getErrorCode(), verification.getErrorMessage(), null);
             return false;
         }
+        result.success(verification.isMatched() ? "Voice matched" : "Voice not matched");
+        return verification.isMatched();
+    }
 
-        if (audioBuffer == null || audioBuffer.length == 0) {
+    public VerificationResult verify(short[] audioBuffer, int length) {
+        if (audioBuffer == null || length <= 0) {
             Log.e(TAG, "Audio buffer is empty or null");
-            result.error("INVALID_BUFFER", "Audio buffer is empty or null", null);
-            return false;
+            return VerificationResult.error("INVALID_BUFFER", "Audio buffer is empty or null");
         }
 
+        EagleEngineRegistry.Engine engine = engineRegistry.acquire();
+        if (engine == null) {
+            Log.e(TAG, "No voice profile enrolled");
+            return VerificationResult.error("NO_PROFILE", "No voice profile enrolled");
+        }
+
+        ScoringPolicy policy = scoringPolicy;
+        float snrDb = SnrEstimator.estimateDb(audioBuffer, length, FRAME_LENGTH);
+        float[] thresholds = thresholdsFor(policy, engine, snrDb);
+
         try {
-            int numFrames = audioBuffer.length / FRAME_LENGTH;
-            float highestScore = 0;
-
-            for (int i = 0; i < numFrames; i++) {
-                short[] frame = new short[FRAME_LENGTH];
-                System.arraycopy(audioBuffer, i * FRAME_LENGTH, frame, 0, FRAME_LENGTH);
-                float[] scores = eagle.process(frame);
-                if (scores.length > 0 && scores[0] > highestScore) {
-                    highestScore = scores[0];
+            synchronized (engine) {
+                StreamingVerifier verifier = engine.getVerifier();
+                verifier.setRule(policy.getRule());
+                verifier.setProfileThresholds(thresholds);
+                verifier.verify(audioBuffer, length);
+                // حالة Eagle صارت لهذا الصوت؛ التقييم المضارب يبدأ من جديد قبل إطاره التالي
+                SpeculativeScorer scorer = speculative;
+                if (scorer != null) {
+                    scorer.requestReset();
                 }
+                return explain(verifier, engine, policy, snrDb, false);
             }
+        } catch (Exception e) {
+            Log.e(TAG, "Verification error: " + e.getMessage(), e);
+            return VerificationResult.error("VERIFY_ERROR", e.getMessage());
+        } finally {
+            engineRegistry.releaseEngine(engine);
+        }
+    }
 
-            Log.d(TAG, "Voice verification score: " + highestScore);
-            if (highestScore > 0.6) {
-                Log.d(TAG, "Voice matched");
-                result.success("Voice matched");
-                return true;
-            } else {
-                Log.d(TAG, "Voice not matched");
-                result.success("Voice not matched");
-                return false;
+    // endSequence: موضع لحظة الاكتشاف في الـ pre-roll. في النمط المضارب يُبنى القرار من الدرجات
+    // المحسوبة حتى تلك اللحظة، ويُرجع للتحقق عند الطلب على audioBuffer إذا لم تكفِ
+    public VerificationResult verify(short[] audioBuffer, int length, long endSequence) {
+        SpeculativeScorer scorer = speculative;
+        if (scorer != null && audioBuffer != null && length > 0) {
+            VerificationResult result = verifySpeculative(scorer, audioBuffer, length, endSequence);
+            if (result != null) {
+                metrics.speculativeHits.increment();
+                return result;
             }
-        } catch (EagleException e) {
-            Log.e(TAG, "Verification error: " + e.getMessage(), e);
-            result.error("VERIFY_ERROR", e.getMessage(), null);
-            return false;
+            metrics.speculativeMisses.increment();
         }
+        return verify(audioBuffer, length);
     }
 
-    public void resetEnrollment(Context context, MethodChannel.Result result) {
+    // null إذا لم تغطِّ الدرجات المحفوظة ما يكفي من الكلام
+    private VerificationResult verifySpeculative(SpeculativeScorer scorer, short[] audioBuffer, int length,
+                                                 long endSequence) {
+        int frames;
         try {
-            File file = new File(context.getFilesDir(), PROFILE_FILE);
-            if (file.exists()) {
-                file.delete();
-            }
-            File audioFile = new File(context.getFilesDir(), AUDIO_FILE);
-            if (audioFile.exists()) {
-                audioFile.delete();
-            }
-            speakerProfile = null;
-            if (eagle != null) {
-                eagle.delete();
-                eagle = null;
+            frames = scorer.collect(endSequence, SPECULATIVE_WAIT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        if (frames < MIN_SPECULATIVE_FRAMES) {
+            Log.d(TAG, "Speculative scores cover " + frames + " frames, verifying on demand");
+            return null;
+        }
+
+        EagleEngineRegistry.Engine engine = engineRegistry.acquire();
+        if (engine == null) {
+            return null;
+        }
+        try {
+            if (scorer.getCollectedProfileCount() != engine.getNames().length) {
+                return null;
             }
-            Log.d(TAG, "Enrollment reset successfully");
-            result.success("Enrollment reset successfully");
+            ScoringPolicy policy = scoringPolicy;
+            float snrDb = SnrEstimator.estimateDb(audioBuffer, length, FRAME_LENGTH);
+            StreamingVerifier verifier = scorer.getVerifier();
+            verifier.setRule(policy.getRule());
+            verifier.setProfileThresholds(thresholdsFor(policy, engine, snrDb));
+            scorer.replay(frames);
+            return explain(verifier, engine, policy, snrDb, true);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to reset enrollment: " + e.getMessage(), e);
-            result.error("RESET_ERROR", "Failed to reset enrollment: " + e.getMessage(), null);
+            Log.e(TAG, "Speculative verification error: " + e.getMessage(), e);
+            return null;
+        } finally {
+            engineRegistry.releaseEngine(engine);
         }
     }
 
-    public boolean isProfileEnrolled(Context context) {
-        File profileFile = new File(context.getFilesDir(), PROFILE_FILE);
-        return profileFile.exists();
+    private static float[] thresholdsFor(ScoringPolicy policy, EagleEngineRegistry.Engine engine, float snrDb) {
+        String[] names = engine.getNames();
+        float[] thresholds = new float[names.length];
+        for (int i = 0; i < names.length; i++) {
+            thresholds[i] = policy.thresholdFor(names[i], engine.getThresholds()[i], snrDb, null);
+        }
+        return thresholds;
     }
 
-    private void saveProfile(Context context, EagleProfile profile) {
-        try {
-            File file = new File(context.getFilesDir(), PROFILE_FILE);
-            FileOutputStream fos = new FileOutputStream(file);
-            fos.write(profile.getBytes());
-            fos.close();
-            Log.d(TAG, "Voice profile saved successfully");
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to save voice profile: " + e.getMessage(), e);
+    // يبني النتيجة وشرحها من المحقق بعد القرار؛ مشترك بين المسارين
+    private static VerificationResult explain(StreamingVerifier verifier, EagleEngineRegistry.Engine engine,
+                                              ScoringPolicy policy, float snrDb, boolean speculative) {
+        String[] names = engine.getNames();
+        boolean matched = verifier.getVerdict() == StreamingVerifier.Verdict.ACCEPT;
+        int best = verifier.getBestIndex();
+        String speaker = best >= 0 ? names[best] : null;
+        VerificationResult result = VerificationResult.identified(matched, speaker,
+                names, verifier.copyDecisionScores(null));
+        result.setSpeculative(speculative);
+
+        Set<ScoringPolicy.Reason> reasons = EnumSet.noneOf(ScoringPolicy.Reason.class);
+        float threshold = best >= 0
+                ? policy.thresholdFor(speaker, engine.getThresholds()[best], snrDb, reasons)
+                : Float.NaN;
+        reasons.add(matched ? ScoringPolicy.Reason.ABOVE_THRESHOLD : ScoringPolicy.Reason.BELOW_THRESHOLD);
+        if (!matched && verifier.getFramesProcessed() < verifier.getTotalFrames()) {
+            reasons.add(ScoringPolicy.Reason.EARLY_REJECT);
         }
+        float confidence = best >= 0 ? policy.confidence(speaker, result.getScore(), threshold) : 0f;
+        result.setExplanation(confidence, threshold, snrDb, reasons);
+        if (matched) {
+            policy.onAccepted(speaker, result.getScore(), snrDb);
+        }
+
+        Log.d(TAG, (speculative ? "Speculative" : "Voice") + " verification score: " + result.getScore()
+                + " (" + speaker + ") after " + verifier.getFramesProcessed() + "/" + verifier.getTotalFrames()
+                + " frames, threshold " + threshold + ", SNR " + snrDb + " dB, confidence " + confidence + " "
+                + reasons);
+        Log.d(TAG, matched ? "Voice matched" : "Voice not matched");
+        return result;
     }
 
-    private void loadSpeakerProfile(Context context) {
+    // يشغل التقييم المضارب على الـ pre-roll؛ على المستدعي إضافة المستمع الراجع إلى الالتقاط بعد
+    // WakeWordPipeline. يرجع المقيّم الحالي إن كان مفعلًا
+    public synchronized SpeculativeScorer enableSpeculative(AudioRingBuffer preRollBuffer, VoiceActivityGate gate,
+                                                            int windowMillis, int onsetFrames) {
+        if (speculative == null) {
+            speculativeVersion = -1;
+            SpeculativeScorer scorer = new SpeculativeScorer(preRollBuffer, gate, this::scoreSpeculative,
+                    FRAME_LENGTH, windowMillis, onsetFrames,
+                    new AudioThreadFactory("nabd-speculative", Process.THREAD_PRIORITY_BACKGROUND));
+            scorer.setMetrics(metrics);
+            speculative = scorer;
+            Log.d(TAG, "Speculative verification enabled over " + scorer.getWindowFrames() + " frames");
+        }
+        return speculative;
+    }
+
+    // على المستدعي إزالة المستمع من الالتقاط أولًا
+    public synchronized void disableSpeculative() {
+        SpeculativeScorer scorer = speculative;
+        speculative = null;
+        if (scorer != null) {
+            scorer.stop();
+            Log.d(TAG, "Speculative verification disabled");
+        }
+    }
+
+    public Mode getMode() {
+        return speculative != null ? Mode.SPECULATIVE : Mode.ON_DEMAND;
+    }
+
+    // على خيط التقييم المضارب: إطار واحد عبر Eagle المشترك، بالتناوب مع التحقق عند الطلب
+    private float[] scoreSpeculative(short[] frame, boolean reset) throws Exception {
+        EagleEngineRegistry.Engine engine = engineRegistry.acquire();
+        if (engine == null) {
+            return null;
+        }
         try {
-            File file = new File(context.getFilesDir(), PROFILE_FILE);
-            if (file.exists()) {
-                FileInputStream fis = new FileInputStream(file);
-                byte[] data = new byte[(int) file.length()];
-                fis.read(data);
-                fis.close();
-                speakerProfile = new EagleProfile(data);
-                eagle = new Eagle.Builder()
-                        .setAccessKey(ACCESS_KEY)
-                        .setSpeakerProfiles(new EagleProfile[]{speakerProfile})
-                        .build(context);
-                Log.d(TAG, "Speaker profile loaded successfully");
+            synchronized (engine) {
+                FrameScorer scorer = engine.getScorer();
+                if (reset || engine.getVersion() != speculativeVersion) {
+                    scorer.reset();
+                    speculativeVersion = engine.getVersion();
+                }
+                return scorer.score(frame);
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to load speaker profile: " + e.getMessage(), e);
+        } finally {
+            engineRegistry.releaseEngine(engine);
+        }
+    }
+
+    // قاعدة ثابتة بدون تكيّف (السلوك السابق)
+    public void setDecisionRule(DecisionRule rule) {
+        scoringPolicy = new FixedScoringPolicy(rule);
+    }
+
+    public void setScoringPolicy(ScoringPolicy policy) {
+        scoringPolicy = policy;
+    }
+
+    public ScoringPolicy getScoringPolicy() {
+        return scoringPolicy;
+    }
+
+    public void resetEnrollment(Context context, MethodChannel.Result result) {
+        engineRegistry.execute(() -> {
+            try {
+                engineRegistry.getCalibrations().clear();
+                engineRegistry.getStore().clear();
+                File audioFile = new File(context.getFilesDir(), AUDIO_FILE);
+                if (audioFile.exists()) {
+                    audioFile.delete();
+                }
+                engineRegistry.clear();
+                Log.d(TAG, "Enrollment reset successfully");
+                runOnUiThread(() -> result.success("Enrollment reset successfully"));
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to reset enrollment: " + e.getMessage(), e);
+                runOnUiThread(() -> result.error("RESET_ERROR", "Failed to reset enrollment: " + e.getMessage(), null));
+            }
+        });
+    }
+
+    public boolean isProfileEnrolled(Context context) {
+        return !engineRegistry.getStore().isEmpty();
+    }
+
+    public void listProfiles(MethodChannel.Result result) {
+        engineRegistry.execute(() -> {
+            List<Map<String, Object>> profiles = listProfiles();
+            runOnUiThread(() -> result.success(profiles));
+        });
+    }
+
+    public List<Map<String, Object>> listProfiles() {
+        List<Map<String, Object>> profiles = new ArrayList<>();
+        for (SpeakerProfileStore.Entry entry : engineRegistry.getStore().list()) {
+            Map<String, Object> profile = new HashMap<>();
+            profile.put("name", entry.getName());
+            profile.put("threshold", (double) entry.getThreshold());
+            profiles.add(profile);
         }
+        return profiles;
+    }
+
+    public void removeProfile(String speakerName, MethodChannel.Result result) {
+        engineRegistry.execute(() -> {
+            try {
+                String name = SpeakerProfileStore.sanitizeName(speakerName);
+                engineRegistry.getCalibrations().remove(name);
+                if (engineRegistry.getStore().remove(name)) {
+                    engineRegistry.reload();
+                    Log.d(TAG, "Voice profile removed: " + speakerName);
+                    runOnUiThread(() -> result.success(true));
+                } else {
+                    runOnUiThread(() -> result.success(false));
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to remove voice profile: " + e.getMessage(), e);
+                runOnUiThread(() -> result.error("REMOVE_ERROR", "Failed to remove voice profile: " + e.getMessage(), null));
+            }
+        });
     }
 
     private void stopRecording() {
-        isRecording = false;
-        if (audioRecord != null) {
+        if (enrollCapture != null) {
+            enrollCapture.stop();
+            enrollCapture = null;
+        }
+        if (enrollSource != null) {
             try {
-                audioRecord.stop();
-                audioRecord.release();
+                enrollSource.release();
             } catch (Exception e) {
                 Log.e(TAG, "Error stopping AudioRecord: " + e.getMessage(), e);
             } finally {
-                audioRecord = null;
+                enrollSource = null;
             }
         }
+        enrollBuffer = null;
         if (eagleProfiler != null) {
             try {
                 eagleProfiler.delete();
@@ -325,6 +578,7 @@ public class VoiceIdService {
                 eagleProfiler = null;
             }
         }
+        enrolling.set(false);
     }
 
     private void runOnUiThread(Runnable runnable) {
@@ -0,0 +1,97 @@
+package com.example.nabd;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+// تسليم صوت ما بعد كلمة التنبيه لـ Flutter: عند الاكتشاف يُنسخ الـ pre-roll ثم تستمر الإطارات الحية
+// في buffer مباشر (direct) مخصص مسبقًا حتى يمتلئ أو يأخذه التطبيق. يُرسل كما هو عبر BinaryCodec
+// بدون نسخة byte[] وسيطة، فالأمر المنطوق بعد "نبض" لا يحتاج إعادة تسجيل.
+// الصيغة: int32 معدل العينات، int32 موضع نهاية الـ pre-roll (بالعينات)، ثم PCM 16-bit.
+// arm و onFrame على خيط الالتقاط؛ cancel من خيط التحقق؛ takeClip من الخيط الرئيسي.
+public class WakeAudioHandoff implements FrameListener {
+    private static final int HEADER_BYTES = 8;
+    // لقطة أقدم من هذا لا تخص الفتح الحالي
+    private static final long MAX_CLIP_AGE_NANOS = 15_000_000_000L;
+
+    private static final int IDLE = 0;
+    private static final int CAPTURING = 1;
+    private static final int READY = 2;
+
+    public interface ClipConsumer {
+        // clip صالح فقط أثناء الاستدعاء؛ موضعه عند نهاية البيانات كما يتوقع BinaryMessenger
+        void accept(ByteBuffer clip);
+    }
+
+    private final AudioRingBuffer preRollBuffer;
+    private final int preRollMillis;
+    private final short[] preRoll;
+    private final ByteBuffer clip;
+    private final ShortBuffer pcm;
+    private final Object lock = new Object();
+    private volatile int state = IDLE;
+    private long armedNanos;
+
+    public WakeAudioHandoff(AudioRingBuffer preRollBuffer, int preRollMillis, int maxPostMillis) {
+        this.preRollBuffer = preRollBuffer;
+        this.preRollMillis = preRollMillis;
+        this.preRoll = new short[preRollBuffer.samplesFor(preRollMillis)];
+        int maxSamples = preRoll.length + preRollBuffer.samplesFor(maxPostMillis);
+        this.clip = ByteBuffer.allocateDirect(HEADER_BYTES + 2 * maxSamples).order(ByteOrder.LITTLE_ENDIAN);
+        this.clip.putInt(0, preRollBuffer.getSampleRate());
+        this.clip.position(HEADER_BYTES);
+        this.pcm = clip.slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+    }
+
+    // بعد كتابة إطار الاكتشاف في الـ pre-roll؛ يتجاهل أي لقطة سابقة لم تُؤخذ
+    public void arm(long detectionNanos) {
+        int count = preRollBuffer.snapshot(preRollMillis, preRoll);
+        synchronized (lock) {
+            pcm.clear();
+            pcm.put(preRoll, 0, count);
+            clip.putInt(4, count);
+            armedNanos = detectionNanos;
+            state = CAPTURING;
+        }
+    }
+
+    // التحقق رفض المتحدث: لن يُفتح التطبيق
+    public void cancel() {
+        synchronized (lock) {
+            state = IDLE;
+        }
+    }
+
+    @Override
+    public void onFrame(short[] frame, int length) {
+        if (state != CAPTURING) {
+            return;
+        }
+        synchronized (lock) {
+            if (state != CAPTURING) {
+                return;
+            }
+            int count = Math.min(length, pcm.remaining());
+            pcm.put(frame, 0, count);
+            if (!pcm.hasRemaining()) {
+                state = READY;
+            }
+        }
+    }
+
+    // يسلم اللقطة مرة واحدة؛ الالتقاط الجاري يُنهى عند هذه النقطة (عادة توقف الميكروفون مع فتح التطبيق).
+    // يرجع false إذا لا توجد لقطة حديثة
+    public boolean takeClip(ClipConsumer consumer) {
+        synchronized (lock) {
+            if (state == IDLE || System.nanoTime() - armedNanos > MAX_CLIP_AGE_NANOS) {
+                state = IDLE;
+                return false;
+            }
+            state = IDLE;
+            clip.limit(clip.capacity());
+            clip.position(HEADER_BYTES + 2 * pcm.position());
+            consumer.accept(clip);
+            return true;
+        }
+    }
+}
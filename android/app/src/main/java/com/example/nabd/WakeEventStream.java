@@ -0,0 +1,139 @@
+package com.example.nabd;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.EventChannel;
+
+// أحداث الاكتشاف والتحقق من خدمة الاستماع إلى Flutter عبر nabd/wake_events.
+// كل حدث قائمة قصيرة بدل Map (بدون أسماء حقول في كل رسالة)، وكل إرسال دفعة من الأحداث:
+// [type, keyword, timeMillis, score, latencyMillis, speaker]
+// في الواجهة تُرسل فورًا، وفي الخلفية تُجمع وتُرسل كل BACKGROUND_BATCH_MILLIS.
+// publish من أي خيط؛ الـ sink يُستخدم على الخيط الرئيسي فقط.
+public final class WakeEventStream {
+    public static final int DETECTED = 0;
+    public static final int ACCEPTED = 1;
+    public static final int REJECTED = 2;
+    public static final int ERROR = 3;
+
+    static final String CHANNEL = "nabd/wake_events";
+
+    private static final long BACKGROUND_BATCH_MILLIS = 2000;
+    // بدون مستمع تُحفظ آخر الأحداث فقط
+    private static final int MAX_PENDING = 32;
+    private static final WakeEventStream instance = new WakeEventStream();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable flush = this::flush;
+    private final List<Object> pending = new ArrayList<>();
+    private boolean flushScheduled = false;
+    private volatile boolean foreground = false;
+    private EventChannel.EventSink sink;
+
+    private WakeEventStream() {
+    }
+
+    public static WakeEventStream getInstance() {
+        return instance;
+    }
+
+    public void publish(int type, String keyword, double score, double latencyMillis, String speaker) {
+        enqueue(Collections.singletonList(
+                Arrays.asList(type, keyword, System.currentTimeMillis(), score, latencyMillis, speaker)));
+    }
+
+    // دفعة جاهزة من خدمة الاستماع في عملية :listener (ListenerBridge)
+    public void publishBatch(List<?> events) {
+        if (events != null && !events.isEmpty()) {
+            enqueue(events);
+        }
+    }
+
+    private void enqueue(List<?> events) {
+        synchronized (pending) {
+            for (Object event : events) {
+                if (pending.size() == MAX_PENDING) {
+                    pending.remove(0);
+                }
+                pending.add(event);
+            }
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        if (foreground) {
+            mainHandler.post(flush);
+        } else {
+            mainHandler.postDelayed(flush, BACKGROUND_BATCH_MILLIS);
+        }
+    }
+
+    public void publishDetected(String keyword) {
+        publish(DETECTED, keyword, 0, 0, null);
+    }
+
+    public void publishVerification(String keyword, VerificationResult result) {
+        int type = result.isError() ? ERROR : result.isMatched() ? ACCEPTED : REJECTED;
+        publish(type, keyword, result.getScore(), result.getLatencyMillis(),
+                result.isError() ? result.getErrorMessage() : result.getSpeaker());
+    }
+
+    // من الخيط الرئيسي (onResume/onPause)؛ الرجوع للواجهة يرسل الدفعة المعلقة فورًا
+    public void setForeground(boolean foreground) {
+        this.foreground = foreground;
+        if (foreground) {
+            mainHandler.removeCallbacks(flush);
+            flush();
+        }
+    }
+
+    // على كل محرك قبل تشغيل Dart فيه: المحرك المُسخّن يشترك من initState قبل وجود أي Activity
+    public void registerChannel(BinaryMessenger messenger) {
+        new EventChannel(messenger, CHANNEL).setStreamHandler(new EventChannel.StreamHandler() {
+            @Override
+            public void onListen(Object arguments, EventChannel.EventSink events) {
+                setSink(events);
+            }
+
+            @Override
+            public void onCancel(Object arguments) {
+                setSink(null);
+            }
+        });
+    }
+
+    // من الخيط الرئيسي عند الاشتراك وإلغائه
+    public void setSink(EventChannel.EventSink sink) {
+        this.sink = sink;
+        if (sink != null) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (sink == null) {
+            // تبقى الأحداث حتى يشترك أحد؛ publish القادم يجدول إرسالًا جديدًا
+            synchronized (pending) {
+                flushScheduled = false;
+            }
+            return;
+        }
+        List<Object> batch;
+        synchronized (pending) {
+            flushScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pending);
+            pending.clear();
+        }
+        sink.success(batch);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.nabd;
+
+// يفصل خط المعالجة عن Porcupine حتى يمكن تشغيله على JVM بمحرك بديل
+public interface WakeWordEngine {
+    int getFrameLength();
+
+    // رقم الكلمة المكتشفة أو -1
+    int process(short[] frame) throws Exception;
+
+    void delete();
+}
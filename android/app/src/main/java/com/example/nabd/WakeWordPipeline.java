@@ -0,0 +1,150 @@
+package com.example.nabd;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// مستمع الإطارات في خدمة الاستماع: يغذي الـ pre-roll ثم محرك كلمة التنبيه، ويبلغ عن الاكتشاف.
+// مع VoiceActivityGate لا يُستدعى المحرك أثناء الصمت، لكن الـ pre-roll يُغذى دائمًا.
+public class WakeWordPipeline implements FrameListener {
+    public interface Listener {
+        void onWakeWord(int keywordIndex, long detectionNanos);
+
+        void onEngineError(Exception e);
+
+        // على خيط الالتقاط، بعد تركيب المحرك الجديد وقبل أول إطار له؛ previous لم يعد مستخدمًا
+        default void onEngineReplaced(WakeWordEngine previous) {
+        }
+    }
+
+    private final AudioRingBuffer preRollBuffer;
+    private WakeWordEngine engine;
+    // محرك جديد ينتظر حدود الإطار التالي على خيط الالتقاط
+    private final AtomicReference<WakeWordEngine> pendingEngine = new AtomicReference<>();
+    private final Listener listener;
+    private final VoiceActivityGate gate;
+    private final int onsetFrames;
+    private final short[] onsetFrame;
+    private ListeningMetrics metrics;
+    private long framesProcessed = 0;
+    private long framesSkipped = 0;
+    private long detections = 0;
+
+    public WakeWordPipeline(AudioRingBuffer preRollBuffer, WakeWordEngine engine, Listener listener) {
+        this(preRollBuffer, engine, listener, null, 0);
+    }
+
+    // onsetFrames: عدد الإطارات السابقة التي تُعاد للمحرك من الـ pre-roll عند فتح البوابة،
+    // حتى لا تضيع بداية الكلمة التي كانت تحت العتبة
+    public WakeWordPipeline(AudioRingBuffer preRollBuffer, WakeWordEngine engine, Listener listener,
+                            VoiceActivityGate gate, int onsetFrames) {
+        this.preRollBuffer = preRollBuffer;
+        this.engine = engine;
+        this.listener = listener;
+        this.gate = gate;
+        this.onsetFrames = gate != null ? Math.max(0, onsetFrames) : 0;
+        this.onsetFrame = new short[engine.getFrameLength()];
+    }
+
+    // يُضبط قبل بدء الالتقاط
+    public void setMetrics(ListeningMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // إعادة تحميل الكلمات بدون إيقاف الالتقاط: يُركب المحرك على خيط الالتقاط بين إطارين.
+    // يرجع محركًا سابقًا كان ينتظر ولم يُركب (على المستدعي حذفه)، أو null
+    public WakeWordEngine replaceEngine(WakeWordEngine next) {
+        if (next.getFrameLength() != onsetFrame.length) {
+            throw new IllegalArgumentException("Frame length mismatch: " + next.getFrameLength()
+                    + " != " + onsetFrame.length);
+        }
+        return pendingEngine.getAndSet(next);
+    }
+
+    // لتنظيف محرك لم يُركب عند إيقاف الخدمة
+    public WakeWordEngine takePendingEngine() {
+        return pendingEngine.getAndSet(null);
+    }
+
+    public WakeWordEngine getEngine() {
+        return engine;
+    }
+
+    @Override
+    public void onFrame(short[] frame, int length) {
+        WakeWordEngine next = pendingEngine.getAndSet(null);
+        if (next != null) {
+            WakeWordEngine previous = engine;
+            engine = next;
+            listener.onEngineReplaced(previous);
+        }
+        preRollBuffer.write(frame, 0, length);
+        if (gate != null) {
+            boolean wasOpen = gate.isOpen();
+            if (!gate.accept(frame, length)) {
+                framesSkipped++;
+                if (metrics != null) {
+                    metrics.framesSkipped.increment();
+                }
+                return;
+            }
+            if (!wasOpen && !replayOnset(length)) {
+                return;
+            }
+        }
+        process(frame);
+    }
+
+    // يعيد الإطارات التي سبقت الإطار الحالي (المكتوب للتو في الـ pre-roll)
+    private boolean replayOnset(int length) {
+        long current = preRollBuffer.getWriteSequence() - length;
+        for (int i = onsetFrames; i > 0; i--) {
+            long from = current - (long) i * onsetFrame.length;
+            if (from < 0 || preRollBuffer.read(from, onsetFrame, onsetFrame.length) != onsetFrame.length) {
+                continue;
+            }
+            if (!process(onsetFrame)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // false إذا انتهى الإطار باكتشاف أو خطأ
+    private boolean process(short[] frame) {
+        framesProcessed++;
+        try {
+            int keywordIndex = engine.process(frame);
+            if (keywordIndex >= 0) {
+                detections++;
+                if (metrics != null) {
+                    metrics.wakeDetections.increment();
+                }
+                listener.onWakeWord(keywordIndex, System.nanoTime());
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            listener.onEngineError(e);
+            return false;
+        }
+    }
+
+    public AudioRingBuffer getPreRollBuffer() {
+        return preRollBuffer;
+    }
+
+    public long getFramesProcessed() {
+        return framesProcessed;
+    }
+
+    public long getFramesSkipped() {
+        return framesSkipped;
+    }
+
+    public VoiceActivityGate getGate() {
+        return gate;
+    }
+
+    public long getDetections() {
+        return detections;
+    }
+}
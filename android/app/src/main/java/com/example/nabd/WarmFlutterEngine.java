@@ -0,0 +1,43 @@
+package com.example.nabd;
+
+import android.content.Context;
+import android.util.Log;
+
+import io.flutter.embedding.engine.FlutterEngine;
+import io.flutter.embedding.engine.FlutterEngineCache;
+import io.flutter.embedding.engine.dart.DartExecutor;
+
+// محرك Flutter مُسخّن مسبقًا من خدمة الاستماع، حتى يفتح التطبيق بعد التحقق من الصوت بدون تشغيل بارد.
+// يبدأ مباشرة على مسار الاستماع ويبقى في FlutterEngineCache طوال عمر العملية.
+// كل الدوال تُستدعى من الخيط الرئيسي.
+public final class WarmFlutterEngine {
+    private static final String TAG = "WarmFlutterEngine";
+    static final String ENGINE_ID = "nabd_warm_engine";
+    static final String LISTENING_ROUTE = "/listening";
+    // مفتاح shared_preferences من جهة Flutter لتفعيل التسخين المسبق
+    static final String WARM_ENGINE_KEY = "flutter.warm_engine";
+
+    private WarmFlutterEngine() {
+    }
+
+    public static FlutterEngine get() {
+        return FlutterEngineCache.getInstance().get(ENGINE_ID);
+    }
+
+    public static FlutterEngine warm(Context context) {
+        FlutterEngine engine = get();
+        if (engine != null) {
+            return engine;
+        }
+        long start = System.nanoTime();
+        // الإضافات (plugins) تُسجل تلقائيًا عند إنشاء المحرك، وباقي قنوات nabd في MainActivity عند الإرفاق.
+        // أحداث الاكتشاف تُسجل هنا قبل تشغيل Dart لأن MainScreen يشترك فيها من initState
+        engine = new FlutterEngine(context.getApplicationContext());
+        WakeEventStream.getInstance().registerChannel(engine.getDartExecutor().getBinaryMessenger());
+        engine.getNavigationChannel().setInitialRoute(LISTENING_ROUTE);
+        engine.getDartExecutor().executeDartEntrypoint(DartExecutor.DartEntrypoint.createDefault());
+        FlutterEngineCache.getInstance().put(ENGINE_ID, engine);
+        Log.d(TAG, "Flutter engine warmed in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return engine;
+    }
+}
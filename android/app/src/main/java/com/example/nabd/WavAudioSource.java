@@ -0,0 +1,56 @@
+package com.example.nabd;
+
+import java.io.File;
+import java.io.IOException;
+
+// مصدر صوت من ملف WAV (PCM 16-bit mono) لتشغيل خط المعالجة على JVM بدون ميكروفون
+public class WavAudioSource implements AudioSource {
+    private final File file;
+    private WavReader reader;
+
+    public WavAudioSource(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return reader != null ? reader.getSampleRate() : 0;
+    }
+
+    @Override
+    public boolean start() {
+        if (reader != null) {
+            return true;
+        }
+        try {
+            reader = new WavReader(file);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public int read(short[] buffer, int offset, int length) {
+        if (reader == null) {
+            return -1;
+        }
+        int read = reader.read(buffer, offset, length);
+        return read < 0 ? END_OF_STREAM : read;
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    @Override
+    public void release() {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException ignored) {
+            }
+            reader = null;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.nabd;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+// يقرأ WAV (PCM 16-bit mono) عبر ربط الملف بالذاكرة؛ العينات متاحة كـ ShortBuffer بدون نسخ
+public class WavReader implements Closeable {
+    private final RandomAccessFile file;
+    private final ShortBuffer samples;
+    private final int sampleRate;
+
+    public WavReader(File path) throws IOException {
+        file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (mapped.remaining() < 12 || mapped.getInt() != 0x46464952 /* RIFF */) {
+                throw new IOException("Not a RIFF file: " + path);
+            }
+            mapped.getInt();
+            if (mapped.getInt() != 0x45564157 /* WAVE */) {
+                throw new IOException("Not a WAVE file: " + path);
+            }
+
+            int rate = -1;
+            ShortBuffer data = null;
+            while (mapped.remaining() >= 8 && data == null) {
+                int tag = mapped.getInt();
+                int size = mapped.getInt();
+                int next = (int) Math.min((long) mapped.position() + size + (size & 1), mapped.limit());
+                if (tag == 0x20746d66 /* fmt */) {
+                    short format = mapped.getShort();
+                    short channels = mapped.getShort();
+                    rate = mapped.getInt();
+                    mapped.getInt();
+                    mapped.getShort();
+                    short bitsPerSample = mapped.getShort();
+                    if (format != 1 || channels != 1 || bitsPerSample != 16) {
+                        throw new IOException("Unsupported WAV format in " + path);
+                    }
+                } else if (tag == 0x61746164 /* data */) {
+                    int end = (int) Math.min((long) mapped.position() + size, mapped.limit());
+                    mapped.limit(end);
+                    data = mapped.slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+                    break;
+                }
+                mapped.position(next);
+            }
+            if (rate < 0 || data == null) {
+                throw new IOException("Missing fmt or data chunk in " + path);
+            }
+            sampleRate = rate;
+            samples = data;
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getSampleCount() {
+        return samples.limit();
+    }
+
+    // نسخة مستقلة الموضع من العينات (بدون نسخ البيانات)
+    public ShortBuffer getSamples() {
+        return samples.duplicate();
+    }
+
+    // قراءة تسلسلية؛ يرجع -1 عند نهاية البيانات
+    public int read(short[] dest, int offset, int length) {
+        int count = Math.min(length, samples.remaining());
+        if (count <= 0) {
+            return -1;
+        }
+        samples.get(dest, offset, count);
+        return count;
+    }
+
+    public void rewind() {
+        samples.rewind();
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.nabd;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+// يكتب WAV (PCM 16-bit mono) تدريجيًا أثناء التسجيل عبر buffer مباشر ثابت الحجم،
+// ويصحح أحجام RIFF في الرأس عند الإغلاق
+public class WavWriter implements Closeable {
+    static final int HEADER_SIZE = 44;
+    private static final int DEFAULT_BUFFER_SAMPLES = 8192;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final ShortBuffer samples;
+    private final int sampleRate;
+    private long dataBytes = 0;
+    private boolean closed = false;
+
+    public WavWriter(File file, int sampleRate) throws IOException {
+        this(file, sampleRate, DEFAULT_BUFFER_SAMPLES);
+    }
+
+    public WavWriter(File file, int sampleRate, int bufferSamples) throws IOException {
+        this.sampleRate = sampleRate;
+        this.file = new RandomAccessFile(file, "rw");
+        this.channel = this.file.getChannel();
+        this.buffer = ByteBuffer.allocateDirect(Math.max(bufferSamples, HEADER_SIZE) * 2).order(ByteOrder.LITTLE_ENDIAN);
+        this.samples = buffer.asShortBuffer();
+        channel.truncate(0);
+        writeHeader();
+    }
+
+    public void write(short[] source, int offset, int length) throws IOException {
+        while (length > 0) {
+            int count = Math.min(length, samples.remaining());
+            samples.put(source, offset, count);
+            offset += count;
+            length -= count;
+            if (!samples.hasRemaining()) {
+                flush();
+            }
+        }
+    }
+
+    public long getSampleCount() {
+        return (dataBytes + samples.position() * 2L) / 2;
+    }
+
+    public void flush() throws IOException {
+        int bytes = samples.position() * 2;
+        if (bytes == 0) {
+            return;
+        }
+        buffer.clear();
+        buffer.limit(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        dataBytes += bytes;
+        samples.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flush();
+            writeHeader();
+        } finally {
+            file.close();
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        // الرأس يُكتب في نفس الـ buffer المباشر ثم يعود لاستقبال العينات
+        buffer.clear();
+        buffer.putInt(0x46464952); // RIFF
+        buffer.putInt((int) (36 + dataBytes));
+        buffer.putInt(0x45564157); // WAVE
+        buffer.putInt(0x20746d66); // fmt
+        buffer.putInt(16);
+        buffer.putShort((short) 1);
+        buffer.putShort((short) 1);
+        buffer.putInt(sampleRate);
+        buffer.putInt(sampleRate * 2);
+        buffer.putShort((short) 2);
+        buffer.putShort((short) 16);
+        buffer.putInt(0x61746164); // data
+        buffer.putInt((int) dataBytes);
+        buffer.flip();
+        long position = 0;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        if (channel.position() < HEADER_SIZE) {
+            channel.position(HEADER_SIZE);
+        }
+        buffer.clear();
+        samples.clear();
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.nabd;
+
+import org.junit.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveScoringPolicyTest {
+    private static final String SPEAKER = "owner";
+    private static final float ENROLLED = 0.65f;
+    private static final float QUIET_SNR = 30f;
+    private static final int FRAME_LENGTH = 4;
+
+    private final CalibrationStore calibrations = CalibrationStore.inMemory();
+    private final AdaptiveScoringPolicy policy =
+            new AdaptiveScoringPolicy(DecisionRule.threshold(ENROLLED), calibrations);
+
+    // متوسط 0.9 وانحراف 0.05 بعد عشر جلسات: الحد المعاير 0.9 - 3 * 0.05 = 0.75
+    private void calibrate() {
+        calibrations.save(SPEAKER, new SpeakerCalibration(0.9f, 0.0025f, 10));
+    }
+
+    @Test
+    public void uncalibratedQuietSessionKeepsEnrolledThreshold() {
+        Set<ScoringPolicy.Reason> reasons = EnumSet.noneOf(ScoringPolicy.Reason.class);
+
+        assertEquals(ENROLLED, policy.thresholdFor(SPEAKER, ENROLLED, QUIET_SNR, reasons), 1e-6f);
+        assertEquals(EnumSet.of(ScoringPolicy.Reason.NOT_CALIBRATED), reasons);
+    }
+
+    @Test
+    public void unknownSnrIsNotRelaxed() {
+        Set<ScoringPolicy.Reason> reasons = EnumSet.noneOf(ScoringPolicy.Reason.class);
+
+        assertEquals(ENROLLED, policy.thresholdFor(SPEAKER, ENROLLED, SnrEstimator.UNKNOWN, reasons), 1e-6f);
+        assertFalse(reasons.contains(ScoringPolicy.Reason.LOW_SNR_RELAXED));
+    }
+
+    @Test
+    public void lowSnrRelaxesThresholdWithCap() {
+        Set<ScoringPolicy.Reason> reasons = EnumSet.noneOf(ScoringPolicy.Reason.class);
+        // 10 dB تحت المرجع: 10 * 0.006
+        assertEquals(ENROLLED - 0.06f, policy.thresholdFor(SPEAKER, ENROLLED, 10f, reasons), 1e-6f);
+        assertTrue(reasons.contains(ScoringPolicy.Reason.LOW_SNR_RELAXED));
+        assertFalse(reasons.contains(ScoringPolicy.Reason.TOO_NOISY));
+
+        reasons.clear();
+        // تحت minSnrDb يُعامل كـ 5 dB: 15 * 0.006
+        assertEquals(ENROLLED - 0.09f, policy.thresholdFor(SPEAKER, ENROLLED, -10f, reasons), 1e-6f);
+        assertTrue(reasons.contains(ScoringPolicy.Reason.TOO_NOISY));
+    }
+
+    @Test
+    public void thresholdNeverDropsBelowMinimum() {
+        assertEquals(0.4f, policy.thresholdFor(SPEAKER, 0.42f, 0f, null), 1e-6f);
+    }
+
+    @Test
+    public void calibrationRaisesThresholdUpToCap() {
+        calibrate();
+        Set<ScoringPolicy.Reason> reasons = EnumSet.noneOf(ScoringPolicy.Reason.class);
+        assertEquals(0.75f, policy.thresholdFor(SPEAKER, ENROLLED, QUIET_SNR, reasons), 1e-5f);
+        assertEquals(EnumSet.of(ScoringPolicy.Reason.CALIBRATION_RAISED), reasons);
+
+        // 0.98 - 3 * 0.01 = 0.95 أعلى من سقف الرفع 0.65 + 0.15
+        calibrations.save(SPEAKER, new SpeakerCalibration(0.98f, 0.0001f, 10));
+        assertEquals(0.8f, policy.thresholdFor(SPEAKER, ENROLLED, QUIET_SNR, null), 1e-5f);
+    }
+
+    @Test
+    public void tooFewSessionsDoNotCalibrate() {
+        calibrations.save(SPEAKER, new SpeakerCalibration(0.9f, 0.0025f, 4));
+        Set<ScoringPolicy.Reason> reasons = EnumSet.noneOf(ScoringPolicy.Reason.class);
+
+        assertEquals(ENROLLED, policy.thresholdFor(SPEAKER, ENROLLED, QUIET_SNR, reasons), 1e-6f);
+        assertTrue(reasons.contains(ScoringPolicy.Reason.NOT_CALIBRATED));
+    }
+
+    @Test
+    public void confidenceIsHalfAtThresholdAndUsesSpeakerSpread() {
+        assertEquals(0.5f, policy.confidence(SPEAKER, 0.7f, 0.7f), 1e-6f);
+        // بدون معايرة: عرض 0.05 الافتراضي
+        assertEquals(logistic(1f), policy.confidence(SPEAKER, 0.75f, 0.7f), 1e-5f);
+
+        // انحراف المتحدث 0.01 أضيق من الحد الأدنى 0.02
+        calibrations.save(SPEAKER, new SpeakerCalibration(0.9f, 0.0001f, 10));
+        assertEquals(logistic(2.5f), policy.confidence(SPEAKER, 0.75f, 0.7f), 1e-5f);
+    }
+
+    // نفس الدرجات تُقبل قبل المعايرة وتُرفض بعدها: منتحل يصل إلى 0.7 أمام مستخدم معتاد على 0.9
+    @Test
+    public void impostorTraceIsRejectedOnceCalibrated() throws Exception {
+        float[][] impostor = {{0.3f}, {0.7f}, {0.6f}, {0.5f}};
+
+        Decision before = decide(impostor);
+        assertTrue(before.accepted);
+        assertEquals(logistic(1f), before.confidence, 1e-5f);
+
+        calibrate();
+        Decision after = decide(impostor);
+        assertFalse(after.accepted);
+        assertEquals(0.75f, after.threshold, 1e-5f);
+        assertEquals(logistic(-1f), after.confidence, 1e-5f);
+    }
+
+    @Test
+    public void ownerTraceIsAcceptedWithHighConfidence() throws Exception {
+        calibrate();
+        Decision decision = decide(new float[][]{{0.5f}, {0.92f}, {0.88f}, {0.9f}});
+
+        assertTrue(decision.accepted);
+        assertEquals(logistic(3.4f), decision.confidence, 1e-4f);
+    }
+
+    @Test
+    public void noisyOwnerTraceIsAcceptedWithRelaxedThreshold() throws Exception {
+        calibrate();
+        // 10 dB: 0.75 - 0.06
+        Decision decision = decide(new float[][]{{0.4f}, {0.7f}, {0.6f}}, 10f);
+
+        assertTrue(decision.accepted);
+        assertEquals(0.69f, decision.threshold, 1e-5f);
+    }
+
+    @Test
+    public void onlyQuietAcceptedSessionsAreLearned() {
+        policy.onAccepted(SPEAKER, 0.9f, 10f);
+        policy.onAccepted(SPEAKER, 0.9f, SnrEstimator.UNKNOWN);
+        policy.onAccepted(null, 0.9f, QUIET_SNR);
+        assertNull(calibrations.load(SPEAKER));
+
+        policy.onAccepted(SPEAKER, 0.9f, QUIET_SNR);
+        policy.onAccepted(SPEAKER, 0.8f, 15f);
+        SpeakerCalibration calibration = calibrations.load(SPEAKER);
+        assertEquals(2, calibration.getSessions());
+        assertEquals(0.85f, calibration.getMean(), 1e-6f);
+    }
+
+    static final class Decision {
+        boolean accepted;
+        float threshold;
+        float confidence;
+    }
+
+    private Decision decide(float[][] trace) throws Exception {
+        return decide(trace, QUIET_SNR);
+    }
+
+    // نفس تسلسل VoiceIdService: الحد من السياسة، ثم StreamingVerifier بقاعدتها، ثم الثقة
+    private Decision decide(float[][] trace, float snrDb) throws Exception {
+        Decision decision = new Decision();
+        decision.threshold = policy.thresholdFor(SPEAKER, ENROLLED, snrDb, null);
+        StreamingVerifier verifier = new StreamingVerifier(new StreamingVerifierTest.ScriptedScorer(trace),
+                FRAME_LENGTH, policy.getRule());
+        verifier.setProfileThresholds(new float[]{decision.threshold});
+        int length = trace.length * FRAME_LENGTH;
+        decision.accepted = verifier.verify(new short[length], length) == StreamingVerifier.Verdict.ACCEPT;
+        decision.confidence = policy.confidence(SPEAKER, verifier.getDecisionScore(), decision.threshold);
+        return decision;
+    }
+
+    private static float logistic(float x) {
+        return (float) (1.0 / (1.0 + Math.exp(-x)));
+    }
+}
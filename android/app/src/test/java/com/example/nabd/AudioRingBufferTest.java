@@ -0,0 +1,131 @@
+package com.example.nabd;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AudioRingBufferTest {
+    private static final int SAMPLE_RATE = 16000;
+    private static final int FRAME_LENGTH = 512;
+
+    // سعة 100 ms (1600 عينة) + هامش كتابتين
+    private static AudioRingBuffer smallBuffer() {
+        return new AudioRingBuffer(SAMPLE_RATE, 100, FRAME_LENGTH);
+    }
+
+    // قيمة العينة تساوي تسلسلها حتى يُعرف من أي كتابة جاءت كل عينة منسوخة
+    private static void writeRamp(AudioRingBuffer buffer, long from, int count) {
+        short[] frame = new short[count];
+        for (int i = 0; i < count; i++) {
+            frame[i] = (short) (from + i);
+        }
+        buffer.write(frame, 0, count);
+    }
+
+    @Test
+    public void snapshotReturnsLatestSamplesInOrderAcrossWrap() {
+        AudioRingBuffer buffer = smallBuffer();
+        long written = 0;
+        for (int i = 0; i < 7; i++) {
+            writeRamp(buffer, written, FRAME_LENGTH);
+            written += FRAME_LENGTH;
+        }
+        short[] dest = new short[buffer.samplesFor(100)];
+        int count = buffer.snapshot(100, dest);
+
+        assertEquals(1600, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals((short) (written - count + i), dest[i]);
+        }
+    }
+
+    @Test
+    public void snapshotBeforeBufferFillsReturnsWhatWasWritten() {
+        AudioRingBuffer buffer = smallBuffer();
+        writeRamp(buffer, 0, 300);
+        short[] dest = new short[1600];
+
+        assertEquals(300, buffer.snapshot(100, dest));
+        assertEquals(299, dest[299]);
+    }
+
+    @Test
+    public void readReturnsZeroUntilSamplesArePublished() {
+        AudioRingBuffer buffer = smallBuffer();
+        short[] dest = new short[FRAME_LENGTH];
+        assertEquals(0, buffer.read(0, dest, FRAME_LENGTH));
+
+        writeRamp(buffer, 0, FRAME_LENGTH);
+        assertEquals(FRAME_LENGTH, buffer.read(0, dest, FRAME_LENGTH));
+        assertEquals(0, buffer.read(FRAME_LENGTH, dest, FRAME_LENGTH));
+    }
+
+    @Test
+    public void readDetectsOverwrittenSamples() {
+        AudioRingBuffer buffer = smallBuffer();
+        short[] dest = new short[FRAME_LENGTH];
+        long written = 0;
+        // السعة 1600 + 1024: بعد أربعة إطارات ما زال الإطار الأول صالحًا
+        for (int i = 0; i < 4; i++) {
+            writeRamp(buffer, written, FRAME_LENGTH);
+            written += FRAME_LENGTH;
+        }
+        assertEquals(FRAME_LENGTH, buffer.read(0, dest, FRAME_LENGTH));
+
+        // الكتابة التالية قد تلمس الإطار الأول
+        writeRamp(buffer, written, FRAME_LENGTH);
+        written += FRAME_LENGTH;
+        assertEquals(-1, buffer.read(0, dest, FRAME_LENGTH));
+
+        // الإطار الأحدث ما زال صالحًا وبمحتواه
+        assertEquals(FRAME_LENGTH, buffer.read(written - FRAME_LENGTH, dest, FRAME_LENGTH));
+        short[] expected = new short[FRAME_LENGTH];
+        for (int i = 0; i < FRAME_LENGTH; i++) {
+            expected[i] = (short) (written - FRAME_LENGTH + i);
+        }
+        assertArrayEquals(expected, dest);
+    }
+
+    // منتج مستمر ومستهلك يأخذ لقطات: كل لقطة مرجعة متصلة (لا تخلط كتابتين)، وما فشل بعد
+    // إعادة المحاولة يرجع 0 بدل بيانات ممزقة
+    @Test
+    public void concurrentSnapshotsAreNeverTorn() throws Exception {
+        AudioRingBuffer buffer = new AudioRingBuffer(SAMPLE_RATE, 200, FRAME_LENGTH);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread producer = new Thread(() -> {
+            short[] frame = new short[FRAME_LENGTH];
+            long sequence = 0;
+            while (running.get()) {
+                for (int i = 0; i < FRAME_LENGTH; i++) {
+                    frame[i] = (short) (sequence + i);
+                }
+                buffer.write(frame, 0, FRAME_LENGTH);
+                sequence += FRAME_LENGTH;
+            }
+        });
+        producer.start();
+
+        short[] dest = new short[buffer.samplesFor(200)];
+        int complete = 0;
+        long deadline = System.nanoTime() + 300_000_000L;
+        try {
+            while (System.nanoTime() < deadline) {
+                int count = buffer.snapshot(200, dest);
+                for (int i = 1; i < count; i++) {
+                    assertEquals("torn snapshot at " + i, (short) (dest[i - 1] + 1), dest[i]);
+                }
+                if (count == dest.length) {
+                    complete++;
+                }
+            }
+        } finally {
+            running.set(false);
+            producer.join();
+        }
+        assertTrue("no snapshot succeeded", complete > 0);
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.nabd;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CaptureEngineTest {
+    private static final int SAMPLE_RATE = 16000;
+    private static final int FRAME_LENGTH = 512;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // ينسخ كل إطار لأن CaptureEngine يعيد استخدام المصفوفة
+    static final class RecordingListener implements FrameListener {
+        final List<short[]> frames = new ArrayList<>();
+
+        @Override
+        public void onFrame(short[] frame, int length) {
+            frames.add(Arrays.copyOf(frame, length));
+        }
+    }
+
+    @Test
+    public void everyListenerReceivesTheSameFramesFromWav() throws Exception {
+        // عشرة إطارات كاملة ونصف إطار أخير لا يُوزع
+        short[] samples = new short[FRAME_LENGTH * 10 + FRAME_LENGTH / 2];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) (i * 31 % 20000 - 10000);
+        }
+        File wav = writeWav(samples);
+
+        CaptureEngine engine = new CaptureEngine(new WavAudioSource(wav), FRAME_LENGTH);
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+        RecordingListener third = new RecordingListener();
+        engine.addListener(first);
+        engine.addListener(second);
+        engine.addListener(third);
+        engine.runToEnd();
+
+        assertEquals(10, first.frames.size());
+        for (int i = 0; i < first.frames.size(); i++) {
+            short[] expected = Arrays.copyOfRange(samples, i * FRAME_LENGTH, (i + 1) * FRAME_LENGTH);
+            assertArrayEquals("frame " + i, expected, first.frames.get(i));
+            assertArrayEquals("frame " + i, expected, second.frames.get(i));
+            assertArrayEquals("frame " + i, expected, third.frames.get(i));
+        }
+        assertEquals(first.frames.size(), second.frames.size());
+        assertEquals(first.frames.size(), third.frames.size());
+    }
+
+    @Test
+    public void removedListenerStopsReceivingFrames() throws Exception {
+        File wav = writeWav(new short[FRAME_LENGTH * 4]);
+        CaptureEngine engine = new CaptureEngine(new WavAudioSource(wav), FRAME_LENGTH);
+        RecordingListener kept = new RecordingListener();
+        RecordingListener removed = new RecordingListener();
+        engine.addListener(kept);
+        engine.addListener(removed);
+        engine.removeListener(removed);
+        engine.runToEnd();
+
+        assertEquals(4, kept.frames.size());
+        assertEquals(0, removed.frames.size());
+    }
+
+    // نهاية الملف توقف طبيعي وليست خطأ قراءة
+    @Test
+    public void endOfWavIsNotCountedAsReadError() throws Exception {
+        File wav = writeWav(new short[FRAME_LENGTH * 3]);
+        CaptureEngine engine = new CaptureEngine(new WavAudioSource(wav), FRAME_LENGTH);
+        ListeningMetrics metrics = new ListeningMetrics();
+        engine.setMetrics(metrics);
+        engine.runToEnd();
+
+        assertEquals(3, metrics.framesCaptured.sum());
+        assertEquals(0, metrics.readErrors.sum());
+    }
+
+    // ميكروفون وهمي: start() يفشل failStarts مرة، والقراءة إطار صامت كل ميلي ثانية حتى stop()
+    static final class FlakySource implements AudioSource {
+        final AtomicInteger failStarts = new AtomicInteger();
+        final AtomicInteger starts = new AtomicInteger();
+        private volatile boolean started;
+
+        @Override
+        public int getSampleRate() {
+            return SAMPLE_RATE;
+        }
+
+        @Override
+        public boolean start() {
+            if (failStarts.getAndDecrement() > 0) {
+                return false;
+            }
+            starts.incrementAndGet();
+            started = true;
+            return true;
+        }
+
+        @Override
+        public int read(short[] buffer, int offset, int length) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                return -1;
+            }
+            return started ? length : 0;
+        }
+
+        @Override
+        public void stop() {
+            started = false;
+        }
+
+        @Override
+        public void release() {
+        }
+    }
+
+    static final class CountingListener implements FrameListener {
+        final AtomicInteger frames = new AtomicInteger();
+
+        @Override
+        public void onFrame(short[] frame, int length) {
+            frames.incrementAndGet();
+        }
+
+        void awaitMore(int than) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (frames.get() <= than) {
+                assertTrue("no frames captured", System.nanoTime() < deadline);
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    @Test
+    public void resumeRetriesSourceStartUntilItSucceeds() throws Exception {
+        FlakySource source = new FlakySource();
+        ListeningMetrics metrics = new ListeningMetrics();
+        CaptureEngine engine = new CaptureEngine(source, FRAME_LENGTH);
+        engine.setMetrics(metrics);
+        engine.setResumeRetryMillis(1, 1, 1);
+        AtomicReference<String> failure = new AtomicReference<>();
+        engine.setFailureListener(failure::set);
+        CountingListener listener = new CountingListener();
+        engine.addListener(listener);
+        try {
+            assertTrue(engine.start());
+            listener.awaitMore(0);
+
+            engine.pause();
+            source.failStarts.set(2);
+            engine.resume();
+            int before = listener.frames.get();
+            listener.awaitMore(before);
+
+            assertTrue(engine.isRunning());
+            assertEquals(2, metrics.resumeFailures.sum());
+            assertEquals(2, source.starts.get());
+            assertNull(failure.get());
+        } finally {
+            engine.stop();
+        }
+    }
+
+    @Test
+    public void resumeReportsFailureAfterLastRetry() throws Exception {
+        FlakySource source = new FlakySource();
+        ListeningMetrics metrics = new ListeningMetrics();
+        CaptureEngine engine = new CaptureEngine(source, FRAME_LENGTH);
+        engine.setMetrics(metrics);
+        engine.setResumeRetryMillis(1, 1);
+        CountDownLatch failed = new CountDownLatch(1);
+        engine.setFailureListener(reason -> failed.countDown());
+        CountingListener listener = new CountingListener();
+        engine.addListener(listener);
+        try {
+            assertTrue(engine.start());
+            listener.awaitMore(0);
+
+            engine.pause();
+            source.failStarts.set(Integer.MAX_VALUE);
+            engine.resume();
+
+            assertTrue(failed.await(5, TimeUnit.SECONDS));
+            assertFalse(engine.isRunning());
+            assertEquals(3, metrics.resumeFailures.sum());
+        } finally {
+            engine.stop();
+        }
+    }
+
+    @Test
+    public void stopDoesNotReportFailure() throws Exception {
+        FlakySource source = new FlakySource();
+        CaptureEngine engine = new CaptureEngine(source, FRAME_LENGTH);
+        AtomicReference<String> failure = new AtomicReference<>();
+        engine.setFailureListener(failure::set);
+        CountingListener listener = new CountingListener();
+        engine.addListener(listener);
+        assertTrue(engine.start());
+        listener.awaitMore(0);
+        engine.pause();
+        engine.stop();
+
+        assertFalse(engine.isRunning());
+        assertNull(failure.get());
+    }
+
+    // مثل AudioRecord مع READ_BLOCKING: read() ينتظر حتى يُزوَّد إطار أو يُستدعى stop()
+    static final class BlockingSource implements AudioSource {
+        private final Semaphore frames = new Semaphore(0);
+        private volatile boolean stopped;
+
+        void supply(int count) {
+            frames.release(count);
+        }
+
+        @Override
+        public int getSampleRate() {
+            return SAMPLE_RATE;
+        }
+
+        @Override
+        public boolean start() {
+            stopped = false;
+            return true;
+        }
+
+        @Override
+        public int read(short[] buffer, int offset, int length) {
+            try {
+                while (!stopped) {
+                    if (frames.tryAcquire(1, TimeUnit.MILLISECONDS)) {
+                        return length;
+                    }
+                }
+            } catch (InterruptedException e) {
+                return -1;
+            }
+            return 0;
+        }
+
+        @Override
+        public void stop() {
+            stopped = true;
+        }
+
+        @Override
+        public void release() {
+        }
+    }
+
+    @Test
+    public void stopUnblocksPendingReadAndJoinsThread() throws Exception {
+        BlockingSource source = new BlockingSource();
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        CaptureEngine engine = new CaptureEngine(source, FRAME_LENGTH, runnable -> {
+            thread.set(new Thread(runnable, "capture-test"));
+            return thread.get();
+        });
+        CountingListener listener = new CountingListener();
+        engine.addListener(listener);
+        assertTrue(engine.start());
+        source.supply(2);
+        listener.awaitMore(1);
+
+        // الخيط الآن داخل read() بلا بيانات
+        long start = System.nanoTime();
+        engine.stop();
+        long stopMillis = (System.nanoTime() - start) / 1_000_000L;
+
+        assertFalse(thread.get().isAlive());
+        assertFalse(engine.isRunning());
+        assertTrue("stop took " + stopMillis + " ms", stopMillis < 500);
+        assertEquals(2, listener.frames.get());
+    }
+
+    @Test
+    public void slowListenersAreCountedAsSlowDispatches() throws Exception {
+        BlockingSource source = new BlockingSource();
+        ListeningMetrics metrics = new ListeningMetrics();
+        CaptureEngine engine = new CaptureEngine(source, FRAME_LENGTH);
+        engine.setMetrics(metrics);
+        CountingListener counter = new CountingListener();
+        // مدة الإطار 32 ms عند 512 عينة / 16 kHz؛ المستمع يتأخر في الإطارات الثلاثة الأولى فقط
+        engine.addListener((frame, length) -> {
+            if (counter.frames.get() < 3) {
+                try {
+                    Thread.sleep(40);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        engine.addListener(counter);
+        try {
+            assertTrue(engine.start());
+            source.supply(5);
+            counter.awaitMore(4);
+        } finally {
+            engine.stop();
+        }
+
+        assertEquals(5, metrics.framesCaptured.sum());
+        assertEquals(3, metrics.slowDispatches.sum());
+    }
+
+    private File writeWav(short[] samples) throws Exception {
+        File file = folder.newFile("capture.wav");
+        try (WavWriter writer = new WavWriter(file, SAMPLE_RATE)) {
+            writer.write(samples, 0, samples.length);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.nabd;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class FileCalibrationStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static SpeakerCalibration calibration(float mean) {
+        return new SpeakerCalibration(mean, 0.01f, 5);
+    }
+
+    @Test
+    public void savedCalibrationSurvivesNewInstance() throws Exception {
+        File directory = folder.newFolder();
+        new FileCalibrationStore(directory, Runnable::run).save("ali", calibration(0.8f));
+
+        SpeakerCalibration loaded = new FileCalibrationStore(directory, Runnable::run).load("ali");
+        assertNotNull(loaded);
+        assertEquals(calibration(0.8f).serialize(), loaded.serialize());
+    }
+
+    // واجهة و:listener: كل واحدة بنسختها في الذاكرة فوق نفس الملف
+    @Test
+    public void removeFromOtherProcessIsSeenAfterInvalidate() throws Exception {
+        File directory = folder.newFolder();
+        FileCalibrationStore listener = new FileCalibrationStore(directory, Runnable::run);
+        FileCalibrationStore ui = new FileCalibrationStore(directory, Runnable::run);
+        listener.save("ali", calibration(0.8f));
+        assertNotNull(listener.load("ali"));
+
+        ui.remove("ali");
+        assertNotNull(listener.load("ali"));
+        listener.invalidate();
+        assertNull(listener.load("ali"));
+    }
+
+    @Test
+    public void saveDoesNotWriteBackStaleCalibration() throws Exception {
+        File directory = folder.newFolder();
+        FileCalibrationStore listener = new FileCalibrationStore(directory, Runnable::run);
+        FileCalibrationStore ui = new FileCalibrationStore(directory, Runnable::run);
+        listener.save("ali", calibration(0.8f));
+        listener.save("sara", calibration(0.7f));
+
+        // إعادة تسجيل ali في الواجهة ثم قبول لـ sara في :listener قبل أن يصله الإبطال
+        ui.remove("ali");
+        listener.save("sara", calibration(0.75f));
+
+        FileCalibrationStore reader = new FileCalibrationStore(directory, Runnable::run);
+        assertNull(reader.load("ali"));
+        assertEquals(calibration(0.75f).serialize(), reader.load("sara").serialize());
+    }
+
+    // التحقق يعدل الذاكرة فقط؛ القرص على خيط io
+    @Test
+    public void saveWritesToDiskOnlyOnIoExecutor() throws Exception {
+        File directory = folder.newFolder();
+        List<Runnable> io = new ArrayList<>();
+        FileCalibrationStore store = new FileCalibrationStore(directory, io::add);
+        store.save("ali", calibration(0.8f));
+
+        assertNotNull(store.load("ali"));
+        assertEquals(0, directory.listFiles().length);
+        assertEquals(1, io.size());
+
+        io.get(0).run();
+        assertNotNull(new FileCalibrationStore(directory, Runnable::run).load("ali"));
+    }
+
+    @Test
+    public void clearDeletesFile() throws Exception {
+        File directory = folder.newFolder();
+        FileCalibrationStore store = new FileCalibrationStore(directory, Runnable::run);
+        store.save("ali", calibration(0.8f));
+        store.clear();
+
+        assertNull(store.load("ali"));
+        assertNull(new FileCalibrationStore(directory, Runnable::run).load("ali"));
+        assertEquals(0, directory.listFiles().length);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.nabd;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SnrEstimatorTest {
+    private static final int FRAME_LENGTH = 512;
+
+    // إطارات موجة مربعة متتالية: طاقة كل إطار مربع سعته بالضبط
+    private static short[] frames(int... amplitudes) {
+        short[] audio = new short[amplitudes.length * FRAME_LENGTH];
+        for (int f = 0; f < amplitudes.length; f++) {
+            for (int i = 0; i < FRAME_LENGTH; i++) {
+                audio[f * FRAME_LENGTH + i] = (short) ((i & 1) == 0 ? amplitudes[f] : -amplitudes[f]);
+            }
+        }
+        return audio;
+    }
+
+    @Test
+    public void shorterThanTwoFramesIsUnknown() {
+        short[] audio = frames(1000);
+        assertTrue(Float.isNaN(SnrEstimator.estimateDb(audio, audio.length, FRAME_LENGTH)));
+        assertTrue(Float.isNaN(SnrEstimator.estimateDb(audio, FRAME_LENGTH * 2 - 1, FRAME_LENGTH)));
+    }
+
+    @Test
+    public void speechTenTimesLouderThanNoiseIsTwentyDb() {
+        short[] audio = frames(100, 100, 1000, 1000, 1000, 100, 1000, 100, 100, 1000);
+        assertEquals(20f, SnrEstimator.estimateDb(audio, audio.length, FRAME_LENGTH), 1e-4f);
+    }
+
+    @Test
+    public void frameOrderDoesNotMatter() {
+        short[] first = frames(100, 100, 100, 100, 100, 1000, 1000, 1000, 1000, 1000);
+        short[] second = frames(1000, 100, 1000, 100, 1000, 100, 1000, 100, 1000, 100);
+        assertEquals(SnrEstimator.estimateDb(first, first.length, FRAME_LENGTH),
+                SnrEstimator.estimateDb(second, second.length, FRAME_LENGTH), 0f);
+    }
+
+    @Test
+    public void steadyNoiseIsZeroDb() {
+        short[] audio = frames(300, 300, 300, 300, 300, 300);
+        assertEquals(0f, SnrEstimator.estimateDb(audio, audio.length, FRAME_LENGTH), 1e-6f);
+    }
+
+    @Test
+    public void digitalSilenceDoesNotDivideByZero() {
+        short[] audio = frames(0, 0, 0, 0, 0, 1000, 1000, 1000, 1000, 1000);
+        // الضوضاء تُحسب بطاقة 1: 10 * log10(1000²)
+        assertEquals(60f, SnrEstimator.estimateDb(audio, audio.length, FRAME_LENGTH), 1e-4f);
+    }
+
+    @Test
+    public void trailingPartialFrameIsIgnored() {
+        short[] audio = frames(100, 1000, 30000);
+        assertEquals(20f, SnrEstimator.estimateDb(audio, FRAME_LENGTH * 2 + 100, FRAME_LENGTH), 1e-4f);
+    }
+}
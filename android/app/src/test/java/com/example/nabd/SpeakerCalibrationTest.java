@@ -0,0 +1,66 @@
+package com.example.nabd;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SpeakerCalibrationTest {
+    @Test
+    public void firstSessionSetsMeanWithoutSpread() {
+        SpeakerCalibration calibration = new SpeakerCalibration(0f, 0f, 0).add(0.8f, 0.1f);
+
+        assertEquals(0.8f, calibration.getMean(), 1e-6f);
+        assertEquals(0f, calibration.getStdDev(), 1e-6f);
+        assertEquals(1, calibration.getSessions());
+    }
+
+    @Test
+    public void earlySessionsMatchPlainMeanAndVariance() {
+        SpeakerCalibration calibration = new SpeakerCalibration(0f, 0f, 0);
+        for (float score : new float[]{0.8f, 0.9f, 1.0f}) {
+            calibration = calibration.add(score, 0.1f);
+        }
+
+        assertEquals(0.9f, calibration.getMean(), 1e-6f);
+        // تباين المجتمع لـ {0.8, 0.9, 1.0} = 0.02 / 3
+        assertEquals((float) Math.sqrt(0.02 / 3), calibration.getStdDev(), 1e-5f);
+        assertEquals(3, calibration.getSessions());
+    }
+
+    @Test
+    public void laterSessionsUseExponentialWeight() {
+        SpeakerCalibration calibration = new SpeakerCalibration(0.9f, 0f, 20).add(0.5f, 0.1f);
+
+        assertEquals(0.86f, calibration.getMean(), 1e-6f);
+        // (1 - 0.1) * (0 + 0.1 * 0.4²)
+        assertEquals((float) Math.sqrt(0.9 * 0.1 * 0.16), calibration.getStdDev(), 1e-5f);
+        assertEquals(21, calibration.getSessions());
+    }
+
+    @Test
+    public void serializeRoundTrips() {
+        SpeakerCalibration calibration = new SpeakerCalibration(0.875f, 0.0025f, 12);
+        SpeakerCalibration parsed = SpeakerCalibration.parse(calibration.serialize());
+
+        assertEquals(0.875f, parsed.getMean(), 1e-6f);
+        assertEquals(0.05f, parsed.getStdDev(), 1e-5f);
+        assertEquals(12, parsed.getSessions());
+    }
+
+    @Test
+    public void corruptValuesParseToNull() {
+        assertNull(SpeakerCalibration.parse(null));
+        assertNull(SpeakerCalibration.parse(""));
+        assertNull(SpeakerCalibration.parse("0.9,0.1"));
+        assertNull(SpeakerCalibration.parse("0.9,x,3"));
+    }
+
+    @Test
+    public void negativeValuesAreClamped() {
+        SpeakerCalibration calibration = new SpeakerCalibration(0.5f, -1f, -3);
+
+        assertEquals(0f, calibration.getStdDev(), 0f);
+        assertEquals(0, calibration.getSessions());
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.nabd;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class StreamingVerifierTest {
+    private static final int FRAME_LENGTH = 4;
+
+    // يرجع درجات محددة مسبقًا بالترتيب، إطارًا بإطار، بدل Eagle
+    static final class ScriptedScorer implements FrameScorer {
+        private final float[][] rows;
+        int next;
+        int resets;
+
+        ScriptedScorer(float[]... rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public void reset() {
+            next = 0;
+            resets++;
+        }
+
+        @Override
+        public float[] score(short[] frame) {
+            return rows[next++];
+        }
+    }
+
+    private static float[][] single(float... scores) {
+        float[][] rows = new float[scores.length][];
+        for (int i = 0; i < scores.length; i++) {
+            rows[i] = new float[]{scores[i]};
+        }
+        return rows;
+    }
+
+    private static StreamingVerifier verifier(DecisionRule rule, float[][] rows) {
+        return new StreamingVerifier(new ScriptedScorer(rows), FRAME_LENGTH, rule);
+    }
+
+    private static StreamingVerifier.Verdict run(StreamingVerifier verifier, int frames) throws Exception {
+        return verifier.verify(new short[frames * FRAME_LENGTH], frames * FRAME_LENGTH);
+    }
+
+    @Test
+    public void thresholdAcceptsOnFirstFrameAboveThreshold() throws Exception {
+        StreamingVerifier verifier = verifier(DecisionRule.threshold(0.5f),
+                single(0.2f, 0.3f, 0.8f, 0.1f, 0.1f, 0.1f));
+
+        assertEquals(StreamingVerifier.Verdict.ACCEPT, run(verifier, 6));
+        assertEquals(3, verifier.getFramesProcessed());
+        assertEquals(0, verifier.getAcceptedIndex());
+        assertEquals(0.8f, verifier.getDecisionScore(), 1e-6f);
+    }
+
+    @Test
+    public void thresholdRejectsOnlyAfterLastFrame() throws Exception {
+        StreamingVerifier verifier = verifier(DecisionRule.threshold(0.5f), single(0.2f, 0.3f, 0.4f, 0.5f));
+
+        assertEquals(StreamingVerifier.Verdict.REJECT, run(verifier, 4));
+        assertEquals(4, verifier.getFramesProcessed());
+        assertEquals(-1, verifier.getAcceptedIndex());
+    }
+
+    @Test
+    public void consecutiveNeedsUnbrokenRun() throws Exception {
+        StreamingVerifier verifier = verifier(DecisionRule.consecutive(0.5f, 3),
+                single(0.6f, 0.6f, 0.2f, 0.6f, 0.6f, 0.6f, 0.1f, 0.1f));
+
+        assertEquals(StreamingVerifier.Verdict.ACCEPT, run(verifier, 8));
+        assertEquals(6, verifier.getFramesProcessed());
+    }
+
+    @Test
+    public void consecutiveRejectsEarlyWhenRunCannotComplete() throws Exception {
+        StreamingVerifier verifier = verifier(DecisionRule.consecutive(0.5f, 3),
+                single(0.1f, 0.1f, 0.1f, 0.9f, 0.9f));
+
+        assertEquals(StreamingVerifier.Verdict.REJECT, run(verifier, 5));
+        // بعد الإطار الثالث يبقى إطاران فقط لسلسلة من ثلاثة
+        assertEquals(3, verifier.getFramesProcessed());
+    }
+
+    @Test
+    public void smoothedAcceptsWhenAverageCrossesThreshold() throws Exception {
+        StreamingVerifier verifier = verifier(DecisionRule.smoothed(0.5f, 0.5f), single(0.2f, 0.9f, 0.9f, 0.9f));
+
+        assertEquals(StreamingVerifier.Verdict.ACCEPT, run(verifier, 4));
+        // 0.2 ثم 0.2 + 0.5 * (0.9 - 0.2) = 0.55
+        assertEquals(2, verifier.getFramesProcessed());
+        assertEquals(0.55f, verifier.getDecisionScore(), 1e-6f);
+    }
+
+    @Test
+    public void smoothedRejectsEarlyWhenAverageCannotRecover() throws Exception {
+        StreamingVerifier verifier = verifier(DecisionRule.smoothed(0.9f, 0.1f), single(new float[10]));
+
+        assertEquals(StreamingVerifier.Verdict.REJECT, run(verifier, 10));
+        // حتى تسعة إطارات بدرجة 1 ترفع المتوسط إلى 1 - 0.9^9 ≈ 0.61 فقط
+        assertEquals(1, verifier.getFramesProcessed());
+    }
+
+    @Test
+    public void topKMeanIgnoresSingleOutlier() throws Exception {
+        StreamingVerifier verifier = verifier(DecisionRule.topKMean(0.5f, 3),
+                single(0.99f, 0.1f, 0.1f, 0.1f, 0.1f));
+
+        assertEquals(StreamingVerifier.Verdict.REJECT, run(verifier, 5));
+        assertEquals((0.99f + 0.1f + 0.1f) / 3, verifier.getDecisionScore(), 1e-6f);
+    }
+
+    @Test
+    public void topKMeanAcceptsOnceBestFramesAgree() throws Exception {
+        StreamingVerifier verifier = verifier(DecisionRule.topKMean(0.6f, 3),
+                single(0.99f, 0.6f, 0.6f, 0.1f, 0.1f));
+
+        assertEquals(StreamingVerifier.Verdict.ACCEPT, run(verifier, 5));
+        // بعد إطارين (0.99 + 0.6 + 0) / 3 = 0.53 فقط
+        assertEquals(3, verifier.getFramesProcessed());
+        assertEquals((0.99f + 0.6f + 0.6f) / 3, verifier.getDecisionScore(), 1e-6f);
+    }
+
+    @Test
+    public void topKMeanRejectsEarlyWhenRemainingFramesCannotReachThreshold() throws Exception {
+        StreamingVerifier verifier = verifier(DecisionRule.topKMean(0.8f, 3), single(0f, 0f, 1f, 1f));
+
+        assertEquals(StreamingVerifier.Verdict.REJECT, run(verifier, 4));
+        // بعد إطارين: أفضل ما يمكن (1 + 1 + 0) / 3 ≈ 0.67
+        assertEquals(2, verifier.getFramesProcessed());
+    }
+
+    @Test
+    public void perProfileThresholdsSelectAcceptedProfile() throws Exception {
+        StreamingVerifier verifier = verifier(DecisionRule.threshold(0.5f),
+                new float[][]{{0.8f, 0.6f}, {0.8f, 0.6f}});
+        verifier.setProfileThresholds(new float[]{0.9f, 0.5f});
+
+        assertEquals(StreamingVerifier.Verdict.ACCEPT, run(verifier, 2));
+        assertEquals(1, verifier.getAcceptedIndex());
+        assertEquals(2, verifier.getProfileCount());
+    }
+
+    @Test
+    public void beginResetsStateAndScorer() throws Exception {
+        ScriptedScorer scorer = new ScriptedScorer(single(0.9f, 0.1f));
+        StreamingVerifier verifier = new StreamingVerifier(scorer, FRAME_LENGTH, DecisionRule.threshold(0.5f));
+        assertEquals(StreamingVerifier.Verdict.ACCEPT, run(verifier, 2));
+
+        verifier.setRule(DecisionRule.threshold(0.95f));
+        assertEquals(StreamingVerifier.Verdict.REJECT, run(verifier, 2));
+        assertEquals(2, scorer.resets);
+        assertEquals(-1, verifier.getAcceptedIndex());
+    }
+
+    @Test
+    public void noFramesRejectsImmediately() throws Exception {
+        StreamingVerifier verifier = verifier(DecisionRule.threshold(0.5f), single());
+
+        assertEquals(StreamingVerifier.Verdict.REJECT, run(verifier, 0));
+        assertEquals(0, verifier.getFramesProcessed());
+    }
+}
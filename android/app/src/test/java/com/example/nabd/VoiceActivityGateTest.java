@@ -0,0 +1,227 @@
+package com.example.nabd;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VoiceActivityGateTest {
+    private static final int FRAME_LENGTH = 512;
+
+    // موجة مربعة ±amplitude: طاقتها amplitude² بالضبط
+    private static short[] square(int amplitude) {
+        short[] frame = new short[FRAME_LENGTH];
+        for (int i = 0; i < FRAME_LENGTH; i++) {
+            frame[i] = (short) ((i & 1) == 0 ? amplitude : -amplitude);
+        }
+        return frame;
+    }
+
+    private static short[] constant(int value) {
+        short[] frame = new short[FRAME_LENGTH];
+        Arrays.fill(frame, (short) value);
+        return frame;
+    }
+
+    @Test
+    public void frameEnergyIsMeanSquare() {
+        assertEquals(0, VoiceActivityGate.frameEnergy(new short[FRAME_LENGTH], FRAME_LENGTH));
+        assertEquals(300L * 300L, VoiceActivityGate.frameEnergy(square(300), FRAME_LENGTH));
+        assertEquals(32767L * 32767L, VoiceActivityGate.frameEnergy(square(32767), FRAME_LENGTH));
+        assertEquals(0, VoiceActivityGate.frameEnergy(square(300), 0));
+    }
+
+    @Test
+    public void silenceAndQuietNoiseKeepGateClosed() {
+        VoiceActivityGate gate = new VoiceActivityGate();
+        for (int i = 0; i < 50; i++) {
+            assertFalse(gate.accept(new short[FRAME_LENGTH], FRAME_LENGTH));
+        }
+        // RMS 50 تحت الحد الأدنى للطاقة حتى لو كانت الأرضية صفرًا
+        for (int i = 0; i < 50; i++) {
+            assertFalse(gate.accept(square(50), FRAME_LENGTH));
+        }
+        assertEquals(0, gate.getPassedFrames());
+        assertEquals(100, gate.getSkippedFrames());
+        assertEquals(0, gate.getOpenings());
+    }
+
+    @Test
+    public void toneBurstsOpenGateOncePerBurst() {
+        VoiceActivityGate gate = new VoiceActivityGate(VoiceActivityGate.DEFAULT_RATIO_Q8,
+                VoiceActivityGate.DEFAULT_MIN_ENERGY, 0);
+        short[] silence = new short[FRAME_LENGTH];
+        short[] tone = square(3000);
+        for (int burst = 0; burst < 3; burst++) {
+            for (int i = 0; i < 10; i++) {
+                assertFalse(gate.accept(silence, FRAME_LENGTH));
+            }
+            for (int i = 0; i < 5; i++) {
+                assertTrue("burst " + burst + " frame " + i, gate.accept(tone, FRAME_LENGTH));
+            }
+        }
+        assertEquals(3, gate.getOpenings());
+        assertEquals(15, gate.getPassedFrames());
+        assertEquals(30, gate.getSkippedFrames());
+    }
+
+    @Test
+    public void hangoverKeepsGateOpenAfterSpeech() {
+        VoiceActivityGate gate = new VoiceActivityGate(VoiceActivityGate.DEFAULT_RATIO_Q8,
+                VoiceActivityGate.DEFAULT_MIN_ENERGY, 3);
+        short[] silence = new short[FRAME_LENGTH];
+        gate.accept(silence, FRAME_LENGTH);
+        assertTrue(gate.accept(square(3000), FRAME_LENGTH));
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue("hangover frame " + i, gate.accept(silence, FRAME_LENGTH));
+        }
+        assertFalse(gate.accept(silence, FRAME_LENGTH));
+        assertFalse(gate.isOpen());
+        assertEquals(1, gate.getOpenings());
+
+        // كلام أثناء الـ hangover يجدده ولا يُعد فتحًا جديدًا
+        assertTrue(gate.accept(square(3000), FRAME_LENGTH));
+        assertTrue(gate.accept(silence, FRAME_LENGTH));
+        assertTrue(gate.accept(square(3000), FRAME_LENGTH));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(gate.accept(silence, FRAME_LENGTH));
+        }
+        assertFalse(gate.accept(silence, FRAME_LENGTH));
+        assertEquals(2, gate.getOpenings());
+    }
+
+    @Test
+    public void noiseFloorAdaptsToSteadyNoise() {
+        VoiceActivityGate gate = new VoiceActivityGate(VoiceActivityGate.DEFAULT_RATIO_Q8,
+                VoiceActivityGate.DEFAULT_MIN_ENERGY, 0);
+        short[] quiet = square(300);
+        short[] loud = square(600);
+        for (int i = 0; i < 20; i++) {
+            assertFalse(gate.accept(quiet, FRAME_LENGTH));
+        }
+        assertEquals(300L * 300L, gate.getNoiseFloor());
+
+        // ضوضاء أعلى بأربعة أضعاف تفتح البوابة أولًا ثم تصبح جزءًا من الأرضية
+        assertTrue(gate.accept(loud, FRAME_LENGTH));
+        for (int i = 0; i < 200; i++) {
+            gate.accept(loud, FRAME_LENGTH);
+        }
+        assertFalse(gate.isOpen());
+        assertTrue(gate.getNoiseFloor() * VoiceActivityGate.DEFAULT_RATIO_Q8 >> 8 >= 600L * 600L);
+
+        // الكلام فوق الأرضية الجديدة ما زال يُمرر
+        assertTrue(gate.accept(square(3000), FRAME_LENGTH));
+
+        // عودة الهدوء: الأرضية تنزل بسرعة
+        for (int i = 0; i < 30; i++) {
+            gate.accept(quiet, FRAME_LENGTH);
+        }
+        assertTrue(gate.getNoiseFloor() < 2 * 300L * 300L);
+        assertFalse(gate.isOpen());
+    }
+
+    @Test
+    public void resetForgetsNoiseFloor() {
+        VoiceActivityGate gate = new VoiceActivityGate();
+        gate.accept(square(3000), FRAME_LENGTH);
+        gate.reset();
+
+        assertEquals(-1, gate.getNoiseFloor());
+        assertFalse(gate.isOpen());
+        assertEquals(VoiceActivityGate.DEFAULT_MIN_ENERGY, gate.getThreshold());
+    }
+
+    // يسجل أول عينة من كل إطار يصل للمحرك؛ detectOn: قيمة الإطار الذي يُبلغ فيه عن اكتشاف
+    static final class RecordingEngine implements WakeWordEngine {
+        final List<Integer> frames = new ArrayList<>();
+        int detectOn = Integer.MIN_VALUE;
+
+        @Override
+        public int getFrameLength() {
+            return FRAME_LENGTH;
+        }
+
+        @Override
+        public int process(short[] frame) {
+            frames.add((int) frame[0]);
+            return frame[0] == detectOn ? 0 : -1;
+        }
+
+        @Override
+        public void delete() {
+        }
+    }
+
+    static final class CountingListener implements WakeWordPipeline.Listener {
+        int detections;
+
+        @Override
+        public void onWakeWord(int keywordIndex, long detectionNanos) {
+            detections++;
+        }
+
+        @Override
+        public void onEngineError(Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static WakeWordPipeline gatedPipeline(RecordingEngine engine, CountingListener listener) {
+        AudioRingBuffer preRoll = new AudioRingBuffer(16000, 1000, FRAME_LENGTH);
+        VoiceActivityGate gate = new VoiceActivityGate(VoiceActivityGate.DEFAULT_RATIO_Q8,
+                VoiceActivityGate.DEFAULT_MIN_ENERGY, 0);
+        return new WakeWordPipeline(preRoll, engine, listener, gate, 2);
+    }
+
+    @Test
+    public void openingReplaysOnsetFramesFromPreRoll() {
+        RecordingEngine engine = new RecordingEngine();
+        CountingListener listener = new CountingListener();
+        WakeWordPipeline pipeline = gatedPipeline(engine, listener);
+
+        // إطارات هادئة مرقمة 1..5 (طاقة ≤ 25 تحت الحد الأدنى) ثم كلام
+        for (int i = 1; i <= 5; i++) {
+            pipeline.onFrame(constant(i), FRAME_LENGTH);
+        }
+        assertTrue(engine.frames.isEmpty());
+        pipeline.onFrame(constant(5000), FRAME_LENGTH);
+        pipeline.onFrame(constant(5001), FRAME_LENGTH);
+
+        assertEquals(Arrays.asList(4, 5, 5000, 5001), engine.frames);
+        assertEquals(5, pipeline.getFramesSkipped());
+        assertEquals(4, pipeline.getFramesProcessed());
+    }
+
+    @Test
+    public void detectionDuringReplayStopsCurrentFrame() {
+        RecordingEngine engine = new RecordingEngine();
+        engine.detectOn = 4;
+        CountingListener listener = new CountingListener();
+        WakeWordPipeline pipeline = gatedPipeline(engine, listener);
+
+        for (int i = 1; i <= 5; i++) {
+            pipeline.onFrame(constant(i), FRAME_LENGTH);
+        }
+        pipeline.onFrame(constant(5000), FRAME_LENGTH);
+
+        assertEquals(1, listener.detections);
+        assertEquals(Arrays.asList(4), engine.frames);
+    }
+
+    @Test
+    public void replaySkipsFramesBeforeStreamStart() {
+        RecordingEngine engine = new RecordingEngine();
+        WakeWordPipeline pipeline = gatedPipeline(engine, new CountingListener());
+
+        pipeline.onFrame(constant(7), FRAME_LENGTH);
+        pipeline.onFrame(constant(5000), FRAME_LENGTH);
+
+        assertEquals(Arrays.asList(7, 5000), engine.frames);
+    }
+}
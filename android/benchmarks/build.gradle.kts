@@ -0,0 +1,103 @@
+// Offline replay harness and JMH benchmarks for the listening pipeline.
+// Compiles the pure-Java pipeline classes from :app directly, so no Android SDK is needed:
+//   ./gradlew :benchmarks:jmh
+//   ./gradlew :benchmarks:run --args="path/to/corpus"
+//   ./gradlew :benchmarks:evaluateScoring -Ptrace=path/to/scores.csv
+//   ./gradlew :benchmarks:simulateScheduling -Pevents=path/to/events.csv
+// The JVM unit tests in :app (app/src/test/java) run here too:
+//   ./gradlew :benchmarks:test
+plugins {
+    java
+    application
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+val pipelineSources = listOf(
+    "AdaptiveScoringPolicy",
+    "AudioFrontEnd",
+    "AudioSource",
+    "AudioRingBuffer",
+    "AutomaticGainControl",
+    "BiquadHighPass",
+    "CalibrationStore",
+    "CaptureEngine",
+    "DcBlocker",
+    "DecisionRule",
+    "FileCalibrationStore",
+    "FixedScoringPolicy",
+    "FrameListener",
+    "FrameProcessor",
+    "FrameScorer",
+    "LatencyHistogram",
+    "ListeningMetrics",
+    "ListeningScheduler",
+    "PreEmphasis",
+    "ScoringPolicy",
+    "SnrEstimator",
+    "SpeakerCalibration",
+    "SpeculativeScorer",
+    "StreamingVerifier",
+    "StripedCounter",
+    "VerificationCallback",
+    "VerificationExecutor",
+    "VerificationResult",
+    "VoiceActivityGate",
+    "WakeWordEngine",
+    "WakeWordPipeline",
+    "WavAudioSource",
+    "WavReader",
+    "WavWriter",
+)
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include(pipelineSources.map { "com/example/nabd/$it.java" })
+            include("com/example/nabd/bench/**")
+        }
+    }
+    test {
+        java {
+            srcDir("../app/src/test/java")
+        }
+    }
+}
+
+dependencies {
+    testImplementation("junit:junit:4.13.2")
+}
+
+application {
+    mainClass.set("com.example.nabd.bench.ReplayHarness")
+}
+
+tasks.register<JavaExec>("evaluateScoring") {
+    description = "Compares verification scoring policies on labeled score traces."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.example.nabd.bench.ScoreTraceEvaluator")
+    project.findProperty("trace")?.let { args(it.toString()) }
+}
+
+tasks.register<JavaExec>("simulateScheduling") {
+    description = "Replays a day of screen, charging and thermal events through each listening profile."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.example.nabd.bench.SchedulerSimulator")
+    project.findProperty("events")?.let { args(it.toString()) }
+}
+
+jmh {
+    warmupIterations.set(2)
+    iterations.set(5)
+    fork.set(1)
+    profilers.add("gc")
+}
@@ -0,0 +1,50 @@
+package com.example.nabd.bench;
+
+import com.example.nabd.AudioRingBuffer;
+import com.example.nabd.CaptureEngine;
+import com.example.nabd.VoiceActivityGate;
+import com.example.nabd.WakeWordPipeline;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// حلقة الالتقاط كاملة لكل إطار: قراءة المصدر ← pre-roll ← محرك كلمة التنبيه
+@State(Scope.Thread)
+public class CaptureFanoutBenchmark {
+    private static final int SECONDS = 10;
+    private static final int FRAMES = SECONDS * 16000 / 512;
+
+    @Param({"false", "true"})
+    public boolean vad;
+
+    private ArrayAudioSource source;
+    private CaptureEngine capture;
+
+    @Setup
+    public void setup() {
+        source = new ArrayAudioSource(ReplayHarness.synthesize(SECONDS, 3L), 16000, 1);
+        capture = new CaptureEngine(source, 512);
+        capture.addListener(new WakeWordPipeline(new AudioRingBuffer(16000, 2000, 512),
+                new StubWakeWordEngine(512, Long.MAX_VALUE, 0, 2_000),
+                new WakeWordPipeline.Listener() {
+                    @Override
+                    public void onWakeWord(int keywordIndex, long detectionNanos) {
+                    }
+
+                    @Override
+                    public void onEngineError(Exception e) {
+                    }
+                }, vad ? new VoiceActivityGate() : null, 3));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public void captureFrames() {
+        source.rewind();
+        capture.runToEnd();
+    }
+}
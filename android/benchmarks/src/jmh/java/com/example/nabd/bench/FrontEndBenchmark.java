@@ -0,0 +1,60 @@
+package com.example.nabd.bench;
+
+import com.example.nabd.AudioFrontEnd;
+import com.example.nabd.AutomaticGainControl;
+import com.example.nabd.BiquadHighPass;
+import com.example.nabd.DcBlocker;
+import com.example.nabd.FrameProcessor;
+import com.example.nabd.PreEmphasis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// كل مرحلة من AudioFrontEnd على إطار 512 عينة، ثم السلسلة كاملة؛ gc.alloc.rate يجب أن يبقى صفرًا
+@State(Scope.Thread)
+public class FrontEndBenchmark {
+    private static final int SECONDS = 4;
+
+    @Param({"dc", "highpass", "preemphasis", "agc", "chain"})
+    public String stage;
+
+    private FrameProcessor processor;
+    private short[] audio;
+    private short[] frame;
+    private int position;
+
+    @Setup
+    public void setup() {
+        switch (stage) {
+            case "dc":
+                processor = new DcBlocker();
+                break;
+            case "highpass":
+                processor = new BiquadHighPass(16000);
+                break;
+            case "preemphasis":
+                processor = new PreEmphasis();
+                break;
+            case "agc":
+                processor = new AutomaticGainControl();
+                break;
+            default:
+                processor = AudioFrontEnd.standard(16000, true);
+                break;
+        }
+        audio = ReplayHarness.synthesize(SECONDS, 5L);
+        frame = new short[512];
+    }
+
+    @Benchmark
+    public short processFrame() {
+        // المعالجة في المكان: نسخة جديدة من الصوت المصطنع لكل إطار حتى لا تتراكم المراحل
+        System.arraycopy(audio, position, frame, 0, frame.length);
+        position = (position + frame.length) % (audio.length - frame.length);
+        processor.process(frame, frame.length);
+        return frame[0];
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.nabd.bench;
+
+import com.example.nabd.AudioRingBuffer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+public class RingBufferBenchmark {
+    private AudioRingBuffer ringBuffer;
+    private short[] frame;
+    private short[] snapshot;
+
+    @Setup
+    public void setup() {
+        ringBuffer = new AudioRingBuffer(16000, 2000, 512);
+        frame = ReplayHarness.synthesize(1, 1L);
+        snapshot = new short[ringBuffer.samplesFor(2000)];
+        for (int i = 0; i < 64; i++) {
+            ringBuffer.write(frame, 0, 512);
+        }
+    }
+
+    @Benchmark
+    public long writeFrame() {
+        ringBuffer.write(frame, 0, 512);
+        return ringBuffer.getWriteSequence();
+    }
+
+    @Benchmark
+    public int snapshotTwoSeconds() {
+        return ringBuffer.snapshot(2000, snapshot);
+    }
+}
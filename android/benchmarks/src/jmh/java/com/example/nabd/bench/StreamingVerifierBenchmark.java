@@ -0,0 +1,50 @@
+package com.example.nabd.bench;
+
+import com.example.nabd.DecisionRule;
+import com.example.nabd.StreamingVerifier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// كلفة قاعدة القرار وتقسيم الإطارات بدون Eagle (scorer بدون عمل مُحاكى)
+@State(Scope.Thread)
+public class StreamingVerifierBenchmark {
+    @Param({"THRESHOLD", "CONSECUTIVE", "SMOOTHED", "TOP_K_MEAN"})
+    public String rule;
+
+    @Param({"1", "4"})
+    public int profiles;
+
+    private StreamingVerifier verifier;
+    private short[] audio;
+
+    @Setup
+    public void setup() {
+        DecisionRule decisionRule;
+        switch (rule) {
+            case "CONSECUTIVE":
+                decisionRule = DecisionRule.consecutive(0.99f, 3);
+                break;
+            case "SMOOTHED":
+                decisionRule = DecisionRule.smoothed(0.99f, 0.3f);
+                break;
+            case "TOP_K_MEAN":
+                decisionRule = DecisionRule.topKMean(0.99f, 3);
+                break;
+            default:
+                decisionRule = DecisionRule.threshold(0.99f);
+                break;
+        }
+        // الحد مرتفع حتى تمر القاعدة على كل الإطارات (أسوأ حالة)
+        verifier = new StreamingVerifier(new StubFrameScorer(profiles, 1e12f, 0), 512, decisionRule);
+        audio = ReplayHarness.synthesize(2, 7L);
+    }
+
+    @Benchmark
+    public StreamingVerifier.Verdict verifyTwoSeconds() throws Exception {
+        return verifier.verify(audio, audio.length);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.nabd.bench;
+
+import com.example.nabd.AudioSource;
+
+// مصدر صوت من مصفوفة في الذاكرة؛ يمكن تكراره عدة مرات لقياسات أطول
+public class ArrayAudioSource implements AudioSource {
+    private final short[] samples;
+    private final int sampleRate;
+    private final int loops;
+    private int position;
+    private int loop;
+
+    public ArrayAudioSource(short[] samples, int sampleRate, int loops) {
+        this.samples = samples;
+        this.sampleRate = sampleRate;
+        this.loops = loops;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public boolean start() {
+        return true;
+    }
+
+    @Override
+    public int read(short[] buffer, int offset, int length) {
+        if (position == samples.length) {
+            if (++loop >= loops) {
+                return END_OF_STREAM;
+            }
+            position = 0;
+        }
+        int count = Math.min(length, samples.length - position);
+        System.arraycopy(samples, position, buffer, offset, count);
+        position += count;
+        return count;
+    }
+
+    public void rewind() {
+        position = 0;
+        loop = 0;
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    @Override
+    public void release() {
+    }
+}
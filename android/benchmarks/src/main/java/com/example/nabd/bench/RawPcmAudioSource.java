@@ -0,0 +1,75 @@
+package com.example.nabd.bench;
+
+import com.example.nabd.AudioSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+// ملف PCM خام (16 kHz، 16-bit little-endian، mono) بدون رأس
+public class RawPcmAudioSource implements AudioSource {
+    private final File file;
+    private final int sampleRate;
+    private RandomAccessFile input;
+    private ShortBuffer samples;
+
+    public RawPcmAudioSource(File file, int sampleRate) {
+        this.file = file;
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public boolean start() {
+        if (input != null) {
+            return true;
+        }
+        try {
+            input = new RandomAccessFile(file, "r");
+            FileChannel channel = input.getChannel();
+            samples = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size() & ~1L)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asShortBuffer();
+            return true;
+        } catch (IOException e) {
+            release();
+            return false;
+        }
+    }
+
+    @Override
+    public int read(short[] buffer, int offset, int length) {
+        if (samples == null) {
+            return -1;
+        }
+        if (!samples.hasRemaining()) {
+            return END_OF_STREAM;
+        }
+        int count = Math.min(length, samples.remaining());
+        samples.get(buffer, offset, count);
+        return count;
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    @Override
+    public void release() {
+        if (input != null) {
+            try {
+                input.close();
+            } catch (IOException ignored) {
+            }
+            input = null;
+            samples = null;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.nabd.bench;
+
+import com.example.nabd.AudioRingBuffer;
+import com.example.nabd.AudioSource;
+import com.example.nabd.CaptureEngine;
+import com.example.nabd.DecisionRule;
+import com.example.nabd.StreamingVerifier;
+import com.example.nabd.VerificationExecutor;
+import com.example.nabd.VerificationResult;
+import com.example.nabd.VoiceActivityGate;
+import com.example.nabd.WakeWordPipeline;
+import com.example.nabd.WavAudioSource;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+// يشغّل ملفات WAV/PCM مسجلة عبر نفس خط المعالجة في خدمة الاستماع (CaptureEngine ← WakeWordPipeline
+// ← VerificationExecutor ← StreamingVerifier) بمحركات بديلة حتمية وأسرع من الزمن الحقيقي.
+//
+// الاستخدام: ReplayHarness [--speed X] [--loops N] [--wake-cost N] [--score-cost N] [--no-vad] <ملفات أو مجلدات>
+// بدون ملفات يُستخدم صوت اصطناعي. --speed 0 (الافتراضي) يعني أقصى سرعة.
+public final class ReplayHarness {
+    private static final int SAMPLE_RATE = 16000;
+    private static final int FRAME_LENGTH = 512;
+    private static final int PRE_ROLL_MILLIS = 2000;
+    private static final long WAKE_ENERGY_THRESHOLD = 4_000_000L;
+    private static final int REFRACTORY_FRAMES = 32;
+    private static final float SCORE_FULL_SCALE = 8_000_000f;
+    private static final float MATCH_THRESHOLD = 0.6f;
+    private static final int VAD_ONSET_FRAMES = 3;
+
+    private double speed = 0;
+    private int loops = 1;
+    private int wakeCost = 2_000;
+    private int scoreCost = 20_000;
+    private boolean vad = true;
+
+    private long frames;
+    private long engineFrames;
+    private long skippedFrames;
+    private long captureNanos;
+    private long allocatedBytes = -1;
+    private long detections;
+    private long accepts;
+    private long coalesced;
+    private final List<Long> latencies = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        ReplayHarness harness = new ReplayHarness();
+        List<File> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--speed":
+                    harness.speed = Double.parseDouble(args[++i]);
+                    break;
+                case "--loops":
+                    harness.loops = Integer.parseInt(args[++i]);
+                    break;
+                case "--wake-cost":
+                    harness.wakeCost = Integer.parseInt(args[++i]);
+                    break;
+                case "--score-cost":
+                    harness.scoreCost = Integer.parseInt(args[++i]);
+                    break;
+                case "--no-vad":
+                    harness.vad = false;
+                    break;
+                default:
+                    collect(new File(args[i]), inputs);
+                    break;
+            }
+        }
+
+        if (inputs.isEmpty()) {
+            System.out.println("No corpus given, replaying 60 s of synthetic audio");
+            harness.replay("synthetic", new ArrayAudioSource(synthesize(60, 42L), SAMPLE_RATE, harness.loops));
+        } else {
+            for (File input : inputs) {
+                for (int loop = 0; loop < harness.loops; loop++) {
+                    harness.replay(input.getName(), open(input));
+                }
+            }
+        }
+        harness.report();
+    }
+
+    private void replay(String name, AudioSource source) throws Exception {
+        AudioRingBuffer preRoll = new AudioRingBuffer(SAMPLE_RATE, PRE_ROLL_MILLIS, FRAME_LENGTH);
+        short[] verifyBuffer = new short[preRoll.samplesFor(PRE_ROLL_MILLIS)];
+        StreamingVerifier verifier = new StreamingVerifier(
+                new StubFrameScorer(1, SCORE_FULL_SCALE, scoreCost), FRAME_LENGTH, DecisionRule.threshold(MATCH_THRESHOLD));
+
+        VerificationExecutor executor = new VerificationExecutor((detectionNanos, keywordIndex) -> {
+            int length = preRoll.snapshot(PRE_ROLL_MILLIS, verifyBuffer);
+            try {
+                StreamingVerifier.Verdict verdict = verifier.verify(verifyBuffer, length);
+                return verdict == StreamingVerifier.Verdict.ACCEPT
+                        ? VerificationResult.matched(verifier.getDecisionScore())
+                        : VerificationResult.notMatched(verifier.getDecisionScore());
+            } catch (Exception e) {
+                return VerificationResult.error("VERIFY_ERROR", e.getMessage());
+            }
+        }, result -> {
+            synchronized (latencies) {
+                latencies.add(result.getLatencyNanos());
+                if (result.isMatched()) {
+                    accepts++;
+                }
+            }
+        });
+
+        WakeWordPipeline pipeline = new WakeWordPipeline(preRoll,
+                new StubWakeWordEngine(FRAME_LENGTH, WAKE_ENERGY_THRESHOLD, REFRACTORY_FRAMES, wakeCost),
+                new WakeWordPipeline.Listener() {
+                    @Override
+                    public void onWakeWord(int keywordIndex, long detectionNanos) {
+                        executor.submit(detectionNanos);
+                    }
+
+                    @Override
+                    public void onEngineError(Exception e) {
+                        System.err.println("Engine error: " + e.getMessage());
+                    }
+                }, vad ? new VoiceActivityGate() : null, VAD_ONSET_FRAMES);
+
+        CaptureEngine capture = new CaptureEngine(source, FRAME_LENGTH);
+        long[] captured = {0};
+        capture.addListener((frame, length) -> captured[0]++);
+        capture.addListener(pipeline);
+        if (speed > 0) {
+            long frameNanos = (long) (FRAME_LENGTH * 1_000_000_000L / SAMPLE_RATE / speed);
+            long[] next = {System.nanoTime()};
+            capture.addListener((frame, length) -> {
+                next[0] += frameNanos;
+                long wait = next[0] - System.nanoTime();
+                if (wait > 0) {
+                    sleepNanos(wait);
+                }
+            });
+        }
+
+        long allocatedBefore = threadAllocatedBytes();
+        long start = System.nanoTime();
+        capture.runToEnd();
+        long elapsed = System.nanoTime() - start;
+        long allocatedAfter = threadAllocatedBytes();
+        executor.shutdownAndWait(60_000);
+        source.release();
+
+        frames += captured[0];
+        engineFrames += pipeline.getFramesProcessed();
+        skippedFrames += pipeline.getFramesSkipped();
+        captureNanos += elapsed;
+        detections += pipeline.getDetections();
+        coalesced += executor.getCoalescedCount();
+        if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+            allocatedBytes = Math.max(allocatedBytes, 0) + (allocatedAfter - allocatedBefore);
+        }
+        System.out.printf(Locale.US, "%-32s %8d frames %6d detections %8.1f ms%n",
+                name, captured[0], pipeline.getDetections(), elapsed / 1e6);
+    }
+
+    private void report() {
+        double seconds = captureNanos / 1e9;
+        double audioSeconds = frames * (double) FRAME_LENGTH / SAMPLE_RATE;
+        System.out.println();
+        System.out.printf(Locale.US, "frames            %d (%.1f s of audio)%n", frames, audioSeconds);
+        System.out.printf(Locale.US, "engine calls      %d (%d frames skipped by VAD, %.1f%%)%n",
+                engineFrames, skippedFrames, frames == 0 ? 0.0 : 100.0 * skippedFrames / frames);
+        System.out.printf(Locale.US, "throughput        %.0f frames/s (%.1fx real time)%n",
+                frames / seconds, audioSeconds / seconds);
+        if (allocatedBytes >= 0) {
+            System.out.printf(Locale.US, "allocations       %.2f bytes/frame on the capture thread%n",
+                    frames == 0 ? 0.0 : (double) allocatedBytes / frames);
+        } else {
+            System.out.println("allocations       n/a (thread allocation counters not supported)");
+        }
+        System.out.printf(Locale.US, "detections        %d (%d coalesced, %d accepted)%n", detections, coalesced, accepts);
+
+        long[] sorted;
+        synchronized (latencies) {
+            sorted = new long[latencies.size()];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = latencies.get(i);
+            }
+        }
+        Arrays.sort(sorted);
+        if (sorted.length == 0) {
+            System.out.println("latency           n/a (no verifications)");
+            return;
+        }
+        System.out.printf(Locale.US, "latency (ms)      p50 %.2f  p90 %.2f  p99 %.2f  max %.2f%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private static long threadAllocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static void sleepNanos(long nanos) {
+        try {
+            Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void collect(File file, List<File> out) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                Arrays.sort(children);
+                for (File child : children) {
+                    collect(child, out);
+                }
+            }
+            return;
+        }
+        String name = file.getName().toLowerCase(Locale.US);
+        if (name.endsWith(".wav") || name.endsWith(".pcm") || name.endsWith(".raw")) {
+            out.add(file);
+        }
+    }
+
+    private static AudioSource open(File file) {
+        return file.getName().toLowerCase(Locale.US).endsWith(".wav")
+                ? new WavAudioSource(file)
+                : new RawPcmAudioSource(file, SAMPLE_RATE);
+    }
+
+    // ضوضاء خفيفة مع مقاطع "كلام" (نغمات متعددة) كل 3 ثوانٍ
+    static short[] synthesize(int seconds, long seed) {
+        Random random = new Random(seed);
+        short[] samples = new short[SAMPLE_RATE * seconds];
+        for (int i = 0; i < samples.length; i++) {
+            double t = (double) i / SAMPLE_RATE;
+            double value = random.nextGaussian() * 200;
+            if (t % 3.0 > 2.2) {
+                value += 6000 * Math.sin(2 * Math.PI * 180 * t) + 3000 * Math.sin(2 * Math.PI * 720 * t);
+            }
+            samples[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+        }
+        return samples;
+    }
+}
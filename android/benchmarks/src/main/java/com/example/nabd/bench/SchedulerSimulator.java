@@ -0,0 +1,146 @@
+package com.example.nabd.bench;
+
+import com.example.nabd.ListeningScheduler;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+// يشغل ListeningScheduler على يوم محاكى من أحداث الشاشة والشحن والحرارة لكل ملف استماع،
+// مع نموذج بسيط لاستهلاك البطارية يعتمد على نسبة تشغيل الميكروفون (حلقة مغلقة: البطارية تغير النمط).
+//
+// صيغة الملف، سطر لكل حدث بترتيب الزمن:  <دقيقة>,screen|charging|thermal,<قيمة>
+// الاستخدام: SchedulerSimulator [events.csv]   (بدون ملف يُولّد يوم اصطناعي)
+public final class SchedulerSimulator {
+    private static final int DAY_MINUTES = 24 * 60;
+    // % في الساعة: استهلاك الجهاز الخامل، والميكروفون مع Porcupine، والشاشة
+    private static final double IDLE_DRAIN = 0.8;
+    private static final double MIC_DRAIN = 1.6;
+    private static final double SCREEN_DRAIN = 9.0;
+    private static final double CHARGE_RATE = 40.0;
+
+    static final class Event {
+        final int minute;
+        final String type;
+        final int value;
+
+        Event(int minute, String type, int value) {
+            this.minute = minute;
+            this.type = type;
+            this.value = value;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Event> events = args.length > 0 ? read(new File(args[0])) : synthesize(7L);
+        System.out.printf(Locale.US, "%d events over 24 h%n%n", events.size());
+        System.out.printf(Locale.US, "%-11s %8s %8s %9s %10s %10s %10s %10s%n", "profile", "mic on %",
+                "battery", "switches", "CONT min", "DUTY min", "REDU min", "SUSP min");
+        for (ListeningScheduler.Profile profile : ListeningScheduler.Profile.values()) {
+            simulate(profile, events);
+        }
+    }
+
+    static void simulate(ListeningScheduler.Profile profile, List<Event> events) {
+        ListeningScheduler scheduler = new ListeningScheduler(profile, null);
+        Map<ListeningScheduler.Mode, Integer> minutes = new EnumMap<>(ListeningScheduler.Mode.class);
+        double battery = 60;
+        boolean screenOn = false;
+        boolean charging = false;
+        double micMinutes = 0;
+        int next = 0;
+        scheduler.onScreen(false);
+        scheduler.onBattery((int) battery, false);
+
+        for (int minute = 0; minute < DAY_MINUTES; minute++) {
+            while (next < events.size() && events.get(next).minute <= minute) {
+                Event event = events.get(next++);
+                switch (event.type) {
+                    case "screen":
+                        screenOn = event.value != 0;
+                        scheduler.onScreen(screenOn);
+                        break;
+                    case "charging":
+                        charging = event.value != 0;
+                        break;
+                    case "thermal":
+                        scheduler.onThermal(event.value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown event " + event.type);
+                }
+            }
+            ListeningScheduler.Mode mode = scheduler.getMode();
+            minutes.merge(mode, 1, Integer::sum);
+            double micFraction = micFraction(mode);
+            micMinutes += micFraction;
+
+            double drain = IDLE_DRAIN + MIC_DRAIN * micFraction + (screenOn ? SCREEN_DRAIN : 0);
+            battery += (charging ? CHARGE_RATE - drain : -drain) / 60.0;
+            battery = Math.max(0, Math.min(100, battery));
+            scheduler.onBattery((int) battery, charging);
+        }
+
+        System.out.printf(Locale.US, "%-11s %8.1f %7.0f%% %9d %10d %10d %10d %10d%n",
+                profile.name().toLowerCase(Locale.US), 100.0 * micMinutes / DAY_MINUTES, battery,
+                scheduler.getTransitions(),
+                minutes.getOrDefault(ListeningScheduler.Mode.CONTINUOUS, 0),
+                minutes.getOrDefault(ListeningScheduler.Mode.DUTY_CYCLE, 0),
+                minutes.getOrDefault(ListeningScheduler.Mode.REDUCED, 0),
+                minutes.getOrDefault(ListeningScheduler.Mode.SUSPENDED, 0));
+    }
+
+    static double micFraction(ListeningScheduler.Mode mode) {
+        if (mode == ListeningScheduler.Mode.SUSPENDED) {
+            return 0;
+        }
+        if (!mode.isDutyCycled()) {
+            return 1;
+        }
+        return mode.getListenMillis() / (double) (mode.getListenMillis() + mode.getSleepMillis());
+    }
+
+    // يوم نموذجي: شحن ليلي، جلسات شاشة قصيرة متفرقة، وارتفاع حرارة بعد الظهر
+    static List<Event> synthesize(long seed) {
+        Random random = new Random(seed);
+        List<Event> events = new ArrayList<>();
+        events.add(new Event(0, "charging", 1));
+        events.add(new Event(7 * 60, "charging", 0));
+        for (int minute = 7 * 60; minute < 23 * 60; ) {
+            minute += 10 + random.nextInt(50);
+            int length = 2 + random.nextInt(15);
+            events.add(new Event(minute, "screen", 1));
+            events.add(new Event(minute + length, "screen", 0));
+            minute += length;
+        }
+        events.add(new Event(14 * 60, "thermal", ListeningScheduler.THERMAL_MODERATE));
+        events.add(new Event(14 * 60 + 20, "thermal", ListeningScheduler.THERMAL_SEVERE));
+        events.add(new Event(14 * 60 + 35, "thermal", ListeningScheduler.THERMAL_NONE));
+        events.sort((a, b) -> Integer.compare(a.minute, b.minute));
+        return events;
+    }
+
+    static List<Event> read(File file) throws IOException {
+        List<Event> events = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split(",");
+                events.add(new Event(Integer.parseInt(parts[0].trim()), parts[1].trim(),
+                        Integer.parseInt(parts[2].trim())));
+            }
+        }
+        return events;
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.nabd.bench;
+
+import com.example.nabd.AdaptiveScoringPolicy;
+import com.example.nabd.CalibrationStore;
+import com.example.nabd.DecisionRule;
+import com.example.nabd.FixedScoringPolicy;
+import com.example.nabd.ScoringPolicy;
+import com.example.nabd.StreamingVerifier;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+// يقيّم سياسات قرار التحقق على سجلات درجات Eagle مصنفة، بنفس ترتيب الجلسات
+// (السياسة المتكيفة تتعلم من الجلسات المقبولة أثناء المرور).
+//
+// صيغة الملف، سطر لكل جلسة:  genuine|impostor,<snr dB أو nan>,<درجة الإطار 1> <درجة الإطار 2> ...
+// الاستخدام: ScoreTraceEvaluator [trace.csv]   (بدون ملف تُولّد سجلات اصطناعية)
+public final class ScoreTraceEvaluator {
+    private static final int FRAME_LENGTH = 512;
+    private static final float THRESHOLD = 0.6f;
+    private static final String SPEAKER = "user";
+
+    static final class Trace {
+        final boolean genuine;
+        final float snrDb;
+        final float[] scores;
+
+        Trace(boolean genuine, float snrDb, float[] scores) {
+            this.genuine = genuine;
+            this.snrDb = snrDb;
+            this.scores = scores;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Trace> traces = args.length > 0 ? read(new File(args[0])) : synthesize(2000, 11L);
+
+        Map<String, ScoringPolicy> policies = new LinkedHashMap<>();
+        policies.put("max-frame", new FixedScoringPolicy(DecisionRule.threshold(THRESHOLD)));
+        policies.put("ema-0.3", new FixedScoringPolicy(DecisionRule.smoothed(THRESHOLD, 0.3f)));
+        policies.put("top3-mean", new FixedScoringPolicy(DecisionRule.topKMean(THRESHOLD, 3)));
+        policies.put("adaptive", new AdaptiveScoringPolicy(DecisionRule.topKMean(THRESHOLD, 3),
+                CalibrationStore.inMemory()));
+
+        System.out.printf(Locale.US, "%d sessions%n%n", traces.size());
+        System.out.printf(Locale.US, "%-12s %8s %8s %10s %10s %10s%n",
+                "policy", "FAR %", "FRR %", "frames", "conf(gen)", "conf(imp)");
+        for (Map.Entry<String, ScoringPolicy> entry : policies.entrySet()) {
+            evaluate(entry.getKey(), entry.getValue(), traces);
+        }
+    }
+
+    private static void evaluate(String name, ScoringPolicy policy, List<Trace> traces) throws Exception {
+        TraceFrameScorer scorer = new TraceFrameScorer();
+        StreamingVerifier verifier = new StreamingVerifier(scorer, FRAME_LENGTH, policy.getRule());
+        float[] thresholds = new float[1];
+        short[] audio = new short[0];
+
+        int genuine = 0;
+        int impostor = 0;
+        int falseAccepts = 0;
+        int falseRejects = 0;
+        long frames = 0;
+        double genuineConfidence = 0;
+        double impostorConfidence = 0;
+
+        for (Trace trace : traces) {
+            int length = trace.scores.length * FRAME_LENGTH;
+            if (audio.length < length) {
+                audio = new short[length];
+            }
+            scorer.load(trace.scores);
+            thresholds[0] = policy.thresholdFor(SPEAKER, THRESHOLD, trace.snrDb, null);
+            verifier.setProfileThresholds(thresholds);
+            boolean accepted = verifier.verify(audio, length) == StreamingVerifier.Verdict.ACCEPT;
+            float confidence = policy.confidence(SPEAKER, verifier.getDecisionScore(), thresholds[0]);
+            frames += verifier.getFramesProcessed();
+            if (accepted) {
+                policy.onAccepted(SPEAKER, verifier.getDecisionScore(), trace.snrDb);
+            }
+            if (trace.genuine) {
+                genuine++;
+                genuineConfidence += confidence;
+                if (!accepted) {
+                    falseRejects++;
+                }
+            } else {
+                impostor++;
+                impostorConfidence += confidence;
+                if (accepted) {
+                    falseAccepts++;
+                }
+            }
+        }
+
+        System.out.printf(Locale.US, "%-12s %8.2f %8.2f %10.1f %10.3f %10.3f%n", name,
+                impostor == 0 ? 0.0 : 100.0 * falseAccepts / impostor,
+                genuine == 0 ? 0.0 : 100.0 * falseRejects / genuine,
+                traces.isEmpty() ? 0.0 : (double) frames / traces.size(),
+                genuine == 0 ? 0.0 : genuineConfidence / genuine,
+                impostor == 0 ? 0.0 : impostorConfidence / impostor);
+    }
+
+    static List<Trace> read(File file) throws IOException {
+        List<Trace> traces = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split(",", 3);
+                if (parts.length != 3) {
+                    throw new IOException("Malformed trace line: " + line);
+                }
+                String[] values = parts[2].trim().split("\\s+");
+                float[] scores = new float[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    scores[i] = Float.parseFloat(values[i]);
+                }
+                float snr = parts[1].trim().equalsIgnoreCase("nan") ? Float.NaN : Float.parseFloat(parts[1].trim());
+                traces.add(new Trace(parts[0].trim().equalsIgnoreCase("genuine"), snr, scores));
+            }
+        }
+        return traces;
+    }
+
+    // جلسات بطول 2 ثانية (62 إطارًا): المستخدم الحقيقي تنخفض درجاته مع الضوضاء،
+    // والمنتحل درجاته منخفضة لكن مع إطارات شاذة عالية أحيانًا
+    static List<Trace> synthesize(int sessions, long seed) {
+        Random random = new Random(seed);
+        List<Trace> traces = new ArrayList<>();
+        for (int s = 0; s < sessions; s++) {
+            boolean genuine = random.nextInt(4) != 0;
+            float snr = 2f + random.nextFloat() * 28f;
+            float[] scores = new float[62];
+            int speechStart = 10 + random.nextInt(20);
+            int speechEnd = Math.min(scores.length, speechStart + 15 + random.nextInt(15));
+            float mean = genuine ? 0.88f - (30f - snr) * 0.018f : 0.3f;
+            for (int i = 0; i < scores.length; i++) {
+                float score;
+                if (i >= speechStart && i < speechEnd) {
+                    score = mean + (float) random.nextGaussian() * 0.08f;
+                } else {
+                    score = 0.1f + (float) random.nextGaussian() * 0.05f;
+                }
+                if (!genuine && random.nextInt(150) == 0) {
+                    score = 0.65f + random.nextFloat() * 0.25f;
+                }
+                scores[i] = Math.max(0f, Math.min(1f, score));
+            }
+            traces.add(new Trace(genuine, snr, scores));
+        }
+        return traces;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.nabd.bench;
+
+// عمل حسابي ثابت يحاكي تكلفة المحرك الأصلي بدون تخصيص ذاكرة
+final class StubCost {
+    private StubCost() {
+    }
+
+    static int spin(int iterations) {
+        int x = 0x9E3779B9;
+        for (int i = 0; i < iterations; i++) {
+            x ^= x << 13;
+            x ^= x >>> 17;
+            x ^= x << 5;
+        }
+        return x;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.nabd.bench;
+
+import com.example.nabd.FrameScorer;
+
+// بديل حتمي لـ Eagle: الدرجة مشتقة من طاقة الإطار مع وقت معالجة مُحاكى لكل إطار
+public class StubFrameScorer implements FrameScorer {
+    private final float[] scores;
+    private final float fullScaleEnergy;
+    private final int workIterations;
+    private int sink;
+
+    public StubFrameScorer(int profiles, float fullScaleEnergy, int workIterations) {
+        this.scores = new float[profiles];
+        this.fullScaleEnergy = fullScaleEnergy;
+        this.workIterations = workIterations;
+    }
+
+    @Override
+    public void reset() {
+    }
+
+    @Override
+    public float[] score(short[] frame) {
+        sink += StubCost.spin(workIterations);
+        long energy = 0;
+        for (short sample : frame) {
+            energy += (long) sample * sample;
+        }
+        float base = Math.min(1f, (float) energy / frame.length / fullScaleEnergy);
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = base / (i + 1);
+        }
+        return scores;
+    }
+
+    public int getSink() {
+        return sink;
+    }
+}
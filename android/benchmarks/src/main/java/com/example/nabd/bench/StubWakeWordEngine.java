@@ -0,0 +1,53 @@
+package com.example.nabd.bench;
+
+import com.example.nabd.WakeWordEngine;
+
+// بديل حتمي لـ Porcupine: يكتشف "كلمة" عندما تتجاوز طاقة الإطار الحد بعد فترة هدوء،
+// مع فترة انتظار بين الاكتشافات ووقت معالجة مُحاكى
+public class StubWakeWordEngine implements WakeWordEngine {
+    private final int frameLength;
+    private final long energyThreshold;
+    private final int refractoryFrames;
+    private final int workIterations;
+    private int framesSinceDetection;
+    private int sink;
+
+    public StubWakeWordEngine(int frameLength, long energyThreshold, int refractoryFrames, int workIterations) {
+        this.frameLength = frameLength;
+        this.energyThreshold = energyThreshold;
+        this.refractoryFrames = refractoryFrames;
+        this.workIterations = workIterations;
+        this.framesSinceDetection = refractoryFrames;
+    }
+
+    @Override
+    public int getFrameLength() {
+        return frameLength;
+    }
+
+    @Override
+    public int process(short[] frame) {
+        sink += StubCost.spin(workIterations);
+        framesSinceDetection++;
+        if (framesSinceDetection < refractoryFrames) {
+            return -1;
+        }
+        long energy = 0;
+        for (int i = 0; i < frameLength; i++) {
+            energy += (long) frame[i] * frame[i];
+        }
+        if (energy / frameLength > energyThreshold) {
+            framesSinceDetection = 0;
+            return 0;
+        }
+        return -1;
+    }
+
+    public int getSink() {
+        return sink;
+    }
+
+    @Override
+    public void delete() {
+    }
+}
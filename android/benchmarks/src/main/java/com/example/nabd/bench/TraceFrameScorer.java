@@ -0,0 +1,27 @@
+package com.example.nabd.bench;
+
+import com.example.nabd.FrameScorer;
+
+// يعيد درجات مسجلة مسبقًا إطارًا بإطار بدل تشغيل Eagle
+public final class TraceFrameScorer implements FrameScorer {
+    private final float[] result = new float[1];
+    private float[] scores = new float[0];
+    private int position;
+
+    public void load(float[] scores) {
+        this.scores = scores;
+        this.position = 0;
+    }
+
+    @Override
+    public void reset() {
+        position = 0;
+    }
+
+    @Override
+    public float[] score(short[] frame) {
+        result[0] = position < scores.length ? scores[position] : 0f;
+        position++;
+        return result;
+    }
+}
@@ -6,6 +6,7 @@ import 'package:firebase_app_check/firebase_app_check.dart';
 import 'package:nabd/screens/splash_screen.dart';
 import 'package:nabd/utils/shared_preferences_helper.dart';
 import 'package:nabd/screens/login_screen.dart';
+import 'package:nabd/screens/main_screen.dart';
 import 'package:android_intent_plus/android_intent.dart';
 import 'package:permission_handler/permission_handler.dart';
 
@@ -24,46 +25,81 @@ Future<void> main() async {
 class MyApp extends StatefulWidget {
   const MyApp({super.key});
 
+  // المسار الذي تفتح عليه خدمة الاستماع التطبيق بعد التحقق من صوت المستخدم
+  static const String listeningRoute = '/listening';
+
   @override
   State<MyApp> createState() => _MyAppState();
 }
 
 class _MyAppState extends State<MyApp> with WidgetsBindingObserver {
   static const platform = MethodChannel('nabd/foreground');
+  // الأذونات والخدمات دفعة واحدة، تُجاب من نسخة في الذاكرة على خيط خلفي في Android
+  static const _state = MethodChannel('nabd/state');
+  bool _permissionsRequested = false;
 
   @override
   void initState() {
     super.initState();
     WidgetsBinding.instance.addObserver(this);
 
-    _requestBatteryIgnorePermission();
-    _requestOverlayPermission();
-    _checkAccessibilityPermission();
-    _requestMicrophonePermission();
+    // المحرك المُسخّن مسبقًا يعمل بدون Activity، فننتظر حتى تظهر الواجهة.
+    // didChangeAppLifecycleState لا يُستدعى إذا بدأت الحالة resumed
+    if (WidgetsBinding.instance.lifecycleState == AppLifecycleState.resumed) {
+      _requestPermissions();
+      _pauseListening();
+    }
+  }
+
+  Future<void> _requestPermissions() async {
+    if (_permissionsRequested) return;
+    _permissionsRequested = true;
+
+    final state = await _getState();
+    if (state['ignoringBatteryOptimizations'] != true) {
+      _requestBatteryIgnorePermission();
+    }
+    _requestOverlayPermission(state['overlay'] as bool?);
+    _checkAccessibilityPermission(state['accessibility'] as bool?);
+    if (state['microphone'] != true) {
+      _requestMicrophonePermission();
+    }
+  }
+
+  // قيمة ناقصة تعني السؤال عنها منفردة كما في السابق
+  Future<Map<String, dynamic>> _getState() async {
+    try {
+      return await _state.invokeMapMethod<String, dynamic>('getState') ?? const {};
+    } catch (e) {
+      debugPrint("Error reading app state: $e");
+      return const {};
+    }
   }
 
   @override
   void didChangeAppLifecycleState(AppLifecycleState state) {
+    // الخدمة لا تُوقف عند فتح التطبيق؛ يتوقف الميكروفون فقط وتبقى Porcupine و Eagle جاهزة
     if (state == AppLifecycleState.resumed) {
-      _stopService();
+      _requestPermissions();
+      _pauseListening();
     } else if (state == AppLifecycleState.paused || state == AppLifecycleState.detached) {
-      _startService();
+      _resumeListening();
     }
   }
 
-  Future<void> _startService() async {
+  Future<void> _resumeListening() async {
     try {
-      await platform.invokeMethod('startService');
+      await platform.invokeMethod('resumeListening');
     } catch (e) {
-      debugPrint("Error starting service: $e");
+      debugPrint("Error resuming listening service: $e");
     }
   }
 
-  Future<void> _stopService() async {
+  Future<void> _pauseListening() async {
     try {
-      await platform.invokeMethod('stopService');
+      await platform.invokeMethod('pauseListening');
     } catch (e) {
-      debugPrint("Error stopping service: $e");
+      debugPrint("Error pausing listening service: $e");
     }
   }
 
@@ -75,9 +111,9 @@ class _MyAppState extends State<MyApp> with WidgetsBindingObserver {
     }
   }
 
-  Future<void> _requestOverlayPermission() async {
+  Future<void> _requestOverlayPermission(bool? enabled) async {
     try {
-      final bool isEnabled = await platform.invokeMethod('isOverlayEnabled');
+      final bool isEnabled = enabled ?? await platform.invokeMethod('isOverlayEnabled');
       if (!isEnabled) {
         await platform.invokeMethod('requestOverlayPermission');
       }
@@ -86,9 +122,9 @@ class _MyAppState extends State<MyApp> with WidgetsBindingObserver {
     }
   }
 
-  Future<void> _checkAccessibilityPermission() async {
+  Future<void> _checkAccessibilityPermission(bool? enabled) async {
     try {
-      final bool isEnabled = await platform.invokeMethod('isAccessibilityEnabled');
+      final bool isEnabled = enabled ?? await platform.invokeMethod('isAccessibilityEnabled');
       if (!isEnabled) {
         const intent = AndroidIntent(
           action: 'android.settings.ACCESSIBILITY_SETTINGS',
@@ -130,6 +166,13 @@ class _MyAppState extends State<MyApp> with WidgetsBindingObserver {
       debugShowCheckedModeBanner: false,
       theme: ThemeData.dark(),
       home: const SplashScreen(),
+      onGenerateInitialRoutes: (initialRoute) => [
+        MaterialPageRoute(
+          builder: (_) => initialRoute == MyApp.listeningRoute
+              ? const MainScreen()
+              : const SplashScreen(),
+        ),
+      ],
 
     );
   }
@@ -1,4 +1,5 @@
 import 'package:flutter/material.dart';
+import 'package:flutter/services.dart';
 import 'package:convex_bottom_bar/convex_bottom_bar.dart';
 import 'package:nabd/screens/profile_screen.dart';
 import 'package:nabd/screens/setting_screen.dart';
@@ -6,7 +7,10 @@ import 'package:nabd/screens/home_screen.dart';
 import 'package:nabd/services/tts_service.dart';
 import 'package:nabd/services/stt_service.dart';
 import 'package:nabd/services/assistant_service.dart';
+import 'package:nabd/services/wake_audio_service.dart';
+import 'package:nabd/services/wake_event_service.dart';
 import 'package:nabd/utils/audio_helper.dart';
+import 'package:nabd/utils/shared_preferences_helper.dart';
 import 'dart:async';
 
 class MainScreen extends StatefulWidget {
@@ -28,10 +32,18 @@ class _MainScreenState extends State<MainScreen>
   String? _lastCommand;
   bool _assetSoundPlayed = false;
   bool _isHomeFirstVisit = true;
+  bool _servicesInitialized = false;
+
+  static const _foreground = MethodChannel('nabd/foreground');
+  // أوامر كلمات التنبيه من نوع flutter_command (من خدمة الاستماع)
+  static const _commands = MethodChannel('nabd/commands');
 
   final TTSService _ttsService = TTSService();
   final STTService _sttService = STTService();
   final AssistantService _assistantService = AssistantService();
+  StreamSubscription<WakeEvent>? _wakeEvents;
+  // آخر ظهور للواجهة: الأحداث الأقدم (ومنها الحدث الذي فتح التطبيق) يتولاها _handleWakeLaunch
+  DateTime _resumedAt = DateTime.now();
 
   List<Widget> get _pages => [
     const ProfileScreen(),
@@ -47,12 +59,20 @@ class _MainScreenState extends State<MainScreen>
     _tabController = TabController(length: 3, vsync: this, initialIndex: _selectedIndex)
       ..addListener(_onTabChanged);
 
-    _initializeServicesAndWelcome();
+    _commands.setMethodCallHandler(_onWakeCommand);
+    _wakeEvents = WakeEventService().events.listen(_onWakeEvent);
+
+    // مع المحرك المُسخّن مسبقًا لا توجد واجهة بعد؛ نؤجل الخدمات حتى الفتح الفعلي
+    if (WidgetsBinding.instance.lifecycleState == AppLifecycleState.resumed) {
+      _initializeServicesAndWelcome();
+    }
   }
 
   @override
   void dispose() {
     WidgetsBinding.instance.removeObserver(this);
+    _commands.setMethodCallHandler(null);
+    _wakeEvents?.cancel();
     _tabController.dispose();
     _ttsService.stop();
     _sttService.stopListening();
@@ -69,13 +89,108 @@ class _MainScreenState extends State<MainScreen>
       _isListening = false;
       _isSpeaking = false;
     } else if (state == AppLifecycleState.resumed) {
-      if (!_openCamera) {
-        _sttService.initSpeech();
+      _resumedAt = DateTime.now();
+      if (!_servicesInitialized) {
+        _initializeServicesAndWelcome();
+      } else if (!_openCamera) {
+        _sttService.initSpeech().then((_) async {
+          await _runPendingWakeCommand();
+          await _listenIfWokenByVoice();
+        });
       }
     }
   }
 
+  // هل فُتح التطبيق بكلمة التنبيه بعد التحقق من الصوت؟ (يُستهلك مرة واحدة)
+  Future<bool> _consumeWakeLaunch() async {
+    try {
+      return await _foreground.invokeMethod<bool>('consumeWakeLaunch') ?? false;
+    } catch (e) {
+      print("Error checking wake launch: $e");
+      return false;
+    }
+  }
+
+  // تحقق ناجح والواجهة ظاهرة أصلًا: نبدأ الاستماع داخل التطبيق بدون انتظار إعادة الفتح.
+  // الحدث الذي فتح التطبيق يصل عند onResume أيضًا، لكنه أقدم من _resumedAt
+  Future<void> _onWakeEvent(WakeEvent event) async {
+    if (event.type != WakeEventType.accepted ||
+        event.time.isBefore(_resumedAt) ||
+        WidgetsBinding.instance.lifecycleState != AppLifecycleState.resumed ||
+        !_servicesInitialized ||
+        _openCamera ||
+        _isListening) {
+      return;
+    }
+    // كلمات بإجراء آخر (flutter_command وغيره) لا تعني فتح الاستماع
+    if (await _keywordAction(event.keyword) != 'open_app' || !mounted || _isListening) {
+      return;
+    }
+    await _startListening();
+  }
+
+  Future<String?> _keywordAction(String? keyword) async {
+    try {
+      final keywords = await _foreground.invokeListMethod<Map<dynamic, dynamic>>('getKeywords') ?? const [];
+      for (final entry in keywords) {
+        if (entry['name'] == keyword) {
+          return entry['action'] as String?;
+        }
+      }
+    } catch (e) {
+      print("Error reading keywords: $e");
+    }
+    return null;
+  }
+
+  Future<dynamic> _onWakeCommand(MethodCall call) async {
+    if (call.method == 'onWakeCommand') {
+      final command = (call.arguments as Map)['command'] as String?;
+      if (command != null) {
+        await _processCommand(command);
+      }
+    }
+    return null;
+  }
+
+  // أمر وصل بفتح التطبيق من كلمة تنبيه والواجهة مغلقة (يُستهلك مرة واحدة)
+  Future<void> _runPendingWakeCommand() async {
+    try {
+      final payload = await _foreground.invokeMapMethod<String, dynamic>('consumeWakeCommand');
+      final command = payload?['command'] as String?;
+      if (command != null && mounted) {
+        await _processCommand(command);
+      }
+    } catch (e) {
+      print("Error checking wake command: $e");
+    }
+  }
+
+  Future<void> _listenIfWokenByVoice() async {
+    if (await _consumeWakeLaunch() && mounted) {
+      await _handleWakeLaunch();
+    }
+  }
+
+  // إن تكلم المستخدم بعد كلمة التنبيه مباشرة فالأمر موجود في صوت الخدمة؛ وإلا نبدأ الاستماع.
+  // الصوت يُرسل للتحويل السحابي فقط بموافقة من الإعدادات، وإلا يُعاد الأمر بالتعرف على الكلام في الجهاز
+  Future<void> _handleWakeLaunch() async {
+    // takeClip يحرر اللقطة في الخدمة حتى لو لم نستخدمها
+    final clip = await WakeAudioService().takeClip();
+    if (clip != null && clip.hasCommand && SharedPreferencesHelper.instance.getCloudTranscription()) {
+      final text = await _assistantService.transcribeWakeCommand(clip.commandWav());
+      if (text.isNotEmpty && mounted) {
+        await _processCommand(text);
+        return;
+      }
+    }
+    if (mounted) {
+      await _startListening();
+    }
+  }
+
   Future<void> _initializeServicesAndWelcome() async {
+    _servicesInitialized = true;
     bool initialized = await _sttService.initSpeech();
     if (initialized) {
       await _ttsService.initialize();
@@ -88,6 +203,14 @@ class _MainScreenState extends State<MainScreen>
         print("Error initializing TTS with dummy sound: $e");
       }
 
+      await _runPendingWakeCommand();
+
+      // عند الفتح بكلمة التنبيه ندخل حالة الاستماع مباشرة بدل رسالة الترحيب
+      if (await _consumeWakeLaunch() && mounted) {
+        await _handleWakeLaunch();
+        return;
+      }
+
       await _speakWithControl("ْجاهز للمساعدةْ، انقر على الشاشة للتحدث.");
     } else {
       await _speakWithControl("عذراً، لا يمكن بدء خدمة التعرف على الكلام. قد تحتاج لتأكيد أذونات الميكروفون.");
@@ -1,8 +1,10 @@
+import 'dart:async';
 import 'package:flutter/material.dart';
 import 'package:flutter/services.dart';
 import 'package:nabd/services/tts_service.dart';
 import 'package:nabd/services/stt_service.dart';
 import 'package:nabd/utils/audio_helper.dart';
+import 'package:nabd/utils/shared_preferences_helper.dart';
 
 class SettingScreen extends StatefulWidget {
   const SettingScreen({Key? key}) : super(key: key);
@@ -15,8 +17,11 @@ class _SettingScreenState extends State<SettingScreen> {
   final TTSService _ttsService = TTSService();
   final STTService _sttService = STTService();
   static const _voiceIdChannel = MethodChannel('nabd/voiceid');
+  static const _enrollProgressChannel = EventChannel('nabd/voiceid_progress');
+  StreamSubscription? _enrollProgressSubscription;
   bool _isProcessing = false;
   String _voiceIdStatus = '';
+  bool _cloudTranscription = SharedPreferencesHelper.instance.getCloudTranscription();
 
   @override
   void initState() {
@@ -52,6 +57,12 @@ class _SettingScreenState extends State<SettingScreen> {
       await player1.onPlayerComplete.first;
       await Future.delayed(const Duration(milliseconds: 500));
 
+      _enrollProgressSubscription = _enrollProgressChannel.receiveBroadcastStream().listen((event) {
+        final percentage = (event['percentage'] as num).round();
+        if (mounted && event['done'] != true) {
+          setState(() => _voiceIdStatus = 'جاري تسجيل بصمة الصوت... $percentage%');
+        }
+      });
       final result = await _voiceIdChannel.invokeMethod('enrollVoice');
 
       if (result == "Voice enrolled successfully") {
@@ -68,6 +79,8 @@ class _SettingScreenState extends State<SettingScreen> {
       final player4 = await AudioHelper.playAssetSound('assets/sounds/AnErrorOccurredWhileChangingTheVoicePrint.mp3');
       await player4.onPlayerComplete.first;
     } finally {
+      await _enrollProgressSubscription?.cancel();
+      _enrollProgressSubscription = null;
       await _ttsService.stop();
       setState(() => _isProcessing = false);
       await _sttService.initSpeech();
@@ -77,6 +90,7 @@ class _SettingScreenState extends State<SettingScreen> {
 
   @override
   void dispose() {
+    _enrollProgressSubscription?.cancel();
     _ttsService.stop();
     _sttService.stopListening();
     super.dispose();
@@ -129,6 +143,26 @@ class _SettingScreenState extends State<SettingScreen> {
                     textAlign: TextAlign.center,
                   ),
                 ),
+              const SizedBox(height: 30),
+              Padding(
+                padding: const EdgeInsets.symmetric(horizontal: 24),
+                child: SwitchListTile(
+                  value: _cloudTranscription,
+                  onChanged: (value) async {
+                    await SharedPreferencesHelper.instance.setCloudTranscription(value);
+                    setState(() => _cloudTranscription = value);
+                  },
+                  title: const Text(
+                    'تحويل الأمر الصوتي عبر الإنترنت',
+                    style: TextStyle(color: Colors.white, fontSize: 18),
+                  ),
+                  subtitle: const Text(
+                    'عند التفعيل يُرسل تسجيل صوتك بعد كلمة التنبيه إلى OpenAI لتحويله إلى نص. '
+                    'عند الإيقاف يُعاد الاستماع للأمر على الجهاز ولا يغادر الصوت هاتفك.',
+                    style: TextStyle(color: Colors.white70, fontSize: 14),
+                  ),
+                ),
+              ),
             ],
           ),
         ),
@@ -1,6 +1,8 @@
 import 'dart:convert';
+import 'dart:typed_data';
 import 'package:flutter_dotenv/flutter_dotenv.dart';
 import 'package:http/http.dart' as http;
+import 'package:nabd/utils/shared_preferences_helper.dart';
 
 class AssistantService {
   final String apiKey = dotenv.env['OPENAI_API_KEY']!;
@@ -67,6 +69,35 @@ class AssistantService {
     }
   }
 
+  // تحويل الأمر المنطوق بعد كلمة التنبيه إلى نص عبر OpenAI؛ نص فارغ إذا فشل أو إذا لم يوافق المستخدم
+  // على إرسال الصوت (الإعداد مغلق افتراضيًا)
+  Future<String> transcribeWakeCommand(Uint8List wav) async {
+    if (!SharedPreferencesHelper.instance.getCloudTranscription()) {
+      return '';
+    }
+    try {
+      final request = http.MultipartRequest(
+        'POST',
+        Uri.parse('https://api.openai.com/v1/audio/transcriptions'),
+      )
+        ..headers['Authorization'] = 'Bearer $apiKey'
+        ..fields['model'] = 'whisper-1'
+        ..fields['language'] = 'ar'
+        ..files.add(http.MultipartFile.fromBytes('file', wav, filename: 'command.wav'));
+
+      final response = await http.Response.fromStream(await request.send());
+      if (response.statusCode != 200) {
+        print("📩 فشل تحويل الصوت: ${response.body}");
+        return '';
+      }
+      final data = json.decode(utf8.decode(response.bodyBytes));
+      return (data['text'] as String? ?? '').trim();
+    } catch (e) {
+      print("🚨 خطأ في تحويل الصوت: $e");
+      return '';
+    }
+  }
+
   String cleanResponse(String text) {
     return text
         .replaceAll(RegExp(r' '), ' ')
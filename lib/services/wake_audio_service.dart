@@ -0,0 +1,100 @@
+import 'dart:math';
+import 'dart:typed_data';
+
+import 'package:flutter/services.dart';
+
+// صوت ما بعد كلمة التنبيه من خدمة الاستماع: الـ pre-roll ثم ما قاله المستخدم حتى فُتح التطبيق
+class WakeAudioClip {
+  final int sampleRate;
+  // موضع لحظة الاكتشاف في samples؛ ما بعده هو الأمر المنطوق
+  final int wakeOffset;
+  final Int16List samples;
+
+  // ذيل كلمة التنبيه قد يتجاوز لحظة الاكتشاف قليلاً
+  static const _wakeTailMillis = 300;
+  static const _frameSamples = 512;
+  // RMS تقريبي لكلام عادي من 32768
+  static const _speechRms = 800.0;
+  static const _minSpeechFrames = 8;
+
+  WakeAudioClip(this.sampleRate, this.wakeOffset, this.samples);
+
+  // نفس صيغة WakeAudioHandoff في Java: int32 معدل العينات، int32 الموضع، ثم PCM 16-bit
+  factory WakeAudioClip.fromBytes(ByteData data) {
+    final sampleRate = data.getInt32(0, Endian.little);
+    final wakeOffset = data.getInt32(4, Endian.little);
+    final start = data.offsetInBytes + 8;
+    final length = (data.lengthInBytes - 8) ~/ 2;
+    // بدون نسخ إن كانت الرسالة محاذية لـ Int16 (الحالة المعتادة)
+    final samples = start.isEven
+        ? data.buffer.asInt16List(start, length)
+        : Int16List.fromList(List.generate(length, (i) => data.getInt16(8 + 2 * i, Endian.little)));
+    return WakeAudioClip(sampleRate, wakeOffset, samples);
+  }
+
+  Int16List get command {
+    final start = min(samples.length, wakeOffset + sampleRate * _wakeTailMillis ~/ 1000);
+    return Int16List.sublistView(samples, start);
+  }
+
+  bool get hasCommand {
+    final audio = command;
+    var speechFrames = 0;
+    for (var i = 0; i + _frameSamples <= audio.length; i += _frameSamples) {
+      var sum = 0.0;
+      for (var j = i; j < i + _frameSamples; j++) {
+        sum += audio[j] * audio[j];
+      }
+      if (sqrt(sum / _frameSamples) > _speechRms && ++speechFrames >= _minSpeechFrames) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // WAV أحادي 16-bit للأمر المنطوق فقط
+  Uint8List commandWav() {
+    final pcm = command;
+    final header = ByteData(44);
+    void ascii(int offset, String text) {
+      for (var i = 0; i < text.length; i++) {
+        header.setUint8(offset + i, text.codeUnitAt(i));
+      }
+    }
+    final dataBytes = pcm.lengthInBytes;
+    ascii(0, 'RIFF');
+    header.setUint32(4, 36 + dataBytes, Endian.little);
+    ascii(8, 'WAVE');
+    ascii(12, 'fmt ');
+    header.setUint32(16, 16, Endian.little);
+    header.setUint16(20, 1, Endian.little);
+    header.setUint16(22, 1, Endian.little);
+    header.setUint32(24, sampleRate, Endian.little);
+    header.setUint32(28, sampleRate * 2, Endian.little);
+    header.setUint16(32, 2, Endian.little);
+    header.setUint16(34, 16, Endian.little);
+    ascii(36, 'data');
+    header.setUint32(40, dataBytes, Endian.little);
+    return Uint8List(44 + dataBytes)
+      ..setRange(0, 44, header.buffer.asUint8List())
+      ..setRange(44, 44 + dataBytes, pcm.buffer.asUint8List(pcm.offsetInBytes, dataBytes));
+  }
+}
+
+class WakeAudioService {
+  static const _channel = BasicMessageChannel<ByteData?>('nabd/wake_audio', BinaryCodec());
+
+  // تُؤخذ مرة واحدة بعد الفتح بكلمة التنبيه؛ null إذا لا توجد لقطة حديثة
+  Future<WakeAudioClip?> takeClip() async {
+    try {
+      final data = await _channel.send(ByteData(0));
+      if (data == null || data.lengthInBytes <= 8) {
+        return null;
+      }
+      return WakeAudioClip.fromBytes(data);
+    } catch (e) {
+      print("Error taking wake audio: $e");
+      return null;
+    }
+  }
+}
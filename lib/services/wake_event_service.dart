@@ -0,0 +1,59 @@
+import 'dart:async';
+
+import 'package:flutter/services.dart';
+
+enum WakeEventType { detected, accepted, rejected, error }
+
+// حدث من خدمة الاستماع: اكتشاف كلمة تنبيه أو نتيجة التحقق من الصوت
+class WakeEvent {
+  final WakeEventType type;
+  final String? keyword;
+  final DateTime time;
+  final double score;
+  final double latencyMillis;
+  // اسم المتحدث عند القبول، أو رسالة الخطأ
+  final String? detail;
+
+  const WakeEvent({
+    required this.type,
+    required this.keyword,
+    required this.time,
+    required this.score,
+    required this.latencyMillis,
+    required this.detail,
+  });
+
+  // نفس ترتيب WakeEventStream في Java: [type, keyword, timeMillis, score, latencyMillis, speaker]
+  factory WakeEvent.fromList(List<dynamic> fields) {
+    return WakeEvent(
+      type: WakeEventType.values[fields[0] as int],
+      keyword: fields[1] as String?,
+      time: DateTime.fromMillisecondsSinceEpoch(fields[2] as int),
+      score: (fields[3] as num).toDouble(),
+      latencyMillis: (fields[4] as num).toDouble(),
+      detail: fields[5] as String?,
+    );
+  }
+
+  @override
+  String toString() => 'WakeEvent($type, $keyword, score: $score, ${latencyMillis.toStringAsFixed(1)} ms)';
+}
+
+class WakeEventService {
+  static const _channel = EventChannel('nabd/wake_events');
+
+  static final WakeEventService _instance = WakeEventService._();
+  factory WakeEventService() => _instance;
+  WakeEventService._();
+
+  Stream<WakeEvent>? _events;
+
+  // الأحداث تصل دفعات (فورًا والتطبيق ظاهر، وكل ثانيتين في الخلفية)؛ هنا تُفرد حدثًا حدثًا
+  Stream<WakeEvent> get events {
+    return _events ??= _channel
+        .receiveBroadcastStream()
+        .expand((batch) => (batch as List<dynamic>)
+            .map((fields) => WakeEvent.fromList(fields as List<dynamic>)))
+        .asBroadcastStream();
+  }
+}
@@ -50,4 +50,17 @@ class SharedPreferencesHelper {
   bool getHasLoggedIn() {
     return getPrefBool(key: 'hasLoggedIn', defaultValue: false);
   }
+
+  // ================================
+  // إرسال صوت الأمر بعد كلمة التنبيه إلى OpenAI
+  // ================================
+
+  /// موافقة صريحة من المستخدم؛ بدونها لا يغادر صوت الأمر الجهاز (إفتراضية false)
+  bool getCloudTranscription() {
+    return getPrefBool(key: 'cloud_transcription', defaultValue: false);
+  }
+
+  Future<void> setCloudTranscription(bool value) async {
+    await savePrefBool(key: 'cloud_transcription', value: value);
+  }
 }